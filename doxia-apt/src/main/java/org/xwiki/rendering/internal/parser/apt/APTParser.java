@@ -19,18 +19,27 @@
  */
 package org.xwiki.rendering.internal.parser.apt;
 
+import java.util.List;
+
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.apache.maven.doxia.module.apt.AptParser;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
 import org.xwiki.rendering.internal.parser.doxia.AbstractDoxiaParser;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
 
 import static org.xwiki.rendering.internal.apt.APT10SyntaxProvider.APT_1_0;
 
 /**
  * <a href="http://maven.apache.org/doxia/format.html">APT</a> Parser.
+ * <p>
+ * The content is parsed with the Doxia APT parser unless the {@link DoxiaConfiguration#NATIVE_ENGINE native engine} is
+ * configured for this syntax, in which case the {@link NativeAPTParser} is used for the content it supports.
+ * </p>
  *
  * @version $Id$
  * @since 4.3M1
@@ -51,4 +60,29 @@ public class APTParser extends AbstractDoxiaParser
     {
         return new AptParser();
     }
+
+    @Override
+    protected List<String> splitSections(String source)
+    {
+        return APTSectionSplitter.split(source);
+    }
+
+    @Override
+    protected String getSectionTitle(String section)
+    {
+        return APTSectionSplitter.getTitle(section);
+    }
+
+    @Override
+    protected boolean parseNative(String source, Listener listener, IdGenerator idGenerator)
+    {
+        if (!NativeAPTParser.supports(source)) {
+            return false;
+        }
+
+        new NativeAPTParser(listener, idGenerator, getLinkReferenceParser(), this.plainRendererFactory, getSyntax())
+            .parse(source);
+
+        return true;
+    }
 }
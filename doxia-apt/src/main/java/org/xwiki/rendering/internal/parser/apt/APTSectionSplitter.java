@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.apt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split an APT source at its top level (level 1) section titles, i.e. the non indented blocks which are not lists,
+ * tables, verbatim blocks, figures, horizontal rules or comments.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public final class APTSectionSplitter
+{
+    /**
+     * The characters which, at the beginning of a non indented line, start something else than a section title.
+     */
+    private static final String NON_TITLE_CHARACTERS = "*+-[%=~\f";
+
+    private static final String BOXED_VERBATIM = "+--";
+
+    private static final String VERBATIM = "---";
+
+    private APTSectionSplitter()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param source the APT source to split
+     * @return the sections of the source, the first one containing what's before the first title, or {@code null} if
+     *         the source contains constructs depending on the rest of the document (forced line breaks, macros)
+     */
+    public static List<String> split(String source)
+    {
+        // Forced line breaks change the state of the generator sink for the rest of the document
+        if (source.contains("\\\n") || source.contains("\\\r\n")) {
+            return null;
+        }
+
+        List<String> sections = new ArrayList<>();
+
+        int sectionStart = 0;
+        boolean previousLineBlank = true;
+        String verbatimDelimiter = null;
+        for (int lineStart = 0; lineStart < source.length();) {
+            int lineEnd = source.indexOf('\n', lineStart);
+            int nextLineStart = lineEnd == -1 ? source.length() : lineEnd + 1;
+            String line = source.substring(lineStart, nextLineStart);
+
+            if (verbatimDelimiter != null) {
+                if (line.startsWith(verbatimDelimiter)) {
+                    verbatimDelimiter = null;
+                }
+            } else if (line.startsWith(BOXED_VERBATIM)) {
+                verbatimDelimiter = BOXED_VERBATIM;
+            } else if (line.startsWith(VERBATIM)) {
+                verbatimDelimiter = VERBATIM;
+            } else if (line.startsWith("%{")) {
+                // Macros (e.g. the table of content) may need the whole document
+                return null;
+            } else if (previousLineBlank && lineStart > sectionStart && isTitle(line)) {
+                sections.add(source.substring(sectionStart, lineStart));
+                sectionStart = lineStart;
+            }
+
+            previousLineBlank = line.trim().isEmpty();
+            lineStart = nextLineStart;
+        }
+
+        sections.add(source.substring(sectionStart));
+
+        return sections;
+    }
+
+    /**
+     * @param section a section returned by {@link #split(String)}, other than the first one
+     * @return the title of the section, i.e. the trimmed lines of its first block separated by spaces, with the inline
+     *         markup not parsed
+     */
+    public static String getTitle(String section)
+    {
+        StringBuilder title = new StringBuilder();
+        for (String line : section.split("\r?\n")) {
+            String text = line.trim();
+            if (text.isEmpty()) {
+                break;
+            }
+            title.append(title.length() > 0 ? " " : "").append(text);
+        }
+
+        return title.toString();
+    }
+
+    private static boolean isTitle(String line)
+    {
+        if (line.isEmpty()) {
+            return false;
+        }
+
+        char c = line.charAt(0);
+
+        return !Character.isWhitespace(c) && NON_TITLE_CHARACTERS.indexOf(c) == -1;
+    }
+}
@@ -0,0 +1,805 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.apt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.maven.doxia.module.apt.AptUtils;
+import org.apache.maven.doxia.util.DoxiaUtils;
+import org.xwiki.rendering.internal.parser.doxia.HeaderTextListener;
+import org.xwiki.rendering.internal.parser.doxia.PlainTextTokenizer;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * An APT parser producing the XWiki events directly from the source, without going through the Doxia
+ * {@code AptParser} and {@link org.xwiki.rendering.internal.parser.doxia.XWikiGeneratorSink}.
+ * <p>
+ * This is not a streaming parser: the whole source is read in a {@link String} and split in lines before being parsed,
+ * and {@link APTParser} first scans it with {@link #supports(String)} to decide whether to use this parser or to fall
+ * back on Doxia. What's saved is the Doxia sink layer and the intermediate events, not the reading of the source.
+ * </p>
+ * <p>
+ * The produced events are the same as the ones produced through Doxia for the supported APT constructs. Macros,
+ * figures, verbatim blocks and forced line breaks are not supported (the events produced through Doxia for the last two
+ * are not worth reproducing), see {@link #supports(String)}. A new instance must be used for each parse.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class NativeAPTParser
+{
+    private static final int MAX_SECTION_LEVEL = 6;
+
+    private static final int TAB_SIZE = 8;
+
+    private static final String MACRO = "%{";
+
+    private static final String COMMENT = "~~";
+
+    private static final String BOXED_VERBATIM = "+--";
+
+    private static final String VERBATIM = "---";
+
+    private static final String TABLE = "*--";
+
+    private static final String HORIZONTAL_RULE = "===";
+
+    private static final String NUMBERED_ITEM_START = "[[";
+
+    private static final String NUMBERED_ITEM_END = "]]";
+
+    private static final String LIST_BREAK = "[]";
+
+    private static final String ANCHOR_LINK_START = "{{";
+
+    private static final String LINK_START = "{{{";
+
+    private static final String LINK_END = "}}";
+
+    /**
+     * The characters which can be escaped with a backslash.
+     */
+    private static final String ESCAPABLE = "~=-+*[]<>{}|\\";
+
+    /**
+     * The formats, indexed by the length of their markup minus one.
+     */
+    private static final Format[] FORMATS = { Format.ITALIC, Format.BOLD, Format.MONOSPACE };
+
+    private final Listener listener;
+
+    private final IdGenerator idGenerator;
+
+    private final ResourceReferenceParser linkReferenceParser;
+
+    private final PrintRendererFactory plainRendererFactory;
+
+    private final MetaData documentMetaData;
+
+    private final PlainTextTokenizer textTokenizer = new PlainTextTokenizer();
+
+    /**
+     * The levels of the open sections, the deepest first.
+     */
+    private final Deque<Integer> sections = new ArrayDeque<>();
+
+    /**
+     * The open lists, the deepest first.
+     */
+    private final Deque<OpenList> lists = new ArrayDeque<>();
+
+    private List<String> lines;
+
+    private int lineIndex;
+
+    /**
+     * The kinds of lists.
+     */
+    private enum ListKind
+    {
+        BULLETED,
+        NUMBERED,
+        DEFINITION
+    }
+
+    /**
+     * A list which has been started but not ended yet.
+     */
+    private static final class OpenList
+    {
+        private final ListKind kind;
+
+        private final int indent;
+
+        private boolean itemOpen;
+
+        OpenList(ListKind kind, int indent)
+        {
+            this.kind = kind;
+            this.indent = indent;
+        }
+    }
+
+    /**
+     * A table cell, possibly spanning several lines.
+     */
+    private static final class Cell
+    {
+        private final boolean header;
+
+        private final StringBuilder text;
+
+        Cell(boolean header, String text)
+        {
+            this.header = header;
+            this.text = new StringBuilder(text);
+        }
+    }
+
+    /**
+     * @param listener the listener receiving the generated events
+     * @param idGenerator the generator used to generate unique ids for the header blocks
+     * @param linkReferenceParser the parser used for link references
+     * @param plainRendererFactory used to generate the header ids
+     * @param syntax the syntax of the parsed content
+     */
+    public NativeAPTParser(Listener listener, IdGenerator idGenerator, ResourceReferenceParser linkReferenceParser,
+        PrintRendererFactory plainRendererFactory, Syntax syntax)
+    {
+        this.listener = listener;
+        this.idGenerator = idGenerator;
+        this.linkReferenceParser = linkReferenceParser;
+        this.plainRendererFactory = plainRendererFactory;
+        this.documentMetaData = new MetaData();
+        this.documentMetaData.addMetaData(MetaData.SYNTAX, syntax);
+    }
+
+    /**
+     * @param source the APT source to check
+     * @return {@code false} if the source contains constructs not supported by this parser (macros, figures, verbatim
+     *         blocks and forced line breaks), in which case the Doxia parser must be used
+     */
+    public static boolean supports(String source)
+    {
+        List<String> sourceLines = splitLines(source);
+        for (String line : sourceLines.subList(getHeaderEnd(sourceLines), sourceLines.size())) {
+            int start = skipSpaces(line, 0);
+            if (line.startsWith("[") || line.startsWith(MACRO, start) || line.startsWith(BOXED_VERBATIM, start)
+                || line.startsWith(VERBATIM, start) || line.endsWith("\\")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param source the APT source to parse
+     */
+    public void parse(String source)
+    {
+        this.lines = splitLines(source);
+        this.lineIndex = 0;
+
+        this.listener.beginDocument(this.documentMetaData);
+
+        // Skip the document header (title, author and date), which XWiki doesn't support
+        this.lineIndex = getHeaderEnd(this.lines);
+
+        while (this.lineIndex < this.lines.size()) {
+            String line = this.lines.get(this.lineIndex);
+            int start = skipSpaces(line, 0);
+            if (start == line.length()) {
+                ++this.lineIndex;
+            } else if (line.startsWith(COMMENT, start)) {
+                // Comments are not supported by XWiki but, like through Doxia, they end the lists
+                closeLists(0);
+                ++this.lineIndex;
+            } else {
+                parseBlock(line, start, getIndent(line, start));
+            }
+        }
+
+        closeLists(0);
+        while (!this.sections.isEmpty()) {
+            this.sections.pop();
+            this.listener.endSection(Listener.EMPTY_PARAMETERS);
+        }
+
+        this.listener.endDocument(this.documentMetaData);
+    }
+
+    /**
+     * Parse a block. Like in Doxia, tables, horizontal rules, page breaks and section titles must start on the first
+     * column, while the indented blocks are list items or paragraphs.
+     */
+    private void parseBlock(String line, int start, int indent)
+    {
+        if (indent > 0) {
+            parseIndentedBlock(line, start, indent);
+        } else if (line.startsWith(TABLE)) {
+            parseTable();
+        } else if (line.startsWith(HORIZONTAL_RULE)) {
+            // Like through Doxia, the horizontal rule (and the table) doesn't end the current list item
+            this.listener.onHorizontalLine(Listener.EMPTY_PARAMETERS);
+            ++this.lineIndex;
+        } else if (line.charAt(0) == '\f') {
+            // Page breaks are not supported by XWiki, and the rest of their block is ignored by Doxia
+            readBlockText(line);
+        } else {
+            parseSectionTitle(line);
+        }
+    }
+
+    /**
+     * @return the index of the first line after the document header (title, author and date), if any
+     */
+    private static int getHeaderEnd(List<String> lines)
+    {
+        int index = 0;
+        while (index < lines.size() && isBlank(lines.get(index))) {
+            ++index;
+        }
+
+        if (index < lines.size()) {
+            String line = lines.get(index);
+            int start = skipSpaces(line, 0);
+            if (start > 0 && line.startsWith(VERBATIM, start)) {
+                while (index < lines.size() && !isBlank(lines.get(index))) {
+                    ++index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private void parseSectionTitle(String line)
+    {
+        int level = 1;
+        int start = 0;
+        while (start < line.length() && line.charAt(start) == '*') {
+            level = Math.min(level + 1, MAX_SECTION_LEVEL);
+            ++start;
+        }
+        String text = readBlockText(line.substring(start));
+
+        closeLists(0);
+        while (!this.sections.isEmpty() && this.sections.peek() >= level) {
+            this.sections.pop();
+            this.listener.endSection(Listener.EMPTY_PARAMETERS);
+        }
+        this.sections.push(level);
+        this.listener.beginSection(Listener.EMPTY_PARAMETERS);
+
+        // Buffer the title events until we know the header id, accumulating its plain text at the same time
+        HeaderTextListener title = new HeaderTextListener();
+        parseInline(text, title);
+
+        HeaderLevel headerLevel = HeaderLevel.parseInt(level);
+        String id = this.idGenerator.generateUniqueId("H", title.toPlainText(this.plainRendererFactory));
+
+        this.listener.beginHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
+        title.consumeEvents(this.listener);
+        this.listener.endHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
+    }
+
+    private void parseIndentedBlock(String line, int start, int indent)
+    {
+        if (line.charAt(start) == '*') {
+            String text = readBlockText(line.substring(countRepeated(line, start, '*', Integer.MAX_VALUE) + start));
+            beginListItem(ListKind.BULLETED, indent);
+            parseInline(text, this.listener);
+        } else if (line.startsWith(NUMBERED_ITEM_START, start) && line.indexOf(NUMBERED_ITEM_END, start) != -1) {
+            int markupEnd = line.indexOf(NUMBERED_ITEM_END, start) + NUMBERED_ITEM_END.length();
+            String text = readBlockText(line.substring(markupEnd));
+            beginListItem(ListKind.NUMBERED, indent);
+            parseInline(text, this.listener);
+        } else if (line.startsWith(LIST_BREAK, start)) {
+            if (!this.lists.isEmpty()) {
+                closeList();
+            }
+            ++this.lineIndex;
+        } else if (line.charAt(start) == '[' && line.indexOf(']', start) != -1) {
+            int termEnd = line.indexOf(']', start);
+            String term = line.substring(start + 1, termEnd).trim();
+            String text = readBlockText(line.substring(termEnd + 1));
+            beginListItem(ListKind.DEFINITION, indent);
+            this.listener.beginDefinitionTerm();
+            parseInline(term, this.listener);
+            this.listener.endDefinitionTerm();
+            this.listener.beginDefinitionDescription();
+            parseInline(text, this.listener);
+        } else {
+            String text = readBlockText(line);
+            // The paragraph belongs to the current item of the deepest list which is not more indented
+            closeLists(indent + 1);
+            this.listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+            parseInline(text, this.listener);
+            this.listener.endParagraph(Listener.EMPTY_PARAMETERS);
+        }
+    }
+
+    private void parseTable()
+    {
+        this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+
+        List<Cell> row = null;
+        StringBuilder caption = new StringBuilder();
+        for (++this.lineIndex; this.lineIndex < this.lines.size(); ++this.lineIndex) {
+            String line = this.lines.get(this.lineIndex);
+            int start = skipSpaces(line, 0);
+            if (start == line.length()) {
+                break;
+            } else if (line.charAt(start) == '|') {
+                row = addRowLine(row, line, start);
+            } else if (isTableSeparator(line, start)) {
+                emitRow(row);
+                row = null;
+            } else {
+                // XWiki tables have no caption but, like through Doxia, its text is kept at the end of the table
+                caption.append(caption.length() > 0 ? " " : "").append(line.trim());
+            }
+        }
+        emitRow(row);
+        parseInline(caption.toString(), this.listener);
+
+        this.listener.endTable(Listener.EMPTY_PARAMETERS);
+    }
+
+    private List<Cell> addRowLine(List<Cell> row, String line, int start)
+    {
+        List<Cell> cells = row != null ? row : new ArrayList<>();
+
+        int cellIndex = 0;
+        int i = start;
+        while (i < line.length() && line.charAt(i) == '|') {
+            boolean header = i + 1 < line.length() && line.charAt(i + 1) == '|';
+            int contentStart = i + (header ? 2 : 1);
+            int end = indexOfUnescapedPipe(line, contentStart);
+            if (end == -1) {
+                if (isBlank(line.substring(contentStart))) {
+                    break;
+                }
+                end = line.length();
+            }
+
+            String text = line.substring(contentStart, end).trim();
+            if (row == null || cellIndex >= cells.size()) {
+                cells.add(new Cell(header, text));
+            } else if (!text.isEmpty()) {
+                // The cell continues on the next line of the row
+                Cell cell = cells.get(cellIndex);
+                if (cell.text.length() > 0) {
+                    cell.text.append(' ');
+                }
+                cell.text.append(text);
+            }
+
+            ++cellIndex;
+            i = end;
+        }
+
+        return cells;
+    }
+
+    private void emitRow(List<Cell> row)
+    {
+        if (row == null) {
+            return;
+        }
+
+        this.listener.beginTableRow(Listener.EMPTY_PARAMETERS);
+        for (Cell cell : row) {
+            if (cell.header) {
+                this.listener.beginTableHeadCell(Listener.EMPTY_PARAMETERS);
+                parseInline(cell.text.toString(), this.listener);
+                this.listener.endTableHeadCell(Listener.EMPTY_PARAMETERS);
+            } else {
+                this.listener.beginTableCell(Listener.EMPTY_PARAMETERS);
+                parseInline(cell.text.toString(), this.listener);
+                this.listener.endTableCell(Listener.EMPTY_PARAMETERS);
+            }
+        }
+        this.listener.endTableRow(Listener.EMPTY_PARAMETERS);
+    }
+
+    private void beginListItem(ListKind kind, int indent)
+    {
+        // Close the lists deeper than the new item
+        while (!this.lists.isEmpty() && this.lists.peek().indent > indent) {
+            closeList();
+        }
+
+        OpenList list = this.lists.peek();
+        if (list == null || list.indent < indent || list.kind != kind) {
+            // New list, nested in the current item of the parent list if any (like Doxia, an item of a different kind
+            // starts a nested list even when it's not more indented)
+            list = new OpenList(kind, indent);
+            this.lists.push(list);
+            beginList(kind);
+        } else {
+            endListItem(list);
+        }
+
+        if (kind != ListKind.DEFINITION) {
+            this.listener.beginListItem();
+        }
+        list.itemOpen = true;
+    }
+
+    private void beginList(ListKind kind)
+    {
+        switch (kind) {
+            case BULLETED:
+                this.listener.beginList(ListType.BULLETED, Listener.EMPTY_PARAMETERS);
+                break;
+            case NUMBERED:
+                this.listener.beginList(ListType.NUMBERED, Listener.EMPTY_PARAMETERS);
+                break;
+            default:
+                this.listener.beginDefinitionList(Listener.EMPTY_PARAMETERS);
+                break;
+        }
+    }
+
+    private void endListItem(OpenList list)
+    {
+        if (list.itemOpen) {
+            if (list.kind == ListKind.DEFINITION) {
+                this.listener.endDefinitionDescription();
+            } else {
+                this.listener.endListItem();
+            }
+            list.itemOpen = false;
+        }
+    }
+
+    private void closeList()
+    {
+        OpenList list = this.lists.pop();
+
+        endListItem(list);
+
+        switch (list.kind) {
+            case BULLETED:
+                this.listener.endList(ListType.BULLETED, Listener.EMPTY_PARAMETERS);
+                break;
+            case NUMBERED:
+                this.listener.endList(ListType.NUMBERED, Listener.EMPTY_PARAMETERS);
+                break;
+            default:
+                this.listener.endDefinitionList(Listener.EMPTY_PARAMETERS);
+                break;
+        }
+    }
+
+    /**
+     * Close the lists whose items are not less indented than the passed indentation.
+     */
+    private void closeLists(int indent)
+    {
+        while (!this.lists.isEmpty() && this.lists.peek().indent >= indent) {
+            closeList();
+        }
+    }
+
+    /**
+     * Read the text of a block, which ends with a blank line or a comment line (like in Doxia, the other lines don't
+     * start a new block).
+     *
+     * @param firstLine the text of the block on its first line (without the block markup)
+     * @return the trimmed lines of the block, separated by spaces
+     */
+    private String readBlockText(String firstLine)
+    {
+        StringBuilder text = new StringBuilder(firstLine.trim());
+        for (++this.lineIndex; this.lineIndex < this.lines.size(); ++this.lineIndex) {
+            String line = this.lines.get(this.lineIndex);
+            int start = skipSpaces(line, 0);
+            if (start == line.length() || line.startsWith(COMMENT, start)) {
+                break;
+            }
+            String lineText = line.substring(start).trim();
+            if (!lineText.isEmpty()) {
+                text.append(' ').append(lineText);
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Parse the inline markup of some text (formatting, links, anchors and escaped characters).
+     */
+    private void parseInline(String text, Listener target)
+    {
+        StringBuilder buffer = new StringBuilder();
+        Deque<Integer> formats = new ArrayDeque<>();
+
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i = parseEscape(text, i, buffer, target);
+            } else if (c == '<') {
+                int markupLength = countRepeated(text, i, c, FORMATS.length);
+                flushText(buffer, target);
+                formats.push(markupLength);
+                target.beginFormat(FORMATS[markupLength - 1], Listener.EMPTY_PARAMETERS);
+                i += markupLength;
+            } else if (c == '>' && !formats.isEmpty()) {
+                int count = countRepeated(text, i, c, Integer.MAX_VALUE);
+                flushText(buffer, target);
+                int remaining = count;
+                while (!formats.isEmpty() && remaining >= formats.peek()) {
+                    int markupLength = formats.pop();
+                    target.endFormat(FORMATS[markupLength - 1], Listener.EMPTY_PARAMETERS);
+                    remaining -= markupLength;
+                }
+                for (int j = 0; j < remaining; ++j) {
+                    buffer.append(c);
+                }
+                i += count;
+            } else if (c == '{') {
+                i = parseLinkOrAnchor(text, i, buffer, target);
+            } else if (c == ' ' || c == '\t') {
+                // Consecutive white spaces produce a single space event, like through Doxia
+                buffer.append(' ');
+                i = skipSpaces(text, i);
+            } else {
+                buffer.append(c);
+                ++i;
+            }
+        }
+
+        flushText(buffer, target);
+        while (!formats.isEmpty()) {
+            target.endFormat(FORMATS[formats.pop() - 1], Listener.EMPTY_PARAMETERS);
+        }
+    }
+
+    private int parseEscape(String text, int i, StringBuilder buffer, Listener target)
+    {
+        if (i + 1 == text.length()) {
+            buffer.append('\\');
+            return i + 1;
+        }
+
+        char c = text.charAt(i + 1);
+        if (c == ' ') {
+            // Non breaking space
+            flushText(buffer, target);
+            target.onSpace();
+            return i + 2;
+        } else if (c == 'x' && isHexadecimal(text, i + 2, 2)) {
+            buffer.append((char) Integer.parseInt(text.substring(i + 2, i + 4), 16));
+            return i + 4;
+        } else if (c == 'u' && isHexadecimal(text, i + 2, 4)) {
+            buffer.append((char) Integer.parseInt(text.substring(i + 2, i + 6), 16));
+            return i + 6;
+        } else if (ESCAPABLE.indexOf(c) != -1) {
+            buffer.append(c);
+            return i + 2;
+        } else if (isOctal(text, i + 1)) {
+            // Up to 3 octal digits
+            int end = i + 2;
+            while (end < i + 4 && isOctal(text, end)) {
+                ++end;
+            }
+            buffer.append((char) Integer.parseInt(text.substring(i + 1, end), 8));
+            return end;
+        }
+
+        buffer.append('\\');
+        return i + 1;
+    }
+
+    /**
+     * Parse {@code {{{target}label}}} links, {@code {{anchor}}} links and {@code {anchor}} anchors, or the opening
+     * brace as text if it doesn't start any of them.
+     */
+    private int parseLinkOrAnchor(String text, int i, StringBuilder buffer, Listener target)
+    {
+        if (text.startsWith(LINK_START, i)) {
+            int targetEnd = text.indexOf('}', i + LINK_START.length());
+            int end = targetEnd != -1 ? text.indexOf(LINK_END, targetEnd + 1) : -1;
+            if (end != -1) {
+                flushText(buffer, target);
+                emitLink(toLink(text.substring(i + LINK_START.length(), targetEnd)),
+                    text.substring(targetEnd + 1, end), target);
+                return end + LINK_END.length();
+            }
+        } else if (text.startsWith(ANCHOR_LINK_START, i)) {
+            int end = text.indexOf(LINK_END, i + ANCHOR_LINK_START.length());
+            if (end != -1) {
+                flushText(buffer, target);
+                String label = text.substring(i + ANCHOR_LINK_START.length(), end);
+                String link = DoxiaUtils.isExternalLink(label) ? label : '#' + toId(label);
+                emitLink(link, label, target);
+                return end + LINK_END.length();
+            }
+        } else {
+            int end = text.indexOf('}', i + 1);
+            if (end != -1) {
+                flushText(buffer, target);
+                String name = text.substring(i + 1, end);
+                target.onId(toId(name));
+                this.textTokenizer.tokenize(name, target);
+                return end + 1;
+            }
+        }
+
+        buffer.append(text.charAt(i));
+        return i + 1;
+    }
+
+    private void emitLink(String link, String label, Listener target)
+    {
+        ResourceReference reference = this.linkReferenceParser.parse(link);
+        target.beginLink(reference, false, Listener.EMPTY_PARAMETERS);
+        parseInline(label, target);
+        target.endLink(reference, false, Listener.EMPTY_PARAMETERS);
+    }
+
+    /**
+     * Normalize a link target the way the Doxia {@code AptParser} does: internal links are anchors, and invalid anchor
+     * ids are encoded.
+     */
+    private String toLink(String link)
+    {
+        String result = AptUtils.isInternalLink(link) ? '#' + link : link;
+
+        int anchorStart = result.indexOf('#');
+        if (anchorStart != -1 && !DoxiaUtils.isExternalLink(result)) {
+            String anchor = result.substring(anchorStart + 1);
+            if (anchor.startsWith("#")) {
+                result = result.substring(0, anchorStart) + anchor;
+            } else if (!DoxiaUtils.isValidId(anchor)) {
+                result = result.substring(0, anchorStart) + '#' + DoxiaUtils.encodeId(anchor, true);
+            }
+        }
+
+        return result;
+    }
+
+    private String toId(String name)
+    {
+        return DoxiaUtils.isValidId(name) ? name : DoxiaUtils.encodeId(name, true);
+    }
+
+    private void flushText(StringBuilder buffer, Listener target)
+    {
+        if (buffer.length() > 0) {
+            this.textTokenizer.tokenize(buffer, target);
+            buffer.setLength(0);
+        }
+    }
+
+    private static boolean isTableSeparator(String line, int start)
+    {
+        char c = line.charAt(start);
+        return (c == '*' || c == '+') && start + 1 < line.length() && line.charAt(start + 1) == '-';
+    }
+
+    private static boolean isHexadecimal(String text, int start, int length)
+    {
+        if (start + length > text.length()) {
+            return false;
+        }
+        for (int i = start; i < start + length; ++i) {
+            if (Character.digit(text.charAt(i), 16) == -1) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isOctal(String text, int index)
+    {
+        return index < text.length() && text.charAt(index) >= '0' && text.charAt(index) <= '7';
+    }
+
+    private static int countRepeated(String text, int start, char c, int max)
+    {
+        int count = 0;
+        while (count < max && start + count < text.length() && text.charAt(start + count) == c) {
+            ++count;
+        }
+
+        return count;
+    }
+
+    private static int indexOfUnescapedPipe(String line, int start)
+    {
+        for (int i = start; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                ++i;
+            } else if (c == '|') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int skipSpaces(String line, int start)
+    {
+        int i = start;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            ++i;
+        }
+
+        return i;
+    }
+
+    /**
+     * @return the indentation of a line, tabs being expanded to the next multiple of 8 columns like Doxia does
+     */
+    private static int getIndent(String line, int start)
+    {
+        int indent = 0;
+        for (int i = 0; i < start; ++i) {
+            indent = line.charAt(i) == '\t' ? (indent / TAB_SIZE + 1) * TAB_SIZE : indent + 1;
+        }
+
+        return indent;
+    }
+
+    private static boolean isBlank(String line)
+    {
+        return skipSpaces(line, 0) == line.length();
+    }
+
+    private static List<String> splitLines(String source)
+    {
+        List<String> lines = new ArrayList<>();
+
+        int start = 0;
+        for (int i = 0; i < source.length(); ++i) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(source.substring(start, i));
+                if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+                    ++i;
+                }
+                start = i + 1;
+            }
+        }
+        lines.add(source.substring(start));
+
+        return lines;
+    }
+}
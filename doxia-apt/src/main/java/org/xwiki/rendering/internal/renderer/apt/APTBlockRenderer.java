@@ -24,7 +24,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.renderer.AbstractBlockRenderer;
+import org.xwiki.rendering.internal.renderer.doxia.AbstractDoxiaBlockRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 
 /**
@@ -36,7 +36,7 @@ import org.xwiki.rendering.renderer.PrintRendererFactory;
 @Component
 @Named("apt/1.0")
 @Singleton
-public class APTBlockRenderer extends AbstractBlockRenderer
+public class APTBlockRenderer extends AbstractDoxiaBlockRenderer
 {
     /**
      * Create APT Renderer instances.
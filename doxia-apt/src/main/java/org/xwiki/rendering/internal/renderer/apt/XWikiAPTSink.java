@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.internal.renderer.apt;
 
+import java.io.Writer;
+
 import org.apache.maven.doxia.module.apt.AptSink;
 import org.xwiki.rendering.internal.renderer.doxia.DoxiaPrinterAdapter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
@@ -31,11 +33,56 @@ import org.xwiki.rendering.renderer.printer.WikiPrinter;
  */
 public class XWikiAPTSink extends AptSink
 {
+    /**
+     * The writer used by the sink, which can be bound to a different target.
+     */
+    private final DoxiaPrinterAdapter adapter;
+
     /**
      * @param printer the wiki printer to which to print to
      */
     public XWikiAPTSink(WikiPrinter printer)
     {
-        super(new DoxiaPrinterAdapter(printer));
+        this(new DoxiaPrinterAdapter(printer));
+    }
+
+    /**
+     * @param writer the writer to write to
+     * @since 16.9.0
+     */
+    public XWikiAPTSink(Writer writer)
+    {
+        this(new DoxiaPrinterAdapter(writer));
+    }
+
+    private XWikiAPTSink(DoxiaPrinterAdapter adapter)
+    {
+        super(adapter);
+
+        this.adapter = adapter;
+    }
+
+    /**
+     * Reset the state of the sink and print to the passed printer, to reuse the sink for a new rendering.
+     *
+     * @param printer the wiki printer to print to
+     * @since 16.9.0
+     */
+    public void reset(WikiPrinter printer)
+    {
+        init();
+        this.adapter.setPrinter(printer);
+    }
+
+    /**
+     * Reset the state of the sink and write to the passed writer, to reuse the sink for a new rendering.
+     *
+     * @param writer the writer to write to
+     * @since 16.9.0
+     */
+    public void reset(Writer writer)
+    {
+        init();
+        this.adapter.setWriter(writer);
     }
 }
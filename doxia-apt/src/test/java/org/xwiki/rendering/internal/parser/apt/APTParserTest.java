@@ -0,0 +1,237 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.apt;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.apt.APT10SyntaxProvider;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.parser.doxia.DoxiaIncrementalContext;
+import org.xwiki.rendering.internal.parser.doxia.LazySectionBlock;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link APTParser}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class APTParserTest
+{
+    private static final String SOURCE = "Title\n\n Paragraph %s.\n\nTitle\n\n Other paragraph.\n\n"
+        + "Last title\n\n+--\nNot a\n\ntitle\n+--\n";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @Test
+    void parseIncrementally() throws Exception
+    {
+        APTParser parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+        DoxiaIncrementalContext context = new DoxiaIncrementalContext();
+
+        String source = String.format(SOURCE, "one");
+        assertParsedLikeFullParse(parser, source, parser.parse(new StringReader(source), new IdGenerator(), context));
+        assertEquals(0, context.getReusedSectionCount());
+        assertEquals(3, context.getParsedSectionCount());
+
+        source = String.format(SOURCE, "two");
+        XDOM xdom = parser.parse(new StringReader(source), new IdGenerator(), context);
+        assertParsedLikeFullParse(parser, source, xdom);
+        assertEquals(2, context.getReusedSectionCount());
+        assertEquals(1, context.getParsedSectionCount());
+
+        List<HeaderBlock> headers = xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        assertEquals("HTitle", headers.get(0).getId());
+        assertEquals("HTitle-1", headers.get(1).getId());
+    }
+
+    @Test
+    void parseInParallel() throws Exception
+    {
+        APTParser parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 50; ++i) {
+            source.append(String.format(SOURCE, i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            XDOM xdom = parser.parse(new StringReader(source.toString()), new IdGenerator(), executor);
+            assertParsedLikeFullParse(parser, source.toString(), xdom);
+
+            List<HeaderBlock> headers = xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+            assertEquals(150, headers.size());
+            assertEquals("HTitle-99", headers.get(148).getId());
+            assertEquals("HLasttitle-49", headers.get(149).getId());
+        } finally {
+            executor.shutdown();
+        }
+
+        DefaultDoxiaConfiguration configuration = this.componentManager.getInstance(DoxiaConfiguration.class);
+        configuration.setParallelParsingThreshold(1);
+        XDOM xdom = parser.parse(new StringReader(source.toString()));
+        configuration.setParallelParsingThreshold(0);
+        assertParsedLikeFullParse(parser, source.toString(), xdom);
+    }
+
+    @Test
+    void parseLazily() throws Exception
+    {
+        APTParser parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+
+        String source = String.format(SOURCE, "one");
+        XDOM xdom = parser.parseLazily(new StringReader(source), new IdGenerator());
+
+        assertEquals(3, xdom.getChildren().size());
+        LazySectionBlock second = (LazySectionBlock) xdom.getChildren().get(1);
+        LazySectionBlock third = (LazySectionBlock) xdom.getChildren().get(2);
+        assertFalse(second.isParsed());
+        assertEquals("Title\n\n Other paragraph.\n\n", second.getSource());
+
+        // The outline is available without parsing the sections
+        assertEquals(HeaderLevel.LEVEL1, second.getHeaderLevel());
+        assertEquals("Title", second.getTitle());
+        assertEquals("Last title", third.getTitle());
+        assertFalse(second.isParsed());
+        assertFalse(third.isParsed());
+
+        // Accessing a section parses the sections before it
+        HeaderBlock header = (HeaderBlock) third.getChildren().get(0);
+        assertTrue(second.isParsed());
+        assertNull(second.getSource());
+        assertEquals("HLasttitle", header.getId());
+        assertEquals("HTitle-1", ((HeaderBlock) second.getChildren().get(0)).getId());
+
+        assertParsedLikeFullParse(parser, source, xdom);
+        assertParsedLikeFullParse(parser, source, parser.parseLazily(new StringReader(source), new IdGenerator()));
+    }
+
+    @Test
+    void getSectionTitle()
+    {
+        assertEquals("Title <<on>> two lines", APTSectionSplitter.getTitle("Title <<on>>\r\n  two lines \n\n Text"));
+    }
+
+    @Test
+    void splitSectionsWithForcedLineBreak()
+    {
+        assertNull(APTSectionSplitter.split("Title\n\n Line\\\n break\n"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        " This is <<bold>>",
+        " This is << bold >>",
+        " This is <italic>",
+        " This is <<<monospace>>>",
+        " paragraph1\n\n paragraph2\n\n paragraph3",
+        " * Item 1\n\n  * Item 2\n\n   * Item 3\n\n    * Item 4\n\n     * Item 5\n\n    * Item 6\n\n"
+            + "   * Item 7\n\n  * Item 8\n\n * Item 9",
+        "*--------*--------*\n|| col1  || col2  |\n*--------*--------*\n| cell11 | cell12 |\n*--------*--------*",
+        "Title\n\n Paragraph.\n\n* Sub title\n\n Other paragraph.\n\nTitle\n\n Last paragraph.",
+        " Links: {{{http://xwiki.org}XWiki}}, {{{http://xwiki.org}}}, {{{Page}}}, {{{#anchor}local}},"
+            + " {{{./local.html}local}}, {{{Page#Some anchor}}}, {{{Page##anchor}}}.",
+        " Anchors: {{anchor}}, {Some anchor} and {{{{nested}}}}",
+        " Escapes: \\x41 \\u0041 \\065 \\7 \\1234 \\8 \\~ \\= \\{ \\} \\\\ \\q \\xZ1 \\u12G4 and\\ space.",
+        " [[1]] One\n\n [[2]] Two\n\n  [[a]] Two A\n\n  [[b]] Two B\n\n [[3]] Three\n\n []\n\n [[i]] Roman",
+        " [[A]] Upper\n\n [[I]] Roman upper\n\n * Bullet after numbered",
+        " [Term] Definition\n\n [Other term] Other definition\n\n  [Nested] Nested definition\n\n []",
+        " * Bullet\n\n [Term] Definition\n\n [[1]] Numbered\n\n * Bullet again",
+        " -----\n Document title\n -----\n Author\n -----\n\nTitle\non two lines\n\n First  line\n\tsecond line",
+        // Only blank and comment lines end a block
+        " * Item\n   continued\n * Same item\n [[1]] Same item\n [Term] Same item\n ===\n *--",
+        " Para\n~~ Comment\n\f\n Swallowed by the page break\n\n * Item\n\n  * Nested\n~~ Comment\n  * Other list",
+        // Paragraphs, tables and horizontal rules stay in the current list item
+        " * A\n\n  * B\n\n Para in A\n\n===\n\n*--+\n| x |\n*--+\n\n * C\n\n []\n\n Para",
+        " [Term] Definition\n\n  Para in the definition\n\n *Bullet\n\n ** Bullet\n\nTitle\n\n * Item",
+        "*--+--+\n|| Multi || Line |\n||  head || |\n*--+--+\n| cell | one |\n| |two |\n*--+--+\n"
+            + "Table <<caption>>\n on two lines",
+        // Parsed with Doxia
+        "+--\nline 1\n  line 2\n+--",
+        " Forced\\\n line break"
+    })
+    void parseWithNativeEngine(String source) throws Exception
+    {
+        APTParser parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+        String expected = render(parser.parse(new StringReader(source)));
+
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        assertEquals(expected, render(parser.parse(new StringReader(source))));
+    }
+
+    @Test
+    void supportedByNativeEngine()
+    {
+        assertTrue(NativeAPTParser.supports("Title\n\n Paragraph with {{{http://xwiki.org}a link}}."));
+        assertFalse(NativeAPTParser.supports(" %{toc}"));
+        assertFalse(NativeAPTParser.supports("[image.png] Caption"));
+        assertFalse(NativeAPTParser.supports(" Paragraph\n\n  +--\n  verbatim\n  +--"));
+        assertFalse(NativeAPTParser.supports(" Forced\\\n line break"));
+        assertTrue(NativeAPTParser.supports(" Escaped \\065 octal"));
+    }
+
+    private void setParserEngine(String engine) throws Exception
+    {
+        DefaultDoxiaConfiguration configuration = this.componentManager.getInstance(DoxiaConfiguration.class);
+        configuration.setParserEngine(APT10SyntaxProvider.APT_1_0, engine);
+    }
+
+    private void assertParsedLikeFullParse(Parser parser, String source, XDOM xdom) throws Exception
+    {
+        assertEquals(render(parser.parse(new StringReader(source))), render(xdom));
+    }
+
+    private String render(XDOM xdom) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, "event/1.0").render(xdom, printer);
+
+        return printer.toString();
+    }
+}
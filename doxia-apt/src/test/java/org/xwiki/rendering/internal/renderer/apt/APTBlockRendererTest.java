@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.apt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.SpecialSymbolBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.apt.APT10SyntaxProvider;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaMetrics;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.internal.renderer.doxia.CachingBlockRenderer;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link APTBlockRenderer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class APTBlockRendererTest
+{
+    private static final String SOURCE = "Title\n\n Paragraph with <<bold>> and caf\u00e9.\n\n"
+        + "*--------*--------*\n|| col1  || col2  |\n*--------*--------*\n| cell11 | cell12 |\n*--------*--------*\n";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @Test
+    void renderToWriterAndStream() throws Exception
+    {
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0").parse(new StringReader(SOURCE));
+        APTBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "apt/1.0");
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        StringWriter writer = new StringWriter();
+        renderer.render(xdom, writer);
+        assertEquals(printer.toString(), writer.toString());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        renderer.render(xdom, stream, StandardCharsets.UTF_8);
+        assertEquals(printer.toString(), stream.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    void reuseRenderers() throws Exception
+    {
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0").parse(new StringReader(SOURCE));
+        APTBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "apt/1.0");
+
+        DefaultWikiPrinter firstPrinter = new DefaultWikiPrinter();
+        renderer.render(xdom, firstPrinter);
+
+        // The second rendering must not be affected by the state left by the first one
+        DefaultWikiPrinter secondPrinter = new DefaultWikiPrinter();
+        renderer.render(xdom, secondPrinter);
+        StringWriter writer = new StringWriter();
+        renderer.render(xdom, writer);
+
+        assertEquals(firstPrinter.toString(), secondPrinter.toString());
+        assertEquals(firstPrinter.toString(), writer.toString());
+        assertEquals(1, renderer.getRendererPool().getCreatedCount());
+        assertEquals(3, renderer.getRendererPool().getReleasedCount());
+    }
+
+    @Test
+    void renderInParallel() throws Exception
+    {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 20; ++i) {
+            source.append("Section ").append(i).append("\n\n Paragraph ").append(i).append(".\n\n");
+            source.append("* Subsection ").append(i).append("\n\n Content with <<bold>>.\n\n");
+        }
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0")
+            .parse(new StringReader(source.toString()));
+        APTBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "apt/1.0");
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        DefaultWikiPrinter parallelPrinter = new DefaultWikiPrinter();
+        renderer.render(xdom, parallelPrinter, ForkJoinPool.commonPool());
+
+        assertEquals(printer.toString(), parallelPrinter.toString());
+    }
+
+    @Test
+    void cacheDistinctDocuments() throws Exception
+    {
+        Parser parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+        XDOM xdom = parser.parse(new StringReader(SOURCE));
+        XDOM otherXDOM = parser.parse(new StringReader("Other title\n\n Other paragraph.\n"));
+        APTBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "apt/1.0");
+        CachingBlockRenderer cachingRenderer = new CachingBlockRenderer(renderer, 1024 * 1024);
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+        DefaultWikiPrinter otherPrinter = new DefaultWikiPrinter();
+        renderer.render(otherXDOM, otherPrinter);
+
+        DefaultWikiPrinter cachedPrinter = new DefaultWikiPrinter();
+        cachingRenderer.render(xdom, cachedPrinter);
+        DefaultWikiPrinter otherCachedPrinter = new DefaultWikiPrinter();
+        cachingRenderer.render(otherXDOM, otherCachedPrinter);
+
+        // Different documents must never share a cached output
+        assertEquals(printer.toString(), cachedPrinter.toString());
+        assertEquals(otherPrinter.toString(), otherCachedPrinter.toString());
+        assertEquals(0, cachingRenderer.getHitCount());
+        assertEquals(2, cachingRenderer.getMissCount());
+
+        DefaultWikiPrinter reusedPrinter = new DefaultWikiPrinter();
+        cachingRenderer.render(parser.parse(new StringReader(SOURCE)), reusedPrinter);
+
+        assertEquals(printer.toString(), reusedPrinter.toString());
+        assertEquals(1, cachingRenderer.getHitCount());
+    }
+
+    @Test
+    void renderInlineBlocksWithPrintRenderer() throws Exception
+    {
+        PrintRendererFactory factory = this.componentManager.getInstance(PrintRendererFactory.class, "apt/1.0");
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        PrintRenderer renderer = factory.createRenderer(printer);
+
+        // Text which isn't in a block must not be held back since nothing tells the renderer that the rendering ended
+        for (Block block : List.of(new WordBlock("Hello"), new SpecialSymbolBlock(','), new WordBlock("world"))) {
+            block.traverse(renderer);
+        }
+
+        assertEquals("Hello,world", printer.toString());
+    }
+
+    @Test
+    void publishPoolMetrics() throws Exception
+    {
+        DefaultDoxiaConfiguration configuration = this.componentManager.getInstance(DoxiaConfiguration.class);
+        configuration.setInstrumentationEnabled(true);
+        // Only the Doxia parser engine uses the parser pool
+        configuration.setParserEngine(APT10SyntaxProvider.APT_1_0, DoxiaConfiguration.DOXIA_ENGINE);
+
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0").parse(new StringReader(SOURCE));
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, "apt/1.0").render(xdom,
+            new DefaultWikiPrinter());
+
+        Map<String, Long> counts =
+            this.componentManager.<DefaultDoxiaMetrics>getInstance(DoxiaMetrics.class).getPoolCounts();
+        assertEquals(1L, counts.get("parser(apt/1.0).borrowed"));
+        assertEquals(1L, counts.get("renderer(apt/1.0, doxia).borrowed"));
+        assertTrue(counts.containsKey("renderer(apt/1.0, doxia).dropped"));
+    }
+}
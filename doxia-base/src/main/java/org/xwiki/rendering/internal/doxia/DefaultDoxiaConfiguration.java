@@ -0,0 +1,274 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Basic default implementation of {@link DoxiaConfiguration} holding the values in memory. Applications can either
+ * call the setters or register their own implementation with a higher priority.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Component
+@Singleton
+public class DefaultDoxiaConfiguration implements DoxiaConfiguration
+{
+    /**
+     * The system property holding the engine used for the syntaxes whose parser engine isn't set explicitly (e.g. to
+     * run the compatibility tests with the native engine), {@link #DOXIA_ENGINE} when not set.
+     */
+    public static final String PARSER_ENGINE_PROPERTY = "xwiki.rendering.doxia.parserEngine";
+
+    /**
+     * The system property holding the engine used for the syntaxes whose renderer engine isn't set explicitly (e.g. to
+     * run the compatibility tests with the native engine), {@link #DOXIA_ENGINE} when not set.
+     */
+    public static final String RENDERER_ENGINE_PROPERTY = "xwiki.rendering.doxia.rendererEngine";
+
+    /**
+     * Default maximum number of idle pooled Doxia parsers.
+     */
+    private static final int DEFAULT_PARSER_POOL_SIZE = 16;
+
+    /**
+     * Default time after which an idle pooled Doxia parser is evicted (1 minute).
+     */
+    private static final long DEFAULT_PARSER_POOL_MAX_IDLE_TIME = 60000L;
+
+    /**
+     * Default maximum number of idle pooled renderers.
+     */
+    private static final int DEFAULT_RENDERER_POOL_SIZE = 16;
+
+    /**
+     * Default maximum number of cached link references.
+     */
+    private static final int DEFAULT_LINK_REFERENCE_CACHE_SIZE = 1000;
+
+    /**
+     * @see #getXDOMCacheSize()
+     */
+    private long xdomCacheSize;
+
+    /**
+     * @see #getParserPoolSize()
+     */
+    private int parserPoolSize = DEFAULT_PARSER_POOL_SIZE;
+
+    /**
+     * @see #getParserPoolMaxIdleTime()
+     */
+    private long parserPoolMaxIdleTime = DEFAULT_PARSER_POOL_MAX_IDLE_TIME;
+
+    /**
+     * @see #getRendererPoolSize()
+     */
+    private int rendererPoolSize = DEFAULT_RENDERER_POOL_SIZE;
+
+    /**
+     * @see #getLinkReferenceCacheSize()
+     */
+    private int linkReferenceCacheSize = DEFAULT_LINK_REFERENCE_CACHE_SIZE;
+
+    /**
+     * @see #getParallelParsingThreshold()
+     */
+    private long parallelParsingThreshold;
+
+    /**
+     * @see #getParallelRenderingThreshold()
+     */
+    private int parallelRenderingThreshold;
+
+    /**
+     * @see #isInstrumentationEnabled()
+     */
+    private boolean instrumentationEnabled;
+
+    /**
+     * @see #getParserEngine(Syntax)
+     */
+    private final Map<Syntax, String> parserEngines = new ConcurrentHashMap<>();
+
+    /**
+     * @see #PARSER_ENGINE_PROPERTY
+     */
+    private final String defaultParserEngine = System.getProperty(PARSER_ENGINE_PROPERTY, DOXIA_ENGINE);
+
+    /**
+     * @see #getRendererEngine(Syntax)
+     */
+    private final Map<Syntax, String> rendererEngines = new ConcurrentHashMap<>();
+
+    /**
+     * @see #RENDERER_ENGINE_PROPERTY
+     */
+    private final String defaultRendererEngine = System.getProperty(RENDERER_ENGINE_PROPERTY, DOXIA_ENGINE);
+
+    @Override
+    public int getParserPoolSize()
+    {
+        return this.parserPoolSize;
+    }
+
+    /**
+     * @param parserPoolSize see {@link #getParserPoolSize()}
+     */
+    public void setParserPoolSize(int parserPoolSize)
+    {
+        this.parserPoolSize = parserPoolSize;
+    }
+
+    @Override
+    public long getParserPoolMaxIdleTime()
+    {
+        return this.parserPoolMaxIdleTime;
+    }
+
+    /**
+     * @param parserPoolMaxIdleTime see {@link #getParserPoolMaxIdleTime()}
+     */
+    public void setParserPoolMaxIdleTime(long parserPoolMaxIdleTime)
+    {
+        this.parserPoolMaxIdleTime = parserPoolMaxIdleTime;
+    }
+
+    @Override
+    public int getRendererPoolSize()
+    {
+        return this.rendererPoolSize;
+    }
+
+    /**
+     * @param rendererPoolSize see {@link #getRendererPoolSize()}
+     */
+    public void setRendererPoolSize(int rendererPoolSize)
+    {
+        this.rendererPoolSize = rendererPoolSize;
+    }
+
+    @Override
+    public long getXDOMCacheSize()
+    {
+        return this.xdomCacheSize;
+    }
+
+    /**
+     * @param xdomCacheSize see {@link #getXDOMCacheSize()}
+     */
+    public void setXDOMCacheSize(long xdomCacheSize)
+    {
+        this.xdomCacheSize = xdomCacheSize;
+    }
+
+    @Override
+    public int getLinkReferenceCacheSize()
+    {
+        return this.linkReferenceCacheSize;
+    }
+
+    /**
+     * @param linkReferenceCacheSize see {@link #getLinkReferenceCacheSize()}
+     */
+    public void setLinkReferenceCacheSize(int linkReferenceCacheSize)
+    {
+        this.linkReferenceCacheSize = linkReferenceCacheSize;
+    }
+
+    @Override
+    public long getParallelParsingThreshold()
+    {
+        return this.parallelParsingThreshold;
+    }
+
+    /**
+     * @param parallelParsingThreshold see {@link #getParallelParsingThreshold()}
+     */
+    public void setParallelParsingThreshold(long parallelParsingThreshold)
+    {
+        this.parallelParsingThreshold = parallelParsingThreshold;
+    }
+
+    @Override
+    public int getParallelRenderingThreshold()
+    {
+        return this.parallelRenderingThreshold;
+    }
+
+    /**
+     * @param parallelRenderingThreshold see {@link #getParallelRenderingThreshold()}
+     */
+    public void setParallelRenderingThreshold(int parallelRenderingThreshold)
+    {
+        this.parallelRenderingThreshold = parallelRenderingThreshold;
+    }
+
+    @Override
+    public boolean isInstrumentationEnabled()
+    {
+        return this.instrumentationEnabled;
+    }
+
+    /**
+     * @param instrumentationEnabled see {@link #isInstrumentationEnabled()}
+     */
+    public void setInstrumentationEnabled(boolean instrumentationEnabled)
+    {
+        this.instrumentationEnabled = instrumentationEnabled;
+    }
+
+    @Override
+    public String getParserEngine(Syntax syntax)
+    {
+        return this.parserEngines.getOrDefault(syntax, this.defaultParserEngine);
+    }
+
+    /**
+     * @param syntax the syntax of the content to parse
+     * @param parserEngine see {@link #getParserEngine(Syntax)}
+     */
+    public void setParserEngine(Syntax syntax, String parserEngine)
+    {
+        this.parserEngines.put(syntax, parserEngine);
+    }
+
+    @Override
+    public String getRendererEngine(Syntax syntax)
+    {
+        return this.rendererEngines.getOrDefault(syntax, this.defaultRendererEngine);
+    }
+
+    /**
+     * @param syntax the syntax of the content to render
+     * @param rendererEngine see {@link #getRendererEngine(Syntax)}
+     */
+    public void setRendererEngine(Syntax syntax, String rendererEngine)
+    {
+        this.rendererEngines.put(syntax, rendererEngine);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+
+/**
+ * Default implementation of {@link DoxiaMetrics} keeping the metrics in memory and exposing them as a JMX MBean
+ * named {@value #OBJECT_NAME}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Component
+@Singleton
+public class DefaultDoxiaMetrics implements DoxiaMetrics, DoxiaMetricsMXBean, Initializable, Disposable
+{
+    /**
+     * The name of the MBean.
+     */
+    public static final String OBJECT_NAME = "org.xwiki.rendering.doxia:type=Metrics";
+
+    private final ConcurrentMap<String, LongAdder> eventCounts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> operationCounts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> operationTimes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DoxiaObjectPool<?>> pools = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            this.objectName = new ObjectName(OBJECT_NAME);
+
+            // Replace the MBean registered by another component manager (e.g. in tests)
+            if (server.isRegistered(this.objectName)) {
+                server.unregisterMBean(this.objectName);
+            }
+            server.registerMBean(this, this.objectName);
+        } catch (JMException e) {
+            throw new InitializationException("Failed to register the Doxia metrics MBean", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException e) {
+            throw new ComponentLifecycleException("Failed to unregister the Doxia metrics MBean", e);
+        }
+    }
+
+    @Override
+    public void incrementEventCount(String event)
+    {
+        this.eventCounts.computeIfAbsent(event, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void addDuration(String operation, long duration)
+    {
+        this.operationCounts.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        this.operationTimes.computeIfAbsent(operation, key -> new LongAdder()).add(duration);
+    }
+
+    @Override
+    public void registerPool(String name, DoxiaObjectPool<?> pool)
+    {
+        // Avoid a write on the map when the pool is already registered, which is the most common case
+        if (this.pools.get(name) != pool) {
+            this.pools.put(name, pool);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts()
+    {
+        return snapshot(this.eventCounts);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts()
+    {
+        return snapshot(this.operationCounts);
+    }
+
+    @Override
+    public Map<String, Long> getOperationTimes()
+    {
+        Map<String, Long> times = snapshot(this.operationTimes);
+        times.replaceAll((operation, time) -> TimeUnit.NANOSECONDS.toMillis(time));
+
+        return times;
+    }
+
+    @Override
+    public double getLinkReferenceCacheHitRatio()
+    {
+        long hits = sum(this.eventCounts.get(LINK_REFERENCE_CACHE_HIT));
+        long lookups = hits + sum(this.eventCounts.get(LINK_REFERENCE_CACHE_MISS));
+
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public Map<String, Long> getPoolCounts()
+    {
+        Map<String, Long> counts = new TreeMap<>();
+        this.pools.forEach((name, pool) -> {
+            counts.put(name + ".idle", (long) pool.getIdleCount());
+            counts.put(name + ".created", pool.getCreatedCount());
+            counts.put(name + ".borrowed", pool.getBorrowedCount());
+            counts.put(name + ".released", pool.getReleasedCount());
+            counts.put(name + ".dropped", pool.getDroppedCount());
+            counts.put(name + ".expired", pool.getExpiredCount());
+        });
+
+        return counts;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.eventCounts.clear();
+        this.operationCounts.clear();
+        this.operationTimes.clear();
+    }
+
+    private long sum(LongAdder counter)
+    {
+        return counter != null ? counter.sum() : 0;
+    }
+
+    private Map<String, Long> snapshot(Map<String, LongAdder> counters)
+    {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+
+        return snapshot;
+    }
+}
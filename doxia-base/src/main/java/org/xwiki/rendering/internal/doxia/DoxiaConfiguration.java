@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Configuration options for the Doxia based parsers and renderers.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Role
+public interface DoxiaConfiguration
+{
+    /**
+     * The engine parsing (or rendering) the content with the Doxia parser (or Sink), supported by all the syntaxes.
+     */
+    String DOXIA_ENGINE = "doxia";
+
+    /**
+     * The engine parsing the content with a parser producing the XWiki events directly (or rendering the XWiki events
+     * with a renderer writing the output directly), without going through Doxia, for the syntaxes which have one.
+     */
+    String NATIVE_ENGINE = "native";
+
+    /**
+     * @return the maximum number of idle Doxia parser instances kept for reuse by each Doxia based parser, 0 to
+     *         disable pooling
+     */
+    int getParserPoolSize();
+
+    /**
+     * @return the time in milliseconds after which an idle pooled Doxia parser is evicted, 0 or less to never
+     *         evict idle parsers
+     */
+    long getParserPoolMaxIdleTime();
+
+    /**
+     * @return the maximum number of idle renderer instances kept for reuse by each Doxia based block renderer, 0 to
+     *         disable pooling; idle renderers are evicted after {@link #getParserPoolMaxIdleTime()}
+     * @since 16.9.0
+     */
+    int getRendererPoolSize();
+
+    /**
+     * @return the maximum total size (in characters) of the sources whose XDOM is kept in the XDOM cache of the
+     *         Doxia based parsers, 0 to disable the cache
+     */
+    long getXDOMCacheSize();
+
+    /**
+     * @return the maximum number of parsed link references kept in the link reference cache shared by the Doxia based
+     *         parsers, 0 to disable the cache
+     */
+    int getLinkReferenceCacheSize();
+
+    /**
+     * @return the minimum size (in characters) of the sources which the Doxia based parsers split in independent
+     *         sections parsed concurrently on the common {@code ForkJoinPool}, for the syntaxes supporting it, 0 (the
+     *         default) to always parse on the calling thread
+     */
+    long getParallelParsingThreshold();
+
+    /**
+     * @return the minimum number of top level blocks (e.g. sections) of a rendered block for which the Doxia based
+     *         block renderers render the top level blocks concurrently on the common {@code ForkJoinPool}, 0 (the
+     *         default) to always render on the calling thread
+     * @since 16.9.0
+     */
+    int getParallelRenderingThreshold();
+
+    /**
+     * @return {@code true} if the Doxia based parsers should report the events they produce and the time spent in
+     *         their most expensive operations to {@link DoxiaMetrics}, {@code false} (the default) to have no
+     *         instrumentation overhead
+     */
+    boolean isInstrumentationEnabled();
+
+    /**
+     * @param syntax the syntax of the content to parse
+     * @return the engine used to parse the content in the passed syntax, {@link #DOXIA_ENGINE} (the default) or
+     *         {@link #NATIVE_ENGINE}; syntaxes without a native parser always use {@link #DOXIA_ENGINE}
+     */
+    String getParserEngine(Syntax syntax);
+
+    /**
+     * @param syntax the syntax of the content to render
+     * @return the engine used to render content in the passed syntax, {@link #DOXIA_ENGINE} (the default) or
+     *         {@link #NATIVE_ENGINE}; syntaxes without a native renderer always use {@link #DOXIA_ENGINE}
+     * @since 16.9.0
+     */
+    String getRendererEngine(Syntax syntax);
+}
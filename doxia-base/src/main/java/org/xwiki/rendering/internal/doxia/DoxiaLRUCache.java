@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * A simple thread-safe LRU cache bounded by the total weight of its values, with hit, miss and eviction counters.
+ * <p>
+ * We don't use the XWiki Cache API since it requires a cache implementation which is not available when the XWiki
+ * Rendering framework is used standalone.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DoxiaLRUCache<K, V>
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * The entries, least recently accessed first.
+     */
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    /**
+     * The maximum total weight of the cached values.
+     */
+    private final long maxWeight;
+
+    /**
+     * Compute the weight of a value.
+     */
+    private final ToLongFunction<V> weigher;
+
+    /**
+     * Notified of the values removed to respect the maximum weight, can be null.
+     */
+    private final BiConsumer<K, V> evictionListener;
+
+    /**
+     * The total weight of the cached values.
+     */
+    private long weight;
+
+    /**
+     * @see #getHitCount()
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * @see #getMissCount()
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @see #getEvictionCount()
+     */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a cache bounded by its number of entries.
+     *
+     * @param maxEntries the maximum number of entries
+     */
+    public DoxiaLRUCache(long maxEntries)
+    {
+        this(maxEntries, value -> 1);
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of the cached values
+     * @param weigher compute the weight of a value
+     */
+    public DoxiaLRUCache(long maxWeight, ToLongFunction<V> weigher)
+    {
+        this(maxWeight, weigher, null);
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of the cached values
+     * @param weigher compute the weight of a value
+     * @param evictionListener notified (outside of the cache lock) of the values removed to respect the maximum
+     *            weight, including the values heavier than the maximum weight which are never cached
+     * @since 16.9.0
+     */
+    public DoxiaLRUCache(long maxWeight, ToLongFunction<V> weigher, BiConsumer<K, V> evictionListener)
+    {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * @param key the key of the value
+     * @return the cached value or null if there's none
+     */
+    public V get(K key)
+    {
+        V value;
+        synchronized (this.entries) {
+            value = this.entries.get(key);
+        }
+
+        if (value != null) {
+            this.hitCount.incrementAndGet();
+        } else {
+            this.missCount.incrementAndGet();
+        }
+
+        return value;
+    }
+
+    /**
+     * Add a value to the cache, evicting the least recently used values if the maximum weight is exceeded. Values
+     * heavier than the maximum weight are not cached.
+     *
+     * @param key the key of the value
+     * @param value the value to cache
+     */
+    public void put(K key, V value)
+    {
+        long valueWeight = this.weigher.applyAsLong(value);
+        if (valueWeight > this.maxWeight) {
+            if (this.evictionListener != null) {
+                this.evictionListener.accept(key, value);
+            }
+            return;
+        }
+
+        List<Map.Entry<K, V>> evicted = null;
+        synchronized (this.entries) {
+            V previous = this.entries.put(key, value);
+            if (previous != null) {
+                this.weight -= this.weigher.applyAsLong(previous);
+            }
+            this.weight += valueWeight;
+
+            Iterator<Map.Entry<K, V>> iterator = this.entries.entrySet().iterator();
+            while (this.weight > this.maxWeight && iterator.hasNext()) {
+                Map.Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                this.weight -= this.weigher.applyAsLong(eldest.getValue());
+                this.evictionCount.incrementAndGet();
+
+                if (this.evictionListener != null) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<>();
+                    }
+                    evicted.add(eldest);
+                }
+            }
+        }
+
+        if (evicted != null) {
+            for (Map.Entry<K, V> entry : evicted) {
+                this.evictionListener.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear()
+    {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.weight = 0;
+        }
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public int size()
+    {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return the total weight of the cached values
+     */
+    public long getWeight()
+    {
+        synchronized (this.entries) {
+            return this.weight;
+        }
+    }
+
+    /**
+     * @return the number of lookups which found a value
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups which didn't find a value
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of values removed to respect the maximum weight
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Collect metrics about the Doxia based parsers when the instrumentation is enabled (see
+ * {@link DoxiaConfiguration#isInstrumentationEnabled()}). The default implementation exposes them through JMX, other
+ * implementations can forward them to any metrics system.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Role
+public interface DoxiaMetrics
+{
+    /**
+     * Event counted for each Doxia Sink method call, followed by the name of the method (e.g. {@code sink.text}).
+     */
+    String SINK_EVENT_PREFIX = "sink.";
+
+    /**
+     * Operation corresponding to a whole parse.
+     */
+    String PARSE = "parse";
+
+    /**
+     * Operation corresponding to the split of a text event into word, space and special symbol events.
+     */
+    String TEXT_TOKENIZING = "textTokenizing";
+
+    /**
+     * Operation corresponding to the generation of a header id from the header title.
+     */
+    String HEADER_ID = "headerId";
+
+    /**
+     * Event counted each time a link reference is found in the link reference cache.
+     */
+    String LINK_REFERENCE_CACHE_HIT = "linkReferenceCache.hit";
+
+    /**
+     * Event counted each time a link reference is not found in the link reference cache and has to be parsed.
+     */
+    String LINK_REFERENCE_CACHE_MISS = "linkReferenceCache.miss";
+
+    /**
+     * @param event the name of the event which occurred
+     */
+    void incrementEventCount(String event);
+
+    /**
+     * @param operation the name of the operation which was executed
+     * @param duration the duration of the operation, in nanoseconds
+     */
+    void addDuration(String operation, long duration);
+
+    /**
+     * Publish the statistics of a pool with the other metrics. Registering a pool again under the same name replaces
+     * the previous one.
+     *
+     * @param name the name of the pool, e.g. {@code parser(apt/1.0)}
+     * @param pool the pool whose statistics to publish
+     */
+    void registerPool(String name, DoxiaObjectPool<?> pool);
+}
@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link DefaultDoxiaMetrics}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public interface DoxiaMetricsMXBean
+{
+    /**
+     * @return the number of occurrences of each event
+     */
+    Map<String, Long> getEventCounts();
+
+    /**
+     * @return the number of executions of each operation
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return the total time spent in each operation, in milliseconds
+     */
+    Map<String, Long> getOperationTimes();
+
+    /**
+     * @return the ratio (between 0 and 1) of the link references found in the link reference cache, 0 if no link
+     *         reference was parsed yet
+     */
+    double getLinkReferenceCacheHitRatio();
+
+    /**
+     * @return the statistics of the registered pools, named {@code <pool name>.<statistic>} where the statistic is one
+     *         of {@code idle}, {@code created}, {@code borrowed}, {@code released}, {@code dropped} (released while the
+     *         pool was full) and {@code expired} (evicted after the maximum idle time)
+     */
+    Map<String, Long> getPoolCounts();
+
+    /**
+     * Reset all the metrics, except the statistics of the pools which are kept by the pools themselves.
+     */
+    void reset();
+}
@@ -0,0 +1,251 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A small thread-safe bounded pool of reusable objects (typically Doxia parsers which are expensive to create).
+ * <p>
+ * Objects are handed out in LIFO order so that the most recently used (and thus warmest) instance is reused first.
+ * Idle objects exceeding the maximum idle time are evicted whenever the pool is accessed. When the pool is empty a new
+ * object is created, and objects released while the pool is full are simply dropped.
+ * </p>
+ *
+ * @param <T> the type of the pooled objects
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DoxiaObjectPool<T>
+{
+    /**
+     * Creates new objects when the pool is empty.
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * The maximum number of idle objects kept in the pool.
+     */
+    private final int maxIdle;
+
+    /**
+     * The time in nanoseconds after which an idle object is evicted, 0 or less to never evict.
+     */
+    private final long maxIdleNanos;
+
+    /**
+     * The idle objects, most recently released first.
+     */
+    private final Deque<IdleEntry<T>> idle = new ArrayDeque<>();
+
+    /**
+     * @see #getCreatedCount()
+     */
+    private final AtomicLong createdCount = new AtomicLong();
+
+    /**
+     * @see #getBorrowedCount()
+     */
+    private final AtomicLong borrowedCount = new AtomicLong();
+
+    /**
+     * @see #getReleasedCount()
+     */
+    private final AtomicLong releasedCount = new AtomicLong();
+
+    /**
+     * @see #getDroppedCount()
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @see #getExpiredCount()
+     */
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * An idle object and the time at which it was released.
+     *
+     * @param <T> the type of the pooled object
+     */
+    private static final class IdleEntry<T>
+    {
+        /**
+         * The pooled object.
+         */
+        private final T object;
+
+        /**
+         * The {@link System#nanoTime()} at which the object was released.
+         */
+        private final long releaseTime;
+
+        IdleEntry(T object, long releaseTime)
+        {
+            this.object = object;
+            this.releaseTime = releaseTime;
+        }
+    }
+
+    /**
+     * @param factory creates new objects when the pool is empty
+     * @param maxIdle the maximum number of idle objects kept in the pool, 0 to disable pooling
+     * @param maxIdleTime the time in milliseconds after which an idle object is evicted, 0 or less to never evict
+     */
+    public DoxiaObjectPool(Supplier<T> factory, int maxIdle, long maxIdleTime)
+    {
+        this.factory = factory;
+        this.maxIdle = Math.max(0, maxIdle);
+        this.maxIdleNanos = maxIdleTime > 0 ? TimeUnit.MILLISECONDS.toNanos(maxIdleTime) : 0;
+    }
+
+    /**
+     * @return an idle object from the pool or a new one if the pool is empty
+     */
+    public T borrow()
+    {
+        this.borrowedCount.incrementAndGet();
+
+        IdleEntry<T> entry;
+        synchronized (this.idle) {
+            evictExpired(System.nanoTime());
+            entry = this.idle.pollFirst();
+        }
+
+        if (entry != null) {
+            return entry.object;
+        }
+
+        this.createdCount.incrementAndGet();
+
+        return this.factory.get();
+    }
+
+    /**
+     * Give back an object obtained with {@link #borrow()}. Callers must only release objects which are in a clean,
+     * reusable state (i.e. don't release an object whose last use failed).
+     *
+     * @param object the object to put back in the pool
+     */
+    public void release(T object)
+    {
+        this.releasedCount.incrementAndGet();
+
+        long now = System.nanoTime();
+        boolean pooled = false;
+        synchronized (this.idle) {
+            evictExpired(now);
+            if (this.idle.size() < this.maxIdle) {
+                this.idle.addFirst(new IdleEntry<>(object, now));
+                pooled = true;
+            }
+        }
+
+        if (!pooled) {
+            this.droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all the idle objects from the pool. They are counted neither as dropped nor as expired.
+     */
+    public void clear()
+    {
+        synchronized (this.idle) {
+            this.idle.clear();
+        }
+    }
+
+    private void evictExpired(long now)
+    {
+        if (this.maxIdleNanos > 0) {
+            // The oldest entries are at the end of the deque
+            IdleEntry<T> oldest = this.idle.peekLast();
+            while (oldest != null && now - oldest.releaseTime > this.maxIdleNanos) {
+                this.idle.pollLast();
+                this.expiredCount.incrementAndGet();
+                oldest = this.idle.peekLast();
+            }
+        }
+    }
+
+    /**
+     * @return the maximum number of idle objects kept in the pool
+     */
+    public int getMaxIdle()
+    {
+        return this.maxIdle;
+    }
+
+    /**
+     * @return the current number of idle objects in the pool
+     */
+    public int getIdleCount()
+    {
+        synchronized (this.idle) {
+            return this.idle.size();
+        }
+    }
+
+    /**
+     * @return the number of objects created because the pool was empty
+     */
+    public long getCreatedCount()
+    {
+        return this.createdCount.get();
+    }
+
+    /**
+     * @return the number of objects handed out by the pool (created or reused)
+     */
+    public long getBorrowedCount()
+    {
+        return this.borrowedCount.get();
+    }
+
+    /**
+     * @return the number of objects given back to the pool
+     */
+    public long getReleasedCount()
+    {
+        return this.releasedCount.get();
+    }
+
+    /**
+     * @return the number of released objects dropped because the pool was full, which means that the pool is too small
+     *         for the number of concurrent uses
+     */
+    public long getDroppedCount()
+    {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * @return the number of idle objects evicted because they were not reused within the maximum idle time
+     */
+    public long getExpiredCount()
+    {
+        return this.expiredCount.get();
+    }
+}
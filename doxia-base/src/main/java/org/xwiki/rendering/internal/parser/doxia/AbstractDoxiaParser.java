@@ -19,12 +19,30 @@
  */
 package org.xwiki.rendering.internal.parser.doxia;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
+import org.apache.maven.doxia.sink.Sink;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.internal.doxia.DoxiaObjectPool;
 import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.ParseException;
@@ -38,8 +56,14 @@ import org.xwiki.rendering.util.IdGenerator;
  * @version $Id$
  * @since 1.5M2
  */
-public abstract class AbstractDoxiaParser implements Parser, StreamParser
+public abstract class AbstractDoxiaParser implements Parser, StreamParser, Initializable
 {
+    /**
+     * The number of chunks per available processor in which a source is split when parsed in parallel, so that the
+     * work is balanced between the threads even when the sections have very different sizes.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
     /**
      * Used by the XWikiGeneratorListener to generate unique header ids.
      */
@@ -47,20 +71,89 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
     @Named("plain/1.0")
     protected PrintRendererFactory plainRendererFactory;
 
+    /**
+     * Parse the link references with the {@code default/link} parser, caching the results.
+     */
     @Inject
-    @Named("plain/1.0")
-    private StreamParser plainParser;
-
-    @Inject
-    @Named("default/link")
-    private ResourceReferenceParser linkReferenceParser;
+    private DoxiaLinkReferenceCache linkReferenceParser;
 
     @Inject
     @Named("default/image")
     private ResourceReferenceParser imageReferenceParser;
 
+    @Inject
+    private DoxiaConfiguration configuration;
+
+    @Inject
+    private DoxiaXDOMCache xdomCache;
+
+    /**
+     * Only resolved when the instrumentation is enabled.
+     */
+    @Inject
+    private Provider<DoxiaMetrics> metricsProvider;
+
+    /**
+     * Reuse Doxia parser instances across parses since they are expensive to create. Note that an idle pooled parser
+     * may keep a reference to the last Sink it was used with until it's reused or evicted.
+     */
+    private DoxiaObjectPool<org.apache.maven.doxia.parser.Parser> parserPool;
+
+    /**
+     * @return a new Doxia parser instance; instances are pooled and reused sequentially (never concurrently) so they
+     *         must reset their state at the beginning of each parse, which is the case of the Doxia parsers
+     */
     public abstract org.apache.maven.doxia.parser.Parser createDoxiaParser();
 
+    /**
+     * Split the passed source into independent sections which produce the same events when parsed separately as when
+     * parsed as part of the whole source. This is used to parse incrementally successive versions of a document.
+     *
+     * @param source the source to split
+     * @return the sections of the source, in order, or {@code null} if the source can't be split (which is the default)
+     * @since 16.9.0
+     */
+    protected List<String> splitSections(String source)
+    {
+        return null;
+    }
+
+    /**
+     * @param section a section returned by {@link #splitSections(String)}, other than the first one
+     * @return the title of the section as written in its source (the inline markup is not parsed), or {@code null} if
+     *         it's not known without parsing the section (which is the default)
+     * @since 16.9.0
+     */
+    protected String getSectionTitle(String section)
+    {
+        return null;
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.parserPool = new DoxiaObjectPool<>(this::createDoxiaParser, this.configuration.getParserPoolSize(),
+            this.configuration.getParserPoolMaxIdleTime());
+    }
+
+    /**
+     * @return the parser used for link references
+     * @since 16.9.0
+     */
+    protected ResourceReferenceParser getLinkReferenceParser()
+    {
+        return this.linkReferenceParser;
+    }
+
+    /**
+     * @return the pool of Doxia parsers used by this parser, mostly useful to access its statistics
+     * @since 16.9.0
+     */
+    public DoxiaObjectPool<org.apache.maven.doxia.parser.Parser> getParserPool()
+    {
+        return this.parserPool;
+    }
+
     @Override
     public XDOM parse(Reader source) throws ParseException
     {
@@ -70,6 +163,322 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
 
     @Override
     public XDOM parse(Reader source, IdGenerator idGenerator) throws ParseException
+    {
+        if (!this.xdomCache.isEnabled()) {
+            if (this.configuration.getParallelParsingThreshold() <= 0) {
+                return parseXDOM(source, idGenerator);
+            }
+
+            return parseXDOM(readSource(source), idGenerator);
+        }
+
+        String content = readSource(source);
+
+        // The engines don't produce exactly the same XDOM for all the sources
+        DoxiaXDOMCache.CacheKey key =
+            this.xdomCache.getKey(getSyntax(), this.configuration.getParserEngine(getSyntax()), content);
+        XDOM xdom = this.xdomCache.get(key, idGenerator);
+        if (xdom == null) {
+            RecordingIdGenerator recordingIdGenerator = new RecordingIdGenerator(idGenerator);
+            xdom = parseXDOM(content, recordingIdGenerator);
+            xdom.setIdGenerator(idGenerator);
+
+            this.xdomCache.put(key, xdom, recordingIdGenerator.getRequests());
+        }
+
+        return xdom;
+    }
+
+    /**
+     * Parse a new version of a document, reusing the result of the parsing of the sections which didn't change since
+     * the previous version parsed with the same context (see {@link #splitSections(String)}). Unchanged sections are
+     * cloned from the context and their header and image ids are generated again in order, so the result is the same
+     * as when parsing the whole document. The whole document is parsed when it can't be split in sections.
+     *
+     * @param source the content to parse
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @param context the result of the parsing of the previous version of the document, updated for the new version
+     * @return the parsed content as an XDOM
+     * @throws ParseException when failing to parse the content
+     * @since 16.9.0
+     */
+    public XDOM parse(Reader source, IdGenerator idGenerator, DoxiaIncrementalContext context) throws ParseException
+    {
+        String content = readSource(source);
+
+        List<String> sections = splitSections(content);
+        if (sections == null || sections.isEmpty()) {
+            context.clear();
+
+            return parseXDOM(new StringReader(content), idGenerator);
+        }
+
+        context.begin();
+
+        List<XDOM> sectionXDOMs = new ArrayList<>(sections.size());
+        List<List<RecordingIdGenerator.IdRequest>> sectionIdRequests = new ArrayList<>(sections.size());
+        for (String section : sections) {
+            DoxiaIncrementalContext.ParsedSection parsedSection = context.get(section);
+            if (parsedSection == null) {
+                parsedSection = parseSection(section);
+                context.put(section, parsedSection);
+            }
+
+            sectionXDOMs.add(parsedSection.getXDOM().clone());
+            sectionIdRequests.add(parsedSection.getIdRequests());
+        }
+
+        context.end();
+
+        return join(sectionXDOMs, sectionIdRequests, idGenerator);
+    }
+
+    /**
+     * Parse a document lazily: only the first section (see {@link #splitSections(String)}) is parsed immediately, the
+     * following top level sections are represented by {@link LazySectionBlock}s which are parsed when their content
+     * is accessed for the first time (the source of the document is kept until then). The level and title of their
+     * headers (see {@link #getSectionTitle(String)}) are recorded when splitting the document, so the outline of the
+     * document can be read without parsing the sections. Sections are always parsed in
+     * order (accessing a section parses the sections before it) so that the header and image ids are the same as when
+     * parsing the whole document. The whole document is parsed immediately when it can't be split in sections.
+     * <p>
+     * This is useful when only the beginning of a large document is needed (e.g. for a preview). Note that the id
+     * generator of the returned XDOM is used by the sections parsed afterwards.
+     * </p>
+     *
+     * @param source the content to parse
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @return the parsed content as an XDOM
+     * @throws ParseException when failing to parse the first section of the content
+     * @since 16.9.0
+     */
+    public XDOM parseLazily(Reader source, IdGenerator idGenerator) throws ParseException
+    {
+        String content = readSource(source);
+
+        List<String> sections = splitSections(content);
+        if (sections == null || sections.size() < 2) {
+            return parseXDOM(new StringReader(content), idGenerator);
+        }
+
+        XDOM xdom = parseXDOM(new StringReader(sections.get(0)), idGenerator);
+
+        int[] offsets = new int[sections.size()];
+        offsets[0] = sections.get(0).length();
+        for (int i = 1; i < offsets.length; ++i) {
+            offsets[i] = offsets[i - 1] + sections.get(i).length();
+        }
+
+        LazySections lazySections = new LazySections(this, content, offsets, idGenerator);
+        for (LazySectionBlock section : lazySections.getBlocks()) {
+            xdom.addChild(section);
+        }
+
+        return xdom;
+    }
+
+    /**
+     * Parse a (large) document using several threads: the source is split in independent sections (see
+     * {@link #splitSections(String)}) which are grouped in chunks of similar size, the chunks are parsed concurrently
+     * on the passed executor and the results are joined in order. The header and image ids are generated again in
+     * order while joining, so the result is the same as when parsing the whole document on a single thread. The whole
+     * document is parsed on the calling thread when it can't be split in sections.
+     *
+     * @param source the content to parse
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @param executor the executor on which the chunks are parsed
+     * @return the parsed content as an XDOM
+     * @throws ParseException when failing to parse the content
+     * @since 16.9.0
+     */
+    public XDOM parse(Reader source, IdGenerator idGenerator, Executor executor) throws ParseException
+    {
+        return parseParallel(readSource(source), idGenerator, executor);
+    }
+
+    private XDOM parseParallel(String content, IdGenerator idGenerator, Executor executor) throws ParseException
+    {
+        List<String> chunks = splitChunks(content);
+        if (chunks.size() < 2) {
+            return parseXDOM(new StringReader(content), idGenerator);
+        }
+
+        List<CompletableFuture<DoxiaIncrementalContext.ParsedSection>> futures = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return parseSection(chunk);
+                } catch (ParseException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        List<XDOM> chunkXDOMs = new ArrayList<>(chunks.size());
+        List<List<RecordingIdGenerator.IdRequest>> chunkIdRequests = new ArrayList<>(chunks.size());
+        for (CompletableFuture<DoxiaIncrementalContext.ParsedSection> future : futures) {
+            DoxiaIncrementalContext.ParsedSection parsedChunk;
+            try {
+                parsedChunk = future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ParseException) {
+                    throw (ParseException) e.getCause();
+                }
+                throw new ParseException("Failed to parse input source", e.getCause());
+            }
+
+            chunkXDOMs.add(parsedChunk.getXDOM());
+            chunkIdRequests.add(parsedChunk.getIdRequests());
+        }
+
+        return join(chunkXDOMs, chunkIdRequests, idGenerator);
+    }
+
+    /**
+     * Group the consecutive sections of the passed source in chunks of similar size.
+     */
+    private List<String> splitChunks(String content)
+    {
+        List<String> sections = splitSections(content);
+        if (sections == null || sections.size() < 2) {
+            return List.of(content);
+        }
+
+        int chunkSize = content.length() / (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR) + 1;
+
+        List<String> chunks = new ArrayList<>();
+        int chunkStart = 0;
+        int chunkEnd = 0;
+        for (String section : sections) {
+            chunkEnd += section.length();
+            if (chunkEnd - chunkStart >= chunkSize) {
+                chunks.add(content.substring(chunkStart, chunkEnd));
+                chunkStart = chunkEnd;
+            }
+        }
+        if (chunkEnd > chunkStart) {
+            chunks.add(content.substring(chunkStart, chunkEnd));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Parse a section independently, recording the generated ids so that they can be replayed later.
+     *
+     * @param section the section to parse
+     * @return the parsed section
+     * @throws ParseException when failing to parse the section
+     */
+    DoxiaIncrementalContext.ParsedSection parseSection(String section) throws ParseException
+    {
+        RecordingIdGenerator recordingIdGenerator = new RecordingIdGenerator();
+        XDOM xdom = parseXDOM(new StringReader(section), recordingIdGenerator);
+
+        return new DoxiaIncrementalContext.ParsedSection(xdom, new ArrayList<>(recordingIdGenerator.getRequests()));
+    }
+
+    /**
+     * Join the results of the separate parsing of consecutive sections, generating again their header and image ids
+     * in order with the passed generator.
+     */
+    private XDOM join(List<XDOM> sectionXDOMs, List<List<RecordingIdGenerator.IdRequest>> sectionIdRequests,
+        IdGenerator idGenerator)
+    {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < sectionXDOMs.size(); ++i) {
+            XDOM sectionXDOM = sectionXDOMs.get(i);
+            RecordingIdGenerator.replay(sectionIdRequests.get(i), idGenerator, sectionXDOM.getChildren());
+            // Get the children again since top level blocks might have been replaced
+            blocks.addAll(sectionXDOM.getChildren());
+        }
+
+        return new XDOM(blocks, idGenerator, sectionXDOMs.get(0).getMetaData());
+    }
+
+    /**
+     * Parse a file without loading its whole content in memory: the file is mapped and decoded in chunks (see
+     * {@link MappedFileReader}). The XDOM cache is not used since it requires the whole content.
+     *
+     * @param source the file to parse
+     * @param charset the encoding of the file
+     * @return the parsed content as an XDOM
+     * @throws ParseException when failing to read or parse the file
+     * @since 16.9.0
+     */
+    public XDOM parse(Path source, Charset charset) throws ParseException
+    {
+        return parse(source, charset, new IdGenerator());
+    }
+
+    /**
+     * Parse a file without loading its whole content in memory, see {@link #parse(Path, Charset)}.
+     *
+     * @param source the file to parse
+     * @param charset the encoding of the file
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @return the parsed content as an XDOM
+     * @throws ParseException when failing to read or parse the file
+     * @since 16.9.0
+     */
+    public XDOM parse(Path source, Charset charset, IdGenerator idGenerator) throws ParseException
+    {
+        try (Reader reader = new MappedFileReader(source, charset)) {
+            return parseXDOM(reader, idGenerator);
+        } catch (IOException e) {
+            throw new ParseException(String.format("Failed to read file [%s]", source), e);
+        }
+    }
+
+    /**
+     * Parse a file without loading its whole content in memory, see {@link #parse(Path, Charset)}.
+     *
+     * @param source the file to parse
+     * @param charset the encoding of the file
+     * @param listener the listener receiving the parsing events
+     * @throws ParseException when failing to read or parse the file
+     * @since 16.9.0
+     */
+    public void parse(Path source, Charset charset, Listener listener) throws ParseException
+    {
+        parse(source, charset, listener, new IdGenerator());
+    }
+
+    /**
+     * Parse a file without loading its whole content in memory, see {@link #parse(Path, Charset)}.
+     *
+     * @param source the file to parse
+     * @param charset the encoding of the file
+     * @param listener the listener receiving the parsing events
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @throws ParseException when failing to read or parse the file
+     * @since 16.9.0
+     */
+    public void parse(Path source, Charset charset, Listener listener, IdGenerator idGenerator)
+        throws ParseException
+    {
+        try (Reader reader = new MappedFileReader(source, charset)) {
+            parse(reader, listener, idGenerator);
+        } catch (IOException e) {
+            throw new ParseException(String.format("Failed to read file [%s]", source), e);
+        }
+    }
+
+    /**
+     * Parse the whole content, in parallel if it's large enough (see
+     * {@link DoxiaConfiguration#getParallelParsingThreshold()}).
+     */
+    private XDOM parseXDOM(String content, IdGenerator idGenerator) throws ParseException
+    {
+        long threshold = this.configuration.getParallelParsingThreshold();
+        if (threshold > 0 && content.length() >= threshold) {
+            return parseParallel(content, idGenerator, ForkJoinPool.commonPool());
+        }
+
+        return parseXDOM(new StringReader(content), idGenerator);
+    }
+
+    private XDOM parseXDOM(Reader source, IdGenerator idGenerator) throws ParseException
     {
         XDOMGeneratorListener listener = new XDOMGeneratorListener();
         parse(source, listener, idGenerator);
@@ -80,6 +489,27 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
         return xdom;
     }
 
+    /**
+     * @param source the source to read
+     * @return the whole content of the source
+     * @throws ParseException when failing to read the source
+     * @since 16.9.0
+     */
+    protected String readSource(Reader source) throws ParseException
+    {
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            for (int count = source.read(buffer); count != -1; count = source.read(buffer)) {
+                content.append(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            throw new ParseException("Failed to read input source", e);
+        }
+
+        return content.toString();
+    }
+
     @Override
     public void parse(Reader source, Listener listener) throws ParseException
     {
@@ -88,18 +518,66 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
         parse(source, listener, idGenerator);
     }
 
+    /**
+     * Parse the passed source without going through Doxia, when the {@link DoxiaConfiguration#NATIVE_ENGINE native
+     * engine} is configured for the syntax of this parser.
+     *
+     * @param source the content to parse
+     * @param listener the listener receiving the parsing events
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @return {@code false} if this parser has no native parser or if the source uses constructs it doesn't support,
+     *         in which case the source is parsed with Doxia (which is the default)
+     * @throws ParseException when failing to parse the content
+     * @since 16.9.0
+     */
+    protected boolean parseNative(String source, Listener listener, IdGenerator idGenerator) throws ParseException
+    {
+        return false;
+    }
+
     @Override
     public void parse(Reader source, Listener listener, IdGenerator idGenerator) throws ParseException
     {
-        XWikiGeneratorSink doxiaSink =
-            new XWikiGeneratorSink(listener, this.linkReferenceParser, this.plainRendererFactory, idGenerator,
-                this.plainParser, getSyntax());
+        Reader doxiaSource = source;
+        if (DoxiaConfiguration.NATIVE_ENGINE.equals(this.configuration.getParserEngine(getSyntax()))) {
+            String content = readSource(source);
+            if (parseNative(content, listener, idGenerator != null ? idGenerator : new IdGenerator())) {
+                return;
+            }
 
-        org.apache.maven.doxia.parser.Parser parser = createDoxiaParser();
+            // Fallback on Doxia for the content the native parser doesn't support
+            doxiaSource = new StringReader(content);
+        }
+
+        parseWithDoxia(doxiaSource, listener, idGenerator);
+    }
+
+    private void parseWithDoxia(Reader source, Listener listener, IdGenerator idGenerator) throws ParseException
+    {
+        if (this.configuration.isInstrumentationEnabled()) {
+            DoxiaMetrics metrics = this.metricsProvider.get();
+            metrics.registerPool(String.format("parser(%s)", getSyntax().toIdString()), this.parserPool);
+            InstrumentedXWikiGeneratorSink doxiaSink = new InstrumentedXWikiGeneratorSink(listener,
+                this.linkReferenceParser, this.plainRendererFactory, idGenerator, getSyntax(), metrics);
+
+            long start = System.nanoTime();
+            parse(source, doxiaSink.countEvents());
+            metrics.addDuration(DoxiaMetrics.PARSE, System.nanoTime() - start);
+        } else {
+            parse(source, new XWikiGeneratorSink(listener, this.linkReferenceParser, this.plainRendererFactory,
+                idGenerator, getSyntax()));
+        }
+    }
+
+    private void parse(Reader source, Sink doxiaSink) throws ParseException
+    {
+        org.apache.maven.doxia.parser.Parser parser = this.parserPool.borrow();
         try {
             parser.parse(source, doxiaSink);
         } catch (Exception e) {
+            // Don't give the parser back to the pool since we don't know in which state the failure left it
             throw new ParseException("Failed to parse input source", e);
         }
+        this.parserPool.release(parser);
     }
 }
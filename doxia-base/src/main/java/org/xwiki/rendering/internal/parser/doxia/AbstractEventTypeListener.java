@@ -0,0 +1,398 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * A {@link Listener} converting each event it receives into an {@link EventType} and its parameters, in the same form
+ * as the events of {@link org.xwiki.rendering.listener.QueueListener} (the parameters are in the order of the
+ * listener method arguments), so that it can be replayed with {@link EventType#fireEvent(Listener, Object[])}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public abstract class AbstractEventTypeListener implements Listener
+{
+    /**
+     * Handle a received event.
+     *
+     * @param eventType the type of the event
+     * @param parameters the parameters of the event
+     */
+    protected abstract void onEvent(EventType eventType, Object... parameters);
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        onEvent(EventType.BEGIN_DOCUMENT, metadata);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        onEvent(EventType.END_DOCUMENT, metadata);
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_GROUP, parameters);
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_GROUP, parameters);
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_FORMAT, format, parameters);
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        onEvent(EventType.END_FORMAT, format, parameters);
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_LIST, type, parameters);
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        onEvent(EventType.END_LIST, type, parameters);
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        onEvent(EventType.BEGIN_LIST_ITEM);
+    }
+
+    @Override
+    public void beginListItem(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_LIST_ITEM, parameters);
+    }
+
+    @Override
+    public void endListItem()
+    {
+        onEvent(EventType.END_LIST_ITEM);
+    }
+
+    @Override
+    public void endListItem(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_LIST_ITEM, parameters);
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        onEvent(EventType.BEGIN_DEFINITION_TERM);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        onEvent(EventType.END_DEFINITION_TERM);
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        onEvent(EventType.BEGIN_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        onEvent(EventType.END_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_QUOTATION, parameters);
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_QUOTATION, parameters);
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        onEvent(EventType.BEGIN_QUOTATION_LINE);
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        onEvent(EventType.END_QUOTATION_LINE);
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_SECTION, parameters);
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_SECTION, parameters);
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_HEADER, level, id, parameters);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        onEvent(EventType.END_HEADER, level, id, parameters);
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_TABLE, parameters);
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_TABLE, parameters);
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_LINK, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        onEvent(EventType.END_LINK, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        onEvent(EventType.BEGIN_MACRO_MARKER, name, parameters, content, isInline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        onEvent(EventType.END_MACRO_MARKER, name, parameters, content, isInline);
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        onEvent(EventType.BEGIN_METADATA, metadata);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        onEvent(EventType.END_METADATA, metadata);
+    }
+
+    @Override
+    public void beginFigure(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_FIGURE, parameters);
+    }
+
+    @Override
+    public void endFigure(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_FIGURE, parameters);
+    }
+
+    @Override
+    public void beginFigureCaption(Map<String, String> parameters)
+    {
+        onEvent(EventType.BEGIN_FIGURE_CAPTION, parameters);
+    }
+
+    @Override
+    public void endFigureCaption(Map<String, String> parameters)
+    {
+        onEvent(EventType.END_FIGURE_CAPTION, parameters);
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        onEvent(EventType.ON_NEW_LINE);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        onEvent(EventType.ON_MACRO, id, parameters, content, inline);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        onEvent(EventType.ON_WORD, word);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        onEvent(EventType.ON_SPACE);
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        onEvent(EventType.ON_SPECIAL_SYMBOL, symbol);
+    }
+
+    @Override
+    public void onRawText(String text, Syntax syntax)
+    {
+        onEvent(EventType.ON_RAW_TEXT, text, syntax);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        onEvent(EventType.ON_ID, name);
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        onEvent(EventType.ON_HORIZONTAL_LINE, parameters);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        onEvent(EventType.ON_EMPTY_LINES, count);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        onEvent(EventType.ON_VERBATIM, content, inline, parameters);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        onEvent(EventType.ON_IMAGE, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, String id, Map<String, String> parameters)
+    {
+        onEvent(EventType.ON_IMAGE, reference, freestanding, id, parameters);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * Keep the result of the parsing of each section of a document between two parses of successive versions of that
+ * document, so that only the sections which changed are parsed again (see
+ * {@link AbstractDoxiaParser#parse(java.io.Reader, org.xwiki.rendering.util.IdGenerator, DoxiaIncrementalContext)}).
+ * <p>
+ * A context should be associated with a single document and is not thread safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DoxiaIncrementalContext
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * The sections produced by the last parse, indexed by the fingerprint of their source.
+     */
+    private Map<String, ParsedSection> sections = new HashMap<>();
+
+    /**
+     * The sections produced by the parse in progress.
+     */
+    private Map<String, ParsedSection> nextSections = new HashMap<>();
+
+    private int reusedSectionCount;
+
+    private int parsedSectionCount;
+
+    /**
+     * The result of the parsing of a section, isolated from the rest of the document.
+     *
+     * @version $Id$
+     */
+    static final class ParsedSection
+    {
+        private final XDOM xdom;
+
+        private final List<RecordingIdGenerator.IdRequest> idRequests;
+
+        ParsedSection(XDOM xdom, List<RecordingIdGenerator.IdRequest> idRequests)
+        {
+            this.xdom = xdom;
+            this.idRequests = idRequests;
+        }
+
+        XDOM getXDOM()
+        {
+            return this.xdom;
+        }
+
+        List<RecordingIdGenerator.IdRequest> getIdRequests()
+        {
+            return this.idRequests;
+        }
+    }
+
+    /**
+     * Start a new parse.
+     */
+    void begin()
+    {
+        this.nextSections = new HashMap<>();
+        this.reusedSectionCount = 0;
+        this.parsedSectionCount = 0;
+    }
+
+    /**
+     * @param source the source of a section
+     * @return the previous result of the parsing of that source, or {@code null} if it needs to be parsed
+     */
+    ParsedSection get(String source)
+    {
+        String fingerprint = fingerprint(source);
+
+        ParsedSection section = this.nextSections.get(fingerprint);
+        if (section == null) {
+            section = this.sections.get(fingerprint);
+            if (section != null) {
+                this.nextSections.put(fingerprint, section);
+            }
+        }
+
+        if (section != null) {
+            ++this.reusedSectionCount;
+        }
+
+        return section;
+    }
+
+    /**
+     * @param source the source of a section
+     * @param section the result of the parsing of that source
+     */
+    void put(String source, ParsedSection section)
+    {
+        this.nextSections.put(fingerprint(source), section);
+
+        ++this.parsedSectionCount;
+    }
+
+    /**
+     * End the current parse: only the sections of the parsed version are kept for the next parse.
+     */
+    void end()
+    {
+        this.sections = this.nextSections;
+        this.nextSections = new HashMap<>();
+    }
+
+    /**
+     * Forget all the sections, for example when the document can't be parsed incrementally.
+     */
+    public void clear()
+    {
+        this.sections = new HashMap<>();
+        this.nextSections = new HashMap<>();
+    }
+
+    /**
+     * @return the number of sections which were reused during the last parse
+     */
+    public int getReusedSectionCount()
+    {
+        return this.reusedSectionCount;
+    }
+
+    /**
+     * @return the number of sections which were parsed during the last parse
+     */
+    public int getParsedSectionCount()
+    {
+        return this.parsedSectionCount;
+    }
+
+    private String fingerprint(String source)
+    {
+        try {
+            return Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance(DIGEST_ALGORITHM).digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to create the section fingerprint", e);
+        }
+    }
+}
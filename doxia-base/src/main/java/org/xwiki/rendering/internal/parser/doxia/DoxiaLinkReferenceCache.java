@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaLRUCache;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.parser.ResourceReferenceParser;
+
+/**
+ * Parse link references with the {@code default/link} parser, caching the result by raw link reference so that the
+ * same target repeated across documents is parsed only once.
+ * <p>
+ * The cache is shared by all the Doxia based parsers and is bounded by its number of entries (see
+ * {@link DoxiaConfiguration#getLinkReferenceCacheSize()}). Cached references are never exposed: a copy is cached and a
+ * new copy is returned for each hit, so callers are free to modify the returned reference. When the instrumentation is
+ * enabled the hits and misses are reported to {@link DoxiaMetrics}.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Component(roles = DoxiaLinkReferenceCache.class)
+@Singleton
+public class DoxiaLinkReferenceCache implements ResourceReferenceParser, Initializable
+{
+    @Inject
+    @Named("default/link")
+    private ResourceReferenceParser linkReferenceParser;
+
+    @Inject
+    private DoxiaConfiguration configuration;
+
+    /**
+     * Only resolved when the instrumentation is enabled.
+     */
+    @Inject
+    private Provider<DoxiaMetrics> metricsProvider;
+
+    /**
+     * The parsed link references, null when the cache is disabled.
+     */
+    private DoxiaLRUCache<String, ResourceReference> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getLinkReferenceCacheSize();
+        if (size > 0) {
+            this.cache = new DoxiaLRUCache<>(size);
+        }
+    }
+
+    @Override
+    public ResourceReference parse(String rawReference)
+    {
+        if (this.cache == null) {
+            return this.linkReferenceParser.parse(rawReference);
+        }
+
+        ResourceReference reference = this.cache.get(rawReference);
+        boolean hit = reference != null;
+        if (!hit) {
+            reference = this.linkReferenceParser.parse(rawReference);
+            this.cache.put(rawReference, reference.clone());
+        } else {
+            reference = reference.clone();
+        }
+
+        if (this.configuration.isInstrumentationEnabled()) {
+            this.metricsProvider.get().incrementEventCount(
+                hit ? DoxiaMetrics.LINK_REFERENCE_CACHE_HIT : DoxiaMetrics.LINK_REFERENCE_CACHE_MISS);
+        }
+
+        return reference;
+    }
+
+    /**
+     * @return the underlying cache, mostly useful to access its statistics, or null if the cache is disabled
+     */
+    public DoxiaLRUCache<?, ?> getCache()
+    {
+        return this.cache;
+    }
+}
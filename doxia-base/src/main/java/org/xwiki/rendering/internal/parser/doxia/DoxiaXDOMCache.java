@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaLRUCache;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * Cache the XDOMs produced by the Doxia based parsers, keyed by the syntax, the parser engine (see
+ * {@link DoxiaConfiguration#getParserEngine(Syntax)}) and a SHA-256 hash of the parsed source.
+ * <p>
+ * Cached XDOMs are never exposed directly: a copy is stored and a new copy is returned for each hit, so callers are
+ * free to modify the returned XDOM. The header and image ids generated while parsing are recorded and replayed
+ * against the caller's {@link IdGenerator} on each hit so that the result is identical to a real parse. The cache is
+ * bounded by the total size of the cached sources (see {@link DoxiaConfiguration#getXDOMCacheSize()}) and is
+ * disabled when that size is 0.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@Component(roles = DoxiaXDOMCache.class)
+@Singleton
+public class DoxiaXDOMCache implements Initializable
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Used to get the size of the cache.
+     */
+    @Inject
+    private DoxiaConfiguration configuration;
+
+    /**
+     * The cached parse results, null when the cache is disabled.
+     */
+    private DoxiaLRUCache<CacheKey, CacheEntry> cache;
+
+    /**
+     * Identify a parsed source, see {@link DoxiaXDOMCache#getKey(Syntax, String, String)}.
+     */
+    public static final class CacheKey
+    {
+        /**
+         * The syntax of the source.
+         */
+        private final Syntax syntax;
+
+        /**
+         * The engine used to parse the source.
+         */
+        private final String parserEngine;
+
+        /**
+         * The hash of the source.
+         */
+        private final byte[] digest;
+
+        /**
+         * The length of the source, used as the weight of the cached entry.
+         */
+        private final int sourceLength;
+
+        /**
+         * The precomputed hash code of the key.
+         */
+        private final int hashCode;
+
+        private CacheKey(Syntax syntax, String parserEngine, byte[] digest, int sourceLength)
+        {
+            this.syntax = syntax;
+            this.parserEngine = parserEngine;
+            this.digest = digest;
+            this.sourceLength = sourceLength;
+            this.hashCode = Objects.hash(syntax, parserEngine, Arrays.hashCode(digest));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) object;
+            return this.syntax.equals(other.syntax) && Objects.equals(this.parserEngine, other.parserEngine)
+                && Arrays.equals(this.digest, other.digest);
+        }
+    }
+
+    /**
+     * A cached parse result.
+     */
+    private static final class CacheEntry
+    {
+        /**
+         * The cached XDOM, never exposed.
+         */
+        private final XDOM xdom;
+
+        /**
+         * The ids generated while parsing the source.
+         */
+        private final List<RecordingIdGenerator.IdRequest> idRequests;
+
+        /**
+         * The length of the source, used as the weight of the entry.
+         */
+        private final int sourceLength;
+
+        CacheEntry(XDOM xdom, List<RecordingIdGenerator.IdRequest> idRequests, int sourceLength)
+        {
+            this.xdom = xdom;
+            this.idRequests = idRequests;
+            this.sourceLength = sourceLength;
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        long size = this.configuration.getXDOMCacheSize();
+        if (size > 0) {
+            this.cache = new DoxiaLRUCache<>(size, entry -> entry.sourceLength);
+        }
+    }
+
+    /**
+     * @return true if the cache is enabled
+     */
+    public boolean isEnabled()
+    {
+        return this.cache != null;
+    }
+
+    /**
+     * Compute the key of a source, to be passed to {@link #get(CacheKey, IdGenerator)} and then to
+     * {@link #put(CacheKey, XDOM, List)} on a miss, so that the source is hashed only once.
+     *
+     * @param syntax the syntax of the source
+     * @param parserEngine the engine used to parse the source (see {@link DoxiaConfiguration#getParserEngine(Syntax)})
+     * @param source the source to parse
+     * @return the key of the source in the cache
+     */
+    public CacheKey getKey(Syntax syntax, String parserEngine, String source)
+    {
+        return new CacheKey(syntax, parserEngine, digest(source), source.length());
+    }
+
+    /**
+     * @param key the key of the source to parse, see {@link #getKey(Syntax, String, String)}
+     * @param idGenerator the generator to use for the ids of the returned XDOM
+     * @return a copy of the cached XDOM or null if the source was not found in the cache
+     */
+    public XDOM get(CacheKey key, IdGenerator idGenerator)
+    {
+        CacheEntry entry = this.cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        XDOM xdom = entry.xdom.clone();
+        RecordingIdGenerator.replay(entry.idRequests, idGenerator, xdom.getChildren());
+        xdom.setIdGenerator(idGenerator);
+
+        return xdom;
+    }
+
+    /**
+     * @param key the key of the parsed source, see {@link #getKey(Syntax, String, String)}
+     * @param xdom the result of the parsing (a copy is cached)
+     * @param idRequests the ids generated while parsing the source
+     */
+    public void put(CacheKey key, XDOM xdom, List<RecordingIdGenerator.IdRequest> idRequests)
+    {
+        this.cache.put(key, new CacheEntry(xdom.clone(), List.copyOf(idRequests), key.sourceLength));
+    }
+
+    /**
+     * @return the underlying cache, mostly useful to access its statistics, or null if the cache is disabled
+     */
+    public DoxiaLRUCache<?, ?> getCache()
+    {
+        return this.cache;
+    }
+
+    private byte[] digest(String source)
+    {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Cannot happen since SHA-256 is required to be supported by all Java platforms
+            throw new IllegalStateException("Failed to create the XDOM cache digest", e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.Map;
+
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Buffer the events of a section title (so that they can be replayed once the header id is known) and, at the same
+ * time, accumulate the plain text of the title used to generate the header id.
+ * <p>
+ * The accumulated text matches what the {@code plain/1.0} renderer would print for the common title content (words,
+ * spaces, special symbols, new lines, formatting and labelled links). For the rare events whose plain text rendering
+ * is more involved (links without label, images, verbatim, etc.) the accumulated text is marked as incomplete and
+ * {@link #render(PrintRenderer)} must be used instead.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class HeaderTextListener extends QueueListener
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The plain text of the title.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * False if the title contains some event for which the accumulated text cannot be trusted.
+     */
+    private boolean complete = true;
+
+    /**
+     * The number of buffered events when the current link started, used to find out if the link has a label.
+     */
+    private int linkStart;
+
+    /**
+     * @return true if {@link #getPlainText()} is identical to what the plain text renderer would produce
+     */
+    public boolean isPlainTextComplete()
+    {
+        return this.complete;
+    }
+
+    /**
+     * @return the accumulated plain text of the title
+     */
+    public String getPlainText()
+    {
+        return this.text.toString();
+    }
+
+    /**
+     * Send the buffered events to the passed renderer without consuming them.
+     *
+     * @param renderer the renderer to send the events to
+     * @return the text printed by the renderer
+     */
+    public String render(PrintRenderer renderer)
+    {
+        for (Event event : this) {
+            event.eventType.fireEvent(renderer, event.eventParameters);
+        }
+
+        return renderer.getPrinter().toString();
+    }
+
+    /**
+     * @param plainRendererFactory used to render the title when the accumulated plain text is not complete
+     * @return the plain text of the title, identical to what the plain text renderer would produce
+     * @since 16.9.0
+     */
+    public String toPlainText(PrintRendererFactory plainRendererFactory)
+    {
+        if (isPlainTextComplete()) {
+            return getPlainText();
+        }
+
+        // Fallback on the plain text renderer for the title content we can't convert to plain text ourselves
+        return render(plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        this.text.append(word);
+
+        super.onWord(word);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        this.text.append(' ');
+
+        super.onSpace();
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        this.text.append(symbol);
+
+        super.onSpecialSymbol(symbol);
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        this.text.append('\n');
+
+        super.onNewLine();
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        super.beginLink(reference, freestanding, parameters);
+
+        this.linkStart = size();
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        // The plain text renderer generates a label for links without one
+        if (size() == this.linkStart) {
+            this.complete = false;
+        }
+
+        super.endLink(reference, freestanding, parameters);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        this.complete = false;
+
+        super.onImage(reference, freestanding, parameters);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, String id, Map<String, String> parameters)
+    {
+        this.complete = false;
+
+        super.onImage(reference, freestanding, id, parameters);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        this.complete = false;
+
+        super.onVerbatim(content, inline, parameters);
+    }
+
+    @Override
+    public void onRawText(String rawText, Syntax syntax)
+    {
+        this.complete = false;
+
+        super.onRawText(rawText, syntax);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        this.complete = false;
+
+        super.onEmptyLines(count);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        this.complete = false;
+
+        super.onMacro(id, parameters, content, inline);
+    }
+}
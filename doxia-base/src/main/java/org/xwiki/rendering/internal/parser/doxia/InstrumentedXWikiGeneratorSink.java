@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import org.apache.maven.doxia.sink.Sink;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * A {@link XWikiGeneratorSink} reporting the time spent splitting text (including the handling of the resulting events
+ * by the listener) and generating header ids to {@link DoxiaMetrics}. Use {@link #countEvents()} to also count the
+ * events received from the Doxia parser.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class InstrumentedXWikiGeneratorSink extends XWikiGeneratorSink
+{
+    private final DoxiaMetrics metrics;
+
+    /**
+     * @param listener the listener receiving the generated events
+     * @param linkReferenceParser the parser used for link references
+     * @param plainRendererFactory used to generate the header ids
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     * @param syntax the syntax of the parsed content
+     * @param metrics the component receiving the metrics
+     */
+    public InstrumentedXWikiGeneratorSink(Listener listener, ResourceReferenceParser linkReferenceParser,
+        PrintRendererFactory plainRendererFactory, IdGenerator idGenerator, Syntax syntax, DoxiaMetrics metrics)
+    {
+        super(listener, linkReferenceParser, plainRendererFactory, idGenerator, syntax);
+
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return a {@link Sink} delegating to this sink and counting each call by method name (prefixed with
+     *         {@link DoxiaMetrics#SINK_EVENT_PREFIX})
+     */
+    public Sink countEvents()
+    {
+        return (Sink) Proxy.newProxyInstance(Sink.class.getClassLoader(), new Class<?>[] { Sink.class },
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() != Object.class) {
+                    this.metrics.incrementEventCount(DoxiaMetrics.SINK_EVENT_PREFIX + method.getName());
+                }
+
+                try {
+                    return method.invoke(this, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    @Override
+    protected void tokenizeText(String text)
+    {
+        long start = System.nanoTime();
+
+        super.tokenizeText(text);
+
+        this.metrics.addDuration(DoxiaMetrics.TEXT_TOKENIZING, System.nanoTime() - start);
+    }
+
+    @Override
+    protected String generateHeaderId(HeaderTextListener title)
+    {
+        long start = System.nanoTime();
+
+        String id = super.generateHeaderId(title);
+
+        this.metrics.addDuration(DoxiaMetrics.HEADER_ID, System.nanoTime() - start);
+
+        return id;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BlockFilter;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.Listener;
+
+/**
+ * A top level section of a document parsed lazily (see
+ * {@link AbstractDoxiaParser#parseLazily(java.io.Reader, org.xwiki.rendering.util.IdGenerator)}), whose content is
+ * parsed when it's accessed for the first time.
+ * <p>
+ * Reading or modifying the children of the section (including traversing or cloning it) parses it, as well as all the
+ * sections before it which haven't been parsed yet, so that the ids are generated in the same order as when parsing
+ * the whole document. A failure to parse the section is reported as an {@link IllegalStateException}. The level and
+ * title of the section header are known without parsing the section, see {@link #getHeaderLevel()} and
+ * {@link #getTitle()}.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class LazySectionBlock extends SectionBlock
+{
+    private final transient LazySections sections;
+
+    private final int index;
+
+    private final String title;
+
+    private volatile boolean parsed;
+
+    /**
+     * @param sections the sections of the document
+     * @param index the index of this section in the lazy sections of the document
+     * @param title the title of the section as written in its source, or {@code null} if unknown
+     */
+    LazySectionBlock(LazySections sections, int index, String title)
+    {
+        super(Collections.emptyList());
+
+        this.sections = sections;
+        this.index = index;
+        this.title = title;
+    }
+
+    /**
+     * @return the level of the section header, which is always {@link HeaderLevel#LEVEL1} since the lazy sections are
+     *         the top level sections of the document
+     */
+    public HeaderLevel getHeaderLevel()
+    {
+        return HeaderLevel.LEVEL1;
+    }
+
+    /**
+     * @return the title of the section as written in its source (the inline markup is not parsed), or {@code null} if
+     *         it's not known without parsing the section; reading it doesn't parse the section
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return {@code true} if the content of the section has already been parsed
+     */
+    public boolean isParsed()
+    {
+        return this.parsed;
+    }
+
+    /**
+     * @return the source of the section, or {@code null} if it has already been parsed (the source isn't kept)
+     */
+    public String getSource()
+    {
+        return this.parsed ? null : this.sections.getSource(this.index);
+    }
+
+    /**
+     * @param blocks the result of the parsing of the source of the section
+     */
+    void setContent(List<Block> blocks)
+    {
+        this.parsed = true;
+
+        // The source of a section produces a single section block, unwrap it
+        if (blocks.size() == 1 && blocks.get(0) instanceof SectionBlock) {
+            SectionBlock section = (SectionBlock) blocks.get(0);
+            setParameters(section.getParameters());
+            setChildren(section.getChildren());
+        } else {
+            setChildren(blocks);
+        }
+    }
+
+    private void parse()
+    {
+        // The sections are not set yet when the AbstractBlock constructor adds the (empty) initial children
+        if (!this.parsed && this.sections != null) {
+            this.sections.parse(this.index);
+        }
+    }
+
+    @Override
+    public List<Block> getChildren()
+    {
+        parse();
+
+        return super.getChildren();
+    }
+
+    @Override
+    public void addChild(Block blockToAdd)
+    {
+        parse();
+
+        super.addChild(blockToAdd);
+    }
+
+    @Override
+    public void addChildren(List<? extends Block> blocksToAdd)
+    {
+        parse();
+
+        super.addChildren(blocksToAdd);
+    }
+
+    @Override
+    public void setChildren(List<? extends Block> children)
+    {
+        parse();
+
+        super.setChildren(children);
+    }
+
+    @Override
+    public void insertChildBefore(Block blockToInsert, Block nextBlock)
+    {
+        parse();
+
+        super.insertChildBefore(blockToInsert, nextBlock);
+    }
+
+    @Override
+    public void insertChildAfter(Block blockToInsert, Block previousBlock)
+    {
+        parse();
+
+        super.insertChildAfter(blockToInsert, previousBlock);
+    }
+
+    @Override
+    public void replaceChild(Block newBlock, Block oldBlock)
+    {
+        parse();
+
+        super.replaceChild(newBlock, oldBlock);
+    }
+
+    @Override
+    public void replaceChild(List<Block> newBlocks, Block oldBlock)
+    {
+        parse();
+
+        super.replaceChild(newBlocks, oldBlock);
+    }
+
+    @Override
+    public void removeBlock(Block childBlockToRemove)
+    {
+        parse();
+
+        super.removeBlock(childBlockToRemove);
+    }
+
+    @Override
+    public void traverse(Listener listener)
+    {
+        parse();
+
+        super.traverse(listener);
+    }
+
+    @Override
+    public Block clone(BlockFilter blockFilter)
+    {
+        parse();
+
+        return super.clone(blockFilter);
+    }
+}
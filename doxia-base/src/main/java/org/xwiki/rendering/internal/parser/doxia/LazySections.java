@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * The sections of a document parsed lazily (see {@link AbstractDoxiaParser#parseLazily(java.io.Reader, IdGenerator)}),
+ * parsed in order on demand from the retained source of the document.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class LazySections
+{
+    private final AbstractDoxiaParser parser;
+
+    /**
+     * The boundaries of the sections in {@link #source}: section {@code i} goes from {@code offsets[i]} to
+     * {@code offsets[i + 1]}.
+     */
+    private final int[] offsets;
+
+    private final IdGenerator idGenerator;
+
+    private final LazySectionBlock[] blocks;
+
+    /**
+     * The source of the document, released once all the sections have been parsed.
+     */
+    private String source;
+
+    /**
+     * The number of sections already parsed.
+     */
+    private int parsedCount;
+
+    /**
+     * @param parser the parser used to parse the sections
+     * @param source the source of the document
+     * @param offsets the boundaries of the sections in the source, see {@link #offsets}
+     * @param idGenerator the generator used to generate unique ids for the header and image blocks
+     */
+    LazySections(AbstractDoxiaParser parser, String source, int[] offsets, IdGenerator idGenerator)
+    {
+        this.parser = parser;
+        this.source = source;
+        this.offsets = offsets;
+        this.idGenerator = idGenerator;
+
+        this.blocks = new LazySectionBlock[offsets.length - 1];
+        for (int i = 0; i < this.blocks.length; ++i) {
+            this.blocks[i] = new LazySectionBlock(this, i, parser.getSectionTitle(getSource(i)));
+        }
+    }
+
+    /**
+     * @return the blocks representing the sections
+     */
+    List<LazySectionBlock> getBlocks()
+    {
+        return Arrays.asList(this.blocks);
+    }
+
+    /**
+     * @param index the index of a section
+     * @return the source of the section, or {@code null} if it has already been parsed
+     */
+    synchronized String getSource(int index)
+    {
+        return index < this.parsedCount ? null : this.source.substring(this.offsets[index], this.offsets[index + 1]);
+    }
+
+    /**
+     * Parse the specified section and all the sections before it which haven't been parsed yet.
+     *
+     * @param index the index of the section to parse
+     */
+    synchronized void parse(int index)
+    {
+        while (this.parsedCount <= index) {
+            int offset = this.offsets[this.parsedCount];
+
+            DoxiaIncrementalContext.ParsedSection parsedSection;
+            try {
+                parsedSection = this.parser.parseSection(getSource(this.parsedCount));
+            } catch (ParseException e) {
+                throw new IllegalStateException(
+                    String.format("Failed to parse the section starting at offset [%d]", offset), e);
+            }
+
+            XDOM xdom = parsedSection.getXDOM();
+            RecordingIdGenerator.replay(parsedSection.getIdRequests(), this.idGenerator, xdom.getChildren());
+            this.blocks[this.parsedCount].setContent(xdom.getChildren());
+
+            if (++this.parsedCount == this.blocks.length) {
+                this.source = null;
+            }
+        }
+    }
+}
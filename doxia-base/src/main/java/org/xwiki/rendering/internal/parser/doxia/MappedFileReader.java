@@ -0,0 +1,222 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Reader} which maps a file in memory (one window at a time) and decodes it in chunks into a single reusable
+ * {@link CharBuffer}, so that very large files can be parsed without materializing their content on the heap.
+ * <p>
+ * Malformed and unmappable input is replaced, like {@link java.io.InputStreamReader} does. This reader is not thread
+ * safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class MappedFileReader extends Reader
+{
+    /**
+     * Default size of the mapped windows (64MB).
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Default size of the decoded characters buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Minimum size of the mapped windows, large enough to contain any encoded character (e.g. a supplementary
+     * character takes 4 bytes in UTF-8 while the maximum number of bytes per char of the UTF-8 encoder is 3).
+     */
+    private static final int MIN_WINDOW_SIZE = 64;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int windowSize;
+
+    private final CharsetDecoder decoder;
+
+    /**
+     * The decoded characters, in read mode.
+     */
+    private final CharBuffer chars;
+
+    /**
+     * The currently mapped part of the file.
+     */
+    private ByteBuffer window = EMPTY;
+
+    /**
+     * The offset in the file of the first byte of the current window.
+     */
+    private long windowOffset;
+
+    /**
+     * Indicate if the decoder was flushed, i.e. all the characters were decoded.
+     */
+    private boolean flushed;
+
+    /**
+     * @param path the file to read
+     * @param charset the encoding of the file
+     * @throws IOException when failing to open the file
+     */
+    public MappedFileReader(Path path, Charset charset) throws IOException
+    {
+        this(path, charset, DEFAULT_WINDOW_SIZE, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param path the file to read
+     * @param charset the encoding of the file
+     * @param windowSize the maximum number of bytes mapped at the same time
+     * @param bufferSize the size of the decoded characters buffer
+     * @throws IOException when failing to open the file
+     */
+    public MappedFileReader(Path path, Charset charset, int windowSize, int bufferSize) throws IOException
+    {
+        this.windowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(Math.max(bufferSize, 2));
+        this.chars.flip();
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+        } catch (IOException e) {
+            this.channel.close();
+
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+        ensureOpen();
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!this.chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        int count = Math.min(len, this.chars.remaining());
+        this.chars.get(cbuf, off, count);
+
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        ensureOpen();
+
+        if (!this.chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        return this.chars.get();
+    }
+
+    @Override
+    public boolean ready() throws IOException
+    {
+        ensureOpen();
+
+        return this.chars.hasRemaining() || !this.flushed;
+    }
+
+    private boolean fill() throws IOException
+    {
+        this.chars.clear();
+
+        while (this.chars.position() == 0 && !this.flushed) {
+            boolean last = this.windowOffset + this.window.limit() >= this.size;
+
+            CoderResult result = this.decoder.decode(this.window, this.chars, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            if (result.isUnderflow()) {
+                if (last) {
+                    if (this.decoder.flush(this.chars).isUnderflow()) {
+                        this.flushed = true;
+                    }
+                } else if (this.window.position() == 0 && this.window.hasRemaining()) {
+                    // Mapping the same window again would loop forever
+                    throw new IOException(String.format("Failed to decode the bytes at offset [%d]",
+                        this.windowOffset));
+                } else {
+                    // Map the next window starting with the bytes the decoder could not consume yet (the beginning of
+                    // a character split between two windows)
+                    map(this.windowOffset + this.window.position());
+                }
+            }
+        }
+
+        this.chars.flip();
+
+        return this.chars.hasRemaining();
+    }
+
+    private void map(long offset) throws IOException
+    {
+        this.windowOffset = offset;
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(this.windowSize,
+            this.size - offset));
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if (!this.channel.isOpen()) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // The mapped memory is released when the window is garbage collected
+        this.window = EMPTY;
+        this.channel.close();
+    }
+}
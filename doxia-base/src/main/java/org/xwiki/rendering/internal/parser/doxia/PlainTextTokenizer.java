@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import org.xwiki.rendering.listener.Listener;
+
+/**
+ * Split some text into words, spaces, special symbols and new lines, emitting the matching inline events directly to a
+ * {@link Listener}.
+ * <p>
+ * This produces the same events as parsing the text with the {@code plain/1.0} parser wrapped in an
+ * {@link org.xwiki.rendering.listener.InlineFilterListener} but without allocating any Reader, Listener or parser for
+ * each call. A tokenizer instance reuses its internal word buffer and is thus not thread safe.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class PlainTextTokenizer
+{
+    /**
+     * The special symbols, as defined by the plain text parser.
+     */
+    private static final String SPECIAL_SYMBOLS = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+    /**
+     * Fast lookup table for the special symbols, indexed by character.
+     */
+    private static final boolean[] SPECIAL_SYMBOL_TABLE = new boolean[128];
+
+    static {
+        for (int i = 0; i < SPECIAL_SYMBOLS.length(); ++i) {
+            SPECIAL_SYMBOL_TABLE[SPECIAL_SYMBOLS.charAt(i)] = true;
+        }
+    }
+
+    /**
+     * The characters of the word being read, reused between calls.
+     */
+    private final StringBuilder word = new StringBuilder();
+
+    /**
+     * @param c the character to check
+     * @return true if the passed character is a special symbol
+     */
+    public static boolean isSpecialSymbol(char c)
+    {
+        return c < SPECIAL_SYMBOL_TABLE.length && SPECIAL_SYMBOL_TABLE[c];
+    }
+
+    /**
+     * @param text the text to split
+     * @param listener the listener to which to send the word, space, special symbol and new line events
+     */
+    public void tokenize(CharSequence text, Listener listener)
+    {
+        int length = text.length();
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                flushWord(listener);
+                listener.onNewLine();
+            } else if (c == '\r') {
+                // Skipped, like the plain text parser does
+                continue;
+            } else if (c == ' ') {
+                flushWord(listener);
+                listener.onSpace();
+            } else if (isSpecialSymbol(c)) {
+                flushWord(listener);
+                listener.onSpecialSymbol(c);
+            } else {
+                this.word.append(c);
+            }
+        }
+
+        flushWord(listener);
+    }
+
+    private void flushWord(Listener listener)
+    {
+        if (this.word.length() > 0) {
+            listener.onWord(this.word.toString());
+            this.word.setLength(0);
+        }
+    }
+}
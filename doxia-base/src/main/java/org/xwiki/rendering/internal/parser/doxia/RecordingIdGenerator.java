@@ -0,0 +1,200 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.ImageBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * An {@link IdGenerator} which delegates to another generator while recording the generated ids, so that the id
+ * generation can later be replayed against a different generator (e.g. when reusing a cached parse result).
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class RecordingIdGenerator extends IdGenerator
+{
+    /**
+     * The generator to which to delegate the id generation.
+     */
+    private final IdGenerator delegate;
+
+    /**
+     * The recorded id generations, in order.
+     */
+    private final List<IdRequest> requests = new ArrayList<>();
+
+    /**
+     * A recorded id generation.
+     *
+     * @version $Id$
+     */
+    public static final class IdRequest
+    {
+        /**
+         * @see #getPrefix()
+         */
+        private final String prefix;
+
+        /**
+         * @see #getText()
+         */
+        private final String text;
+
+        /**
+         * @see #getId()
+         */
+        private final String id;
+
+        /**
+         * @param prefix the prefix passed to the generator
+         * @param text the text passed to the generator
+         * @param id the generated id
+         */
+        public IdRequest(String prefix, String text, String id)
+        {
+            this.prefix = prefix;
+            this.text = text;
+            this.id = id;
+        }
+
+        /**
+         * @return the prefix passed to the generator
+         */
+        public String getPrefix()
+        {
+            return this.prefix;
+        }
+
+        /**
+         * @return the text passed to the generator
+         */
+        public String getText()
+        {
+            return this.text;
+        }
+
+        /**
+         * @return the generated id
+         */
+        public String getId()
+        {
+            return this.id;
+        }
+    }
+
+    /**
+     * Record the ids generated by a new {@link IdGenerator}.
+     */
+    public RecordingIdGenerator()
+    {
+        this(new IdGenerator());
+    }
+
+    /**
+     * @param delegate the generator to which to delegate the id generation
+     */
+    public RecordingIdGenerator(IdGenerator delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String generateUniqueId(String prefix, String text)
+    {
+        String id = this.delegate.generateUniqueId(prefix, text);
+
+        this.requests.add(new IdRequest(prefix, text, id));
+
+        return id;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.delegate.reset();
+        this.requests.clear();
+    }
+
+    /**
+     * @return the recorded id generations, in order
+     */
+    public List<IdRequest> getRequests()
+    {
+        return Collections.unmodifiableList(this.requests);
+    }
+
+    /**
+     * Replay some recorded id generations against the passed generator and update the ids of the header and image
+     * blocks which end up with a different id. This produces the same ids as if the blocks had been parsed with the
+     * passed generator.
+     *
+     * @param requests the recorded id generations, in order
+     * @param idGenerator the generator against which to replay the id generations
+     * @param blocks the blocks produced while recording the id generations
+     */
+    public static void replay(List<IdRequest> requests, IdGenerator idGenerator, List<? extends Block> blocks)
+    {
+        Map<String, String> changedIds = new HashMap<>();
+        for (IdRequest request : requests) {
+            String id = idGenerator.generateUniqueId(request.getPrefix(), request.getText());
+            if (!id.equals(request.getId())) {
+                changedIds.put(request.getId(), id);
+            }
+        }
+
+        if (!changedIds.isEmpty()) {
+            // Iterate over a copy since top level blocks might be replaced
+            for (Block block : new ArrayList<>(blocks)) {
+                updateIds(block, changedIds);
+            }
+        }
+    }
+
+    private static void updateIds(Block root, Map<String, String> changedIds)
+    {
+        for (HeaderBlock header : root.<HeaderBlock>getBlocks(new ClassBlockMatcher(HeaderBlock.class),
+            Block.Axes.DESCENDANT_OR_SELF)) {
+            String id = changedIds.get(header.getId());
+            if (id != null) {
+                header.getParent().replaceChild(
+                    new HeaderBlock(header.getChildren(), header.getLevel(), header.getParameters(), id), header);
+            }
+        }
+
+        for (ImageBlock image : root.<ImageBlock>getBlocks(new ClassBlockMatcher(ImageBlock.class),
+            Block.Axes.DESCENDANT_OR_SELF)) {
+            String id = changedIds.get(image.getId());
+            if (id != null) {
+                image.getParent().replaceChild(
+                    new ImageBlock(image.getReference(), image.isFreeStandingURI(), id, image.getParameters()), image);
+            }
+        }
+    }
+}
@@ -19,31 +19,23 @@
  */
 package org.xwiki.rendering.internal.parser.doxia;
 
-import java.io.StringReader;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
 
 import org.apache.maven.doxia.sink.SinkEventAttributes;
 import org.apache.maven.doxia.sink.impl.SinkAdapter;
-import org.xwiki.rendering.listener.CompositeListener;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.HeaderLevel;
-import org.xwiki.rendering.listener.InlineFilterListener;
 import org.xwiki.rendering.listener.ListType;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
-import org.xwiki.rendering.listener.QueueListener;
 import org.xwiki.rendering.listener.VoidListener;
-import org.xwiki.rendering.listener.WrappingListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
-import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
 import org.xwiki.rendering.parser.StreamParser;
-import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.util.IdGenerator;
 
@@ -65,7 +57,7 @@ public class XWikiGeneratorSink extends SinkAdapter
 
     private PrintRendererFactory plainRendererFactory;
 
-    private StreamParser plainParser;
+    private PlainTextTokenizer textTokenizer = new PlainTextTokenizer();
 
     private int lineBreaks;
 
@@ -81,16 +73,28 @@ public class XWikiGeneratorSink extends SinkAdapter
 
     /**
      * @since 3.0M3
+     * @deprecated since 16.9.0 the plain text parser is not used anymore, use
+     *             {@link #XWikiGeneratorSink(Listener, ResourceReferenceParser, PrintRendererFactory, IdGenerator,
+     *             Syntax)} instead
      */
+    @Deprecated
     public XWikiGeneratorSink(Listener listener, ResourceReferenceParser linkReferenceParser,
         PrintRendererFactory plainRendererFactory, IdGenerator idGenerator, StreamParser plainParser, Syntax syntax)
+    {
+        this(listener, linkReferenceParser, plainRendererFactory, idGenerator, syntax);
+    }
+
+    /**
+     * @since 16.9.0
+     */
+    public XWikiGeneratorSink(Listener listener, ResourceReferenceParser linkReferenceParser,
+        PrintRendererFactory plainRendererFactory, IdGenerator idGenerator, Syntax syntax)
     {
         pushListener(listener);
 
         this.linkReferenceParser = linkReferenceParser;
         this.idGenerator = idGenerator != null ? idGenerator : new IdGenerator();
         this.plainRendererFactory = plainRendererFactory;
-        this.plainParser = plainParser;
         this.syntax = syntax;
         this.documentMetadata = new MetaData();
         this.documentMetadata.addMetaData(MetaData.SYNTAX, this.syntax);
@@ -703,12 +707,8 @@ public class XWikiGeneratorSink extends SinkAdapter
     {
         flushEmptyLines();
 
-        CompositeListener composite = new CompositeListener();
-
-        composite.addListener(new QueueListener());
-        composite.addListener(this.plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
-
-        pushListener(composite);
+        // Buffer the title events until we know the header id, accumulating its plain text at the same time
+        pushListener(new HeaderTextListener());
 
         ++this.inlineDepth;
     }
@@ -724,23 +724,28 @@ public class XWikiGeneratorSink extends SinkAdapter
     {
         flushEmptyLines();
 
-        CompositeListener composite = (CompositeListener) getListener();
-
-        QueueListener queue = (QueueListener) composite.getListener(0);
-        PrintRenderer renderer = (PrintRenderer) composite.getListener(1);
-
-        popListener();
+        HeaderTextListener title = (HeaderTextListener) popListener();
 
         HeaderLevel headerLevel = HeaderLevel.parseInt(level);
-        String id = this.idGenerator.generateUniqueId("H", renderer.getPrinter().toString());
+        String id = generateHeaderId(title);
 
         getListener().beginHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
-        queue.consumeEvents(getListener());
+        title.consumeEvents(getListener());
         getListener().endHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
 
         --this.inlineDepth;
     }
 
+    /**
+     * @param title the events of the header title
+     * @return the unique id of the header, generated from the plain text of its title
+     * @since 16.9.0
+     */
+    protected String generateHeaderId(HeaderTextListener title)
+    {
+        return this.idGenerator.generateUniqueId("H", title.toPlainText(this.plainRendererFactory));
+    }
+
     @Override
     public void sectionTitle_()
     {
@@ -964,20 +969,20 @@ public class XWikiGeneratorSink extends SinkAdapter
         }
 
         // TODO Handle parameters
-        // Since Doxia doesn't generate events at the word level we need to reparse the
-        // text to extract spaces, special symbols and words.
-
-        // TODO: Use an inline parser. See https://jira.xwiki.org/browse/XWIKI-2748
-        WrappingListener inlineFilterListener = new InlineFilterListener();
-        inlineFilterListener.setWrappedListener(getListener());
-
-        // Parse the text using the plain text parser
-        try {
-            this.plainParser.parse(new StringReader(text), inlineFilterListener);
-        } catch (ParseException e) {
-            // Shouldn't happen since we use a StringReader which shouldn't generate any IO.
-            throw new RuntimeException("Failed to parse raw text [" + text + "]", e);
-        }
+        // Since Doxia doesn't generate events at the word level we need to split the text to extract spaces, special
+        // symbols and words.
+        tokenizeText(text);
+    }
+
+    /**
+     * Split the passed text into word, space and special symbol events sent to the current listener.
+     *
+     * @param text the text to split
+     * @since 16.9.0
+     */
+    protected void tokenizeText(String text)
+    {
+        this.textTokenizer.tokenize(text, getListener());
     }
 
     @Override
@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a batch parsing: the result of each document, in the order of the sources, and aggregated statistics.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class BatchParseResult
+{
+    /**
+     * @see #getResults()
+     */
+    private final List<DocumentParseResult> results;
+
+    /**
+     * @see #getStatistics()
+     */
+    private final BatchParseStatistics statistics;
+
+    /**
+     * @param results the result of each document, in the order of the sources
+     * @param statistics the aggregated statistics
+     */
+    public BatchParseResult(List<DocumentParseResult> results, BatchParseStatistics statistics)
+    {
+        this.results = Collections.unmodifiableList(results);
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the result of each document, in the order of the sources
+     */
+    public List<DocumentParseResult> getResults()
+    {
+        return this.results;
+    }
+
+    /**
+     * @return the aggregated statistics
+     */
+    public BatchParseStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+}
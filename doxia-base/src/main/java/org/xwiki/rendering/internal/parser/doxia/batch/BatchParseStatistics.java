@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregated statistics of a batch parsing.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class BatchParseStatistics
+{
+    /**
+     * @see #getDocumentCount()
+     */
+    private final int documentCount;
+
+    /**
+     * @see #getFailureCount()
+     */
+    private final int failureCount;
+
+    /**
+     * @see #getConsumerErrors()
+     */
+    private final List<RuntimeException> consumerErrors;
+
+    /**
+     * @see #getElapsedTime()
+     */
+    private final long elapsedTime;
+
+    /**
+     * @see #getCumulatedParseTime()
+     */
+    private final long cumulatedParseTime;
+
+    /**
+     * @param documentCount the number of documents of the batch
+     * @param failureCount the number of documents which failed to be parsed
+     * @param consumerErrors the failures of the consumer of the results
+     * @param elapsedTime the wall-clock time taken by the whole batch, in nanoseconds
+     * @param cumulatedParseTime the sum of the time taken by each document, in nanoseconds
+     */
+    public BatchParseStatistics(int documentCount, int failureCount, List<RuntimeException> consumerErrors,
+        long elapsedTime, long cumulatedParseTime)
+    {
+        this.documentCount = documentCount;
+        this.failureCount = failureCount;
+        this.consumerErrors = Collections.unmodifiableList(consumerErrors);
+        this.elapsedTime = elapsedTime;
+        this.cumulatedParseTime = cumulatedParseTime;
+    }
+
+    /**
+     * @return the number of documents of the batch
+     */
+    public int getDocumentCount()
+    {
+        return this.documentCount;
+    }
+
+    /**
+     * @return the number of documents which failed to be parsed
+     */
+    public int getFailureCount()
+    {
+        return this.failureCount;
+    }
+
+    /**
+     * @return the exceptions thrown by the consumer of the results, one for each document it failed to handle
+     */
+    public List<RuntimeException> getConsumerErrors()
+    {
+        return this.consumerErrors;
+    }
+
+    /**
+     * @return the wall-clock time taken by the whole batch, in nanoseconds
+     */
+    public long getElapsedTime()
+    {
+        return this.elapsedTime;
+    }
+
+    /**
+     * @return the sum of the time taken by each document, in nanoseconds
+     */
+    public long getCumulatedParseTime()
+    {
+        return this.cumulatedParseTime;
+    }
+
+    /**
+     * @return the number of documents parsed per second
+     */
+    public double getThroughput()
+    {
+        if (this.elapsedTime == 0) {
+            return 0;
+        }
+
+        return this.documentCount * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedTime;
+    }
+
+    /**
+     * @return the average number of documents parsed at the same time (cumulated parse time divided by elapsed time)
+     */
+    public double getParallelism()
+    {
+        if (this.elapsedTime == 0) {
+            return 0;
+        }
+
+        return (double) this.cumulatedParseTime / this.elapsedTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "%d documents (%d failures, %d consumer failures) in %d ms, %.1f documents/s, parallelism %.1f",
+            this.documentCount, this.failureCount, this.consumerErrors.size(),
+            TimeUnit.NANOSECONDS.toMillis(this.elapsedTime), getThroughput(), getParallelism());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * A document to parse with {@link DoxiaBatchParser}. The content is opened lazily, from the thread parsing it, so that
+ * large batches don't keep many files open or many documents in memory.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class BatchSource
+{
+    /**
+     * @see #getId()
+     */
+    private final String id;
+
+    /**
+     * Open the content of the document.
+     */
+    private final Callable<Reader> opener;
+
+    /**
+     * @param id identify the document in the results (e.g. a file path or a page reference)
+     * @param opener open the content of the document, the returned reader is closed once parsed
+     */
+    public BatchSource(String id, Callable<Reader> opener)
+    {
+        this.id = id;
+        this.opener = opener;
+    }
+
+    /**
+     * @param path the file to parse
+     * @param charset the encoding of the file
+     * @return the source
+     */
+    public static BatchSource fromPath(Path path, Charset charset)
+    {
+        return new BatchSource(path.toString(), () -> Files.newBufferedReader(path, charset));
+    }
+
+    /**
+     * @param id identify the document in the results
+     * @param content the content to parse
+     * @return the source
+     */
+    public static BatchSource fromString(String id, String content)
+    {
+        return new BatchSource(id, () -> new StringReader(content));
+    }
+
+    /**
+     * @return the identifier of the document in the results
+     */
+    public String getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the content of the document
+     * @throws Exception when failing to open the content
+     */
+    public Reader open() throws Exception
+    {
+        return this.opener.call();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.id;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * The result of the parsing of a single document of a batch: either an XDOM or the failure.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DocumentParseResult
+{
+    /**
+     * @see #getSource()
+     */
+    private final BatchSource source;
+
+    /**
+     * @see #getXDOM()
+     */
+    private final XDOM xdom;
+
+    /**
+     * @see #getError()
+     */
+    private final Exception error;
+
+    /**
+     * @see #getDuration()
+     */
+    private final long duration;
+
+    /**
+     * @param source the parsed source
+     * @param xdom the result of the parsing, null if it failed
+     * @param error the failure, null if the parsing succeeded
+     * @param duration the time taken to parse the document, in nanoseconds
+     */
+    public DocumentParseResult(BatchSource source, XDOM xdom, Exception error, long duration)
+    {
+        this.source = source;
+        this.xdom = xdom;
+        this.error = error;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the parsed source
+     */
+    public BatchSource getSource()
+    {
+        return this.source;
+    }
+
+    /**
+     * @return true if the document was parsed successfully
+     */
+    public boolean isSuccess()
+    {
+        return this.error == null;
+    }
+
+    /**
+     * @return the result of the parsing, null if it failed
+     */
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @return the failure, null if the parsing succeeded
+     */
+    public Exception getError()
+    {
+        return this.error;
+    }
+
+    /**
+     * @return the time taken to open and parse the document, in nanoseconds
+     */
+    public long getDuration()
+    {
+        return this.duration;
+    }
+}
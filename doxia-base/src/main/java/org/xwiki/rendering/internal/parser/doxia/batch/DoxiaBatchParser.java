@@ -0,0 +1,196 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Parse many documents concurrently with a given parser (typically one of the Doxia based parsers, which are thread
+ * safe), for example to migrate a whole legacy TWiki or APT site.
+ * <p>
+ * Documents are parsed on the passed {@link Executor}: by default the common {@link ForkJoinPool}, but a dedicated
+ * {@code ForkJoinPool} or a virtual thread per task executor can be used as well. At most {@code parallelism}
+ * documents are submitted to the executor and not yet handed to the consumer at any time, so that a large batch
+ * doesn't keep all its documents in memory. A failure to open or parse a document doesn't stop the batch, it's
+ * reported in the result of that document, and a failure of the consumer is reported in the statistics.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DoxiaBatchParser
+{
+    /**
+     * The parser used for each document.
+     */
+    private final Parser parser;
+
+    /**
+     * The executor on which the documents are parsed.
+     */
+    private final Executor executor;
+
+    /**
+     * The maximum number of documents being parsed or consumed at the same time.
+     */
+    private final int parallelism;
+
+    /**
+     * Parse documents on the common {@link ForkJoinPool}, as many at the same time as its parallelism.
+     *
+     * @param parser the parser used for each document
+     */
+    public DoxiaBatchParser(Parser parser)
+    {
+        this(parser, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Parse as many documents at the same time as the number of available processors.
+     *
+     * @param parser the parser used for each document, must be thread safe
+     * @param executor the executor on which the documents are parsed
+     */
+    public DoxiaBatchParser(Parser parser, Executor executor)
+    {
+        this(parser, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parser the parser used for each document, must be thread safe
+     * @param executor the executor on which the documents are parsed
+     * @param parallelism the maximum number of documents submitted to the executor and not yet consumed at the same
+     *            time
+     */
+    public DoxiaBatchParser(Parser parser, Executor executor, int parallelism)
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism [%d]", parallelism));
+        }
+
+        this.parser = parser;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Parse all the passed documents and keep all the results in memory.
+     *
+     * @param sources the documents to parse
+     * @return the result of each document, in the order of the sources, and the aggregated statistics
+     */
+    public BatchParseResult parse(List<BatchSource> sources)
+    {
+        DocumentParseResult[] results = new DocumentParseResult[sources.size()];
+
+        BatchParseStatistics statistics = parse(sources, (result, index) -> results[index] = result);
+
+        return new BatchParseResult(Arrays.asList(results), statistics);
+    }
+
+    /**
+     * Parse all the passed documents and hand each result to the passed consumer as soon as it's available, without
+     * keeping them. This is the method to use for very large batches.
+     *
+     * @param sources the documents to parse
+     * @param consumer called with the result of each document, concurrently from the threads of the executor and in
+     *            no particular order
+     * @return the aggregated statistics
+     */
+    public BatchParseStatistics parse(List<BatchSource> sources, Consumer<DocumentParseResult> consumer)
+    {
+        return parse(sources, (result, index) -> consumer.accept(result));
+    }
+
+    private BatchParseStatistics parse(List<BatchSource> sources, ObjIntConsumer<DocumentParseResult> consumer)
+    {
+        long start = System.nanoTime();
+
+        LongAdder cumulatedParseTime = new LongAdder();
+        AtomicInteger failureCount = new AtomicInteger();
+        List<RuntimeException> consumerErrors = Collections.synchronizedList(new ArrayList<>());
+
+        Semaphore permits = new Semaphore(this.parallelism);
+        for (int i = 0; i < sources.size(); ++i) {
+            BatchSource source = sources.get(i);
+            int index = i;
+
+            // Wait for a document to be consumed before submitting a new one
+            permits.acquireUninterruptibly();
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        DocumentParseResult result = parse(source);
+
+                        cumulatedParseTime.add(result.getDuration());
+                        if (!result.isSuccess()) {
+                            failureCount.incrementAndGet();
+                        }
+
+                        consumer.accept(result, index);
+                    } catch (RuntimeException e) {
+                        // Don't lose the rest of the batch because of a single document
+                        consumerErrors.add(e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+
+                throw e;
+            }
+        }
+
+        // Wait for the last documents
+        permits.acquireUninterruptibly(this.parallelism);
+
+        return new BatchParseStatistics(sources.size(), failureCount.get(), new ArrayList<>(consumerErrors),
+            System.nanoTime() - start, cumulatedParseTime.sum());
+    }
+
+    private DocumentParseResult parse(BatchSource source)
+    {
+        long start = System.nanoTime();
+
+        try (Reader reader = source.open()) {
+            XDOM xdom = this.parser.parse(reader);
+
+            return new DocumentParseResult(source, xdom, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new DocumentParseResult(source, null, e, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.pipeline;
+
+import java.io.Reader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.xwiki.rendering.internal.parser.doxia.pipeline.EventRingBuffer.Event;
+import org.xwiki.rendering.internal.renderer.doxia.DoxiaWriterRenderer;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+
+/**
+ * Convert content from one syntax to another (e.g. APT to DocBook) without building the XDOM: the parser emits its
+ * events on the calling thread into a bounded {@link EventRingBuffer} while the renderer consumes them concurrently on
+ * another thread.
+ * <p>
+ * Parsing and rendering overlap and, since the parser waits when the buffer is full, the memory used by the
+ * conversion doesn't depend on the size of the document. Note that this only works with streaming parsers and
+ * renderers: the Doxia based parsers and renderers are, but a renderer needing the whole document (e.g. to generate a
+ * table of content) isn't.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class DoxiaPipelineConverter
+{
+    /**
+     * The default maximum number of events waiting to be rendered.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Render each conversion on a new dedicated thread. The renderer waits for the parser, so a shared pool (e.g. the
+     * common {@code ForkJoinPool}) could end up with all its threads busy waiting.
+     */
+    private static final Executor NEW_THREAD_EXECUTOR = runnable -> {
+        Thread thread = new Thread(runnable, "Doxia pipeline renderer");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final StreamParser parser;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    /**
+     * Render each conversion on a new thread, with a buffer of {@link #DEFAULT_CAPACITY} events.
+     *
+     * @param parser the parser of the source syntax
+     */
+    public DoxiaPipelineConverter(StreamParser parser)
+    {
+        this(parser, NEW_THREAD_EXECUTOR, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param parser the parser of the source syntax, must be thread safe to run several conversions concurrently
+     * @param executor the executor on which the renderers run; each conversion keeps one of its threads busy until the
+     *            end of the parsing
+     * @param capacity the maximum number of events waiting to be rendered
+     */
+    public DoxiaPipelineConverter(StreamParser parser, Executor executor, int capacity)
+    {
+        this.parser = parser;
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Parse the passed source and render it at the same time with the passed renderer.
+     *
+     * @param source the content to convert
+     * @param renderer the renderer of the target syntax, receiving the parsing events on another thread
+     * @throws ParseException when failing to parse or to render the content
+     */
+    public void convert(Reader source, PrintRenderer renderer) throws ParseException
+    {
+        EventRingBuffer buffer = new EventRingBuffer(this.capacity);
+
+        CompletableFuture<Void> rendering = CompletableFuture.runAsync(() -> render(buffer, renderer), this.executor);
+
+        try {
+            this.parser.parse(source, new RingBufferListener(buffer));
+        } catch (ParseException | RuntimeException e) {
+            // When the renderer fails the parser fails too since it can't add events anymore: report the failure of
+            // the renderer in this case
+            if (!buffer.isAborted()) {
+                throw e;
+            }
+        } finally {
+            buffer.close();
+        }
+
+        try {
+            rendering.join();
+        } catch (CompletionException e) {
+            throw new ParseException("Failed to render the parsed content", e.getCause());
+        }
+    }
+
+    private void render(EventRingBuffer buffer, PrintRenderer renderer)
+    {
+        try {
+            for (Event event = buffer.take(); event != null; event = buffer.take()) {
+                event.fire(renderer);
+            }
+
+            if (renderer instanceof DoxiaWriterRenderer) {
+                ((DoxiaWriterRenderer) renderer).flush();
+            }
+        } catch (RuntimeException | Error e) {
+            // Don't let the parser wait forever for room in the buffer
+            buffer.abort();
+
+            throw e;
+        }
+    }
+}
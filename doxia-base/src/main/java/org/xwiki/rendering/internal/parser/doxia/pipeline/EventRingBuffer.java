@@ -0,0 +1,232 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.chaining.EventType;
+
+/**
+ * A bounded, lock-free ring buffer of listener events with a single producer (the parser thread) and a single consumer
+ * (the renderer thread).
+ * <p>
+ * The producer waits when the buffer is full and the consumer waits when it's empty, so the number of events in memory
+ * never exceeds the capacity of the buffer. Waiting threads first spin, then yield and finally park for short periods:
+ * there's no lock and no signaling between the threads, only the two sequence counters.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class EventRingBuffer
+{
+    /**
+     * A listener event held by the buffer.
+     *
+     * @version $Id$
+     * @since 16.9.0
+     */
+    public static final class Event
+    {
+        private final EventType type;
+
+        private final Object[] parameters;
+
+        /**
+         * @param type the type of the event
+         * @param parameters the parameters of the event
+         */
+        public Event(EventType type, Object... parameters)
+        {
+            this.type = type;
+            this.parameters = parameters;
+        }
+
+        /**
+         * Send the event to the passed listener.
+         *
+         * @param listener the listener receiving the event
+         */
+        public void fire(Listener listener)
+        {
+            this.type.fireEvent(listener, this.parameters);
+        }
+    }
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 100;
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Event[] slots;
+
+    private final int mask;
+
+    /**
+     * The sequence of the next event to put, only written by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The sequence of the next event to take, only written by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The last value of {@link #head} read by the producer, to avoid reading the shared counter for each event.
+     */
+    private long cachedHead;
+
+    /**
+     * The last value of {@link #tail} read by the consumer, to avoid reading the shared counter for each event.
+     */
+    private long cachedTail;
+
+    private volatile boolean closed;
+
+    private volatile boolean aborted;
+
+    /**
+     * @param capacity the maximum number of events in the buffer, rounded up to the next power of two
+     */
+    public EventRingBuffer(int capacity)
+    {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Invalid ring buffer capacity [%d]", capacity));
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.slots = new Event[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the maximum number of events in the buffer
+     */
+    public int getCapacity()
+    {
+        return this.slots.length;
+    }
+
+    /**
+     * Add an event at the end of the buffer, waiting for the consumer to make room if the buffer is full. Must only be
+     * called by the producer thread.
+     *
+     * @param event the event to add
+     * @throws IllegalStateException if the consumer aborted
+     */
+    public void put(Event event)
+    {
+        long sequence = this.tail.get();
+        long wrapPoint = sequence - this.slots.length;
+        if (this.cachedHead <= wrapPoint) {
+            int tries = 0;
+            while ((this.cachedHead = this.head.get()) <= wrapPoint) {
+                if (this.aborted) {
+                    throw new IllegalStateException("The consumer of the event ring buffer aborted");
+                }
+                tries = idle(tries);
+            }
+        }
+
+        this.slots[(int) sequence & this.mask] = event;
+        // Publish the event (the ordered write makes the slot content visible before the new tail)
+        this.tail.lazySet(sequence + 1);
+    }
+
+    /**
+     * Indicate that the producer won't add any more event. Must only be called by the producer thread.
+     */
+    public void close()
+    {
+        this.closed = true;
+    }
+
+    /**
+     * Take the first event of the buffer, waiting for the producer if the buffer is empty. Must only be called by the
+     * consumer thread.
+     *
+     * @return the first event of the buffer or {@code null} if the buffer is closed and all its events have been taken
+     */
+    public Event take()
+    {
+        long sequence = this.head.get();
+        if (this.cachedTail <= sequence) {
+            int tries = 0;
+            while ((this.cachedTail = this.tail.get()) <= sequence) {
+                if (this.closed) {
+                    // Read the tail again since the producer might have published events before closing the buffer
+                    this.cachedTail = this.tail.get();
+                    if (this.cachedTail <= sequence) {
+                        return null;
+                    }
+                    break;
+                }
+                tries = idle(tries);
+            }
+        }
+
+        int index = (int) sequence & this.mask;
+        Event event = this.slots[index];
+        // Don't keep a reference to the consumed event
+        this.slots[index] = null;
+        this.head.lazySet(sequence + 1);
+
+        return event;
+    }
+
+    /**
+     * Indicate that the consumer stopped taking events, so that the producer fails instead of waiting forever. Can be
+     * called by any thread.
+     */
+    public void abort()
+    {
+        this.aborted = true;
+    }
+
+    /**
+     * @return {@code true} if the consumer stopped taking events
+     */
+    public boolean isAborted()
+    {
+        return this.aborted;
+    }
+
+    private int idle(int tries)
+    {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        return tries + 1;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.pipeline;
+
+import org.xwiki.rendering.internal.parser.doxia.AbstractEventTypeListener;
+import org.xwiki.rendering.internal.parser.doxia.pipeline.EventRingBuffer.Event;
+import org.xwiki.rendering.listener.chaining.EventType;
+
+/**
+ * A {@link org.xwiki.rendering.listener.Listener} putting each event it receives in an {@link EventRingBuffer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class RingBufferListener extends AbstractEventTypeListener
+{
+    private final EventRingBuffer buffer;
+
+    /**
+     * @param buffer the buffer receiving the events
+     */
+    public RingBufferListener(EventRingBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    @Override
+    protected void onEvent(EventType eventType, Object... parameters)
+    {
+        this.buffer.put(new Event(eventType, parameters));
+    }
+}
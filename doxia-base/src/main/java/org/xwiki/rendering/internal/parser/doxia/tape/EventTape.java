@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.tape;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded stream of rendering events in a compact binary format, produced by {@link EventTapeRecorder} and replayed
+ * by {@link EventTapePlayer}. The content of a tape is kept outside of the Java heap, either in a direct buffer or in a
+ * memory mapped file.
+ * <p>
+ * A tape is immutable and can be replayed any number of times, concurrently.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class EventTape
+{
+    /**
+     * The content of the tape, between 0 and its limit.
+     */
+    private final ByteBuffer content;
+
+    /**
+     * @param content the content of the tape, between its position and its limit
+     */
+    EventTape(ByteBuffer content)
+    {
+        this.content = content.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a new read only buffer positioned at the beginning of the tape
+     */
+    public ByteBuffer getContent()
+    {
+        return this.content.duplicate();
+    }
+
+    /**
+     * @return the size of the tape in bytes
+     */
+    public int getSize()
+    {
+        return this.content.limit();
+    }
+
+    /**
+     * @param path the file in which to save the tape, replaced if it already exists
+     * @throws IOException when failing to write the file
+     */
+    public void save(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = getContent();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Load a tape previously saved with {@link #save(Path)}. The file is mapped in memory and not read.
+     *
+     * @param path the file containing the tape
+     * @return the tape
+     * @throws IOException when failing to map the file
+     */
+    public static EventTape load(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new EventTape(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+}
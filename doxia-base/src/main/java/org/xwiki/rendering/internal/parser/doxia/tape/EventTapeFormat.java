@@ -0,0 +1,76 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.tape;
+
+/**
+ * Constants of the binary format of the {@link EventTape}s.
+ * <p>
+ * A tape starts with {@link #MAGIC}, {@link #VERSION} and the names of the event types in the order of their opcodes.
+ * Then each event is made of its opcode and its number of parameters (both varints), followed by the parameters. Each
+ * value starts with a tag byte. Strings are stored in a table built while recording: the first occurrence of a string
+ * contains its UTF-8 bytes and the next ones only its index in the table.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+final class EventTapeFormat
+{
+    static final byte[] MAGIC = { 'X', 'E', 'T' };
+
+    static final byte VERSION = 1;
+
+    static final byte NULL = 0;
+
+    static final byte NEW_STRING = 1;
+
+    static final byte STRING = 2;
+
+    static final byte TRUE = 3;
+
+    static final byte FALSE = 4;
+
+    static final byte INTEGER = 5;
+
+    static final byte CHARACTER = 6;
+
+    static final byte EMPTY_MAP = 7;
+
+    static final byte MAP = 8;
+
+    static final byte FORMAT = 9;
+
+    static final byte LIST_TYPE = 10;
+
+    static final byte HEADER_LEVEL = 11;
+
+    static final byte RESOURCE_REFERENCE = 12;
+
+    static final byte SYNTAX = 13;
+
+    static final byte METADATA = 14;
+
+    static final byte LONG = 15;
+
+    private EventTapeFormat()
+    {
+        // Constants
+    }
+}
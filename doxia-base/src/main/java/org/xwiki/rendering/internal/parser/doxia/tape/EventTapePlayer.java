@@ -0,0 +1,248 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.tape;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.syntax.SyntaxType;
+
+/**
+ * Replay the events recorded in an {@link EventTape} into any {@link Listener}.
+ * <p>
+ * The player is stateless and thread safe: a tape can be replayed concurrently into several listeners.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class EventTapePlayer
+{
+    private static final Format[] FORMATS = Format.values();
+
+    private static final ListType[] LIST_TYPES = ListType.values();
+
+    private static final HeaderLevel[] HEADER_LEVELS = HeaderLevel.values();
+
+    /**
+     * The state of a replay.
+     */
+    private static final class Replay
+    {
+        private final ByteBuffer buffer;
+
+        private final List<String> strings = new ArrayList<>();
+
+        Replay(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * @param tape the tape to replay
+     * @param listener the listener receiving the recorded events
+     */
+    public void play(EventTape tape, Listener listener)
+    {
+        Replay replay = new Replay(tape.getContent());
+
+        EventType[] eventTypes = readHeader(replay);
+
+        while (replay.buffer.hasRemaining()) {
+            int opcode = readVarint(replay);
+            EventType eventType = opcode < eventTypes.length ? eventTypes[opcode] : null;
+            if (eventType == null) {
+                throw new IllegalStateException(String.format("Unsupported event opcode [%d]", opcode));
+            }
+
+            Object[] parameters = new Object[readVarint(replay)];
+            for (int i = 0; i < parameters.length; ++i) {
+                parameters[i] = readValue(replay);
+            }
+
+            eventType.fireEvent(listener, parameters);
+        }
+    }
+
+    private EventType[] readHeader(Replay replay)
+    {
+        byte[] magic = new byte[EventTapeFormat.MAGIC.length];
+        replay.buffer.get(magic);
+        byte version = replay.buffer.get();
+        if (!Arrays.equals(magic, EventTapeFormat.MAGIC) || version != EventTapeFormat.VERSION) {
+            throw new IllegalStateException("Not a supported event tape");
+        }
+
+        // The opcodes are the ordinals of the event types when the tape was recorded, map them by name in case the
+        // event types changed since then (unknown event types are kept null and fail only if actually used)
+        EventType[] eventTypes = new EventType[readVarint(replay)];
+        for (int i = 0; i < eventTypes.length; ++i) {
+            String name = (String) readValue(replay);
+            for (EventType eventType : EventType.values()) {
+                if (eventType.name().equals(name)) {
+                    eventTypes[i] = eventType;
+                    break;
+                }
+            }
+        }
+
+        return eventTypes;
+    }
+
+    private Object readValue(Replay replay)
+    {
+        byte tag = replay.buffer.get();
+        switch (tag) {
+            case EventTapeFormat.NULL:
+                return null;
+            case EventTapeFormat.NEW_STRING:
+            case EventTapeFormat.STRING:
+                return readString(replay, tag);
+            case EventTapeFormat.TRUE:
+                return Boolean.TRUE;
+            case EventTapeFormat.FALSE:
+                return Boolean.FALSE;
+            case EventTapeFormat.INTEGER:
+                return readInteger(replay);
+            case EventTapeFormat.LONG:
+                return replay.buffer.getLong();
+            case EventTapeFormat.CHARACTER:
+                return (char) readVarint(replay);
+            case EventTapeFormat.EMPTY_MAP:
+                return Listener.EMPTY_PARAMETERS;
+            case EventTapeFormat.MAP:
+                return readMap(replay);
+            case EventTapeFormat.FORMAT:
+                return FORMATS[readVarint(replay)];
+            case EventTapeFormat.LIST_TYPE:
+                return LIST_TYPES[readVarint(replay)];
+            case EventTapeFormat.HEADER_LEVEL:
+                return HEADER_LEVELS[readVarint(replay)];
+            case EventTapeFormat.RESOURCE_REFERENCE:
+                return readResourceReference(replay);
+            case EventTapeFormat.SYNTAX:
+                return readSyntax(replay);
+            case EventTapeFormat.METADATA:
+                return readMetaData(replay);
+            default:
+                throw new IllegalStateException(String.format("Unsupported value tag [%d]", tag));
+        }
+    }
+
+    private Map<String, String> readMap(Replay replay)
+    {
+        int size = readVarint(replay);
+        Map<String, String> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; ++i) {
+            map.put((String) readValue(replay), (String) readValue(replay));
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private ResourceReference readResourceReference(Replay replay)
+    {
+        ResourceType type = new ResourceType((String) readValue(replay));
+        ResourceReference reference = new ResourceReference((String) readValue(replay), type);
+        reference.setTyped((Boolean) readValue(replay));
+        for (Map.Entry<?, ?> parameter : ((Map<?, ?>) readValue(replay)).entrySet()) {
+            reference.setParameter((String) parameter.getKey(), (String) parameter.getValue());
+        }
+
+        int baseReferenceCount = readVarint(replay);
+        for (int i = 0; i < baseReferenceCount; ++i) {
+            reference.addBaseReference((String) readValue(replay));
+        }
+
+        return reference;
+    }
+
+    private Syntax readSyntax(Replay replay)
+    {
+        SyntaxType type = new SyntaxType((String) readValue(replay), (String) readValue(replay));
+
+        return new Syntax(type, (String) readValue(replay));
+    }
+
+    private MetaData readMetaData(Replay replay)
+    {
+        MetaData metaData = new MetaData();
+
+        int size = readVarint(replay);
+        for (int i = 0; i < size; ++i) {
+            metaData.addMetaData((String) readValue(replay), readValue(replay));
+        }
+
+        return metaData;
+    }
+
+    private String readString(Replay replay, byte tag)
+    {
+        if (tag == EventTapeFormat.STRING) {
+            return replay.strings.get(readVarint(replay));
+        }
+
+        byte[] bytes = new byte[readVarint(replay)];
+        replay.buffer.get(bytes);
+
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        replay.strings.add(value);
+
+        return value;
+    }
+
+    private int readInteger(Replay replay)
+    {
+        int value = readVarint(replay);
+
+        // Zigzag decoding
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint(Replay replay)
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = replay.buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.tape;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.internal.parser.doxia.AbstractEventTypeListener;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.syntax.SyntaxType;
+
+/**
+ * A {@link org.xwiki.rendering.listener.Listener} recording the events it receives in an {@link EventTape}, typically
+ * to keep the result of a parsing (e.g. from {@link org.xwiki.rendering.internal.parser.doxia.XWikiGeneratorSink}) in
+ * a much more compact form than an XDOM and replay it later into other listeners with {@link EventTapePlayer}.
+ * <p>
+ * Each event is encoded as soon as it's received, nothing else is kept in memory. The tape is written in a direct
+ * buffer which grows as needed.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class EventTapeRecorder extends AbstractEventTypeListener
+{
+    private static final int DEFAULT_INITIAL_CAPACITY = 8192;
+
+    /**
+     * The maximum size of a varint.
+     */
+    private static final int VARINT_MAX_SIZE = 5;
+
+    /**
+     * The index of the strings already written on the tape.
+     */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private ByteBuffer buffer;
+
+    /**
+     * Record events in a buffer with a default initial capacity.
+     */
+    public EventTapeRecorder()
+    {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the initial capacity of the buffer in which the events are recorded, in bytes
+     */
+    public EventTapeRecorder(int initialCapacity)
+    {
+        this.buffer = ByteBuffer.allocateDirect(Math.max(initialCapacity, EventTapeFormat.MAGIC.length + 1));
+
+        this.buffer.put(EventTapeFormat.MAGIC);
+        this.buffer.put(EventTapeFormat.VERSION);
+
+        EventType[] eventTypes = EventType.values();
+        writeVarint(eventTypes.length);
+        for (EventType eventType : eventTypes) {
+            writeString(eventType.name());
+        }
+    }
+
+    /**
+     * @return the events recorded so far; the recorder can keep recording events, which won't be part of the
+     *         returned tape
+     */
+    public EventTape getTape()
+    {
+        ByteBuffer content = this.buffer.duplicate();
+        content.flip();
+
+        return new EventTape(content);
+    }
+
+    @Override
+    protected void onEvent(EventType eventType, Object... parameters)
+    {
+        writeVarint(eventType.ordinal());
+
+        writeVarint(parameters.length);
+        for (Object parameter : parameters) {
+            writeValue(parameter);
+        }
+    }
+
+    private void writeValue(Object value)
+    {
+        if (value == null) {
+            writeTag(EventTapeFormat.NULL);
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Boolean) {
+            writeTag(Boolean.TRUE.equals(value) ? EventTapeFormat.TRUE : EventTapeFormat.FALSE);
+        } else if (value instanceof Integer) {
+            writeTag(EventTapeFormat.INTEGER);
+            writeVarint(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            writeTag(EventTapeFormat.LONG);
+            ensureCapacity(Long.BYTES);
+            this.buffer.putLong((Long) value);
+        } else if (value instanceof Character) {
+            writeTag(EventTapeFormat.CHARACTER);
+            writeVarint((Character) value);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value);
+        } else if (value instanceof Format) {
+            writeTag(EventTapeFormat.FORMAT);
+            writeVarint(((Format) value).ordinal());
+        } else if (value instanceof ListType) {
+            writeTag(EventTapeFormat.LIST_TYPE);
+            writeVarint(((ListType) value).ordinal());
+        } else if (value instanceof HeaderLevel) {
+            writeTag(EventTapeFormat.HEADER_LEVEL);
+            writeVarint(((HeaderLevel) value).ordinal());
+        } else if (value instanceof ResourceReference) {
+            writeResourceReference((ResourceReference) value);
+        } else if (value instanceof Syntax) {
+            writeSyntax((Syntax) value);
+        } else if (value instanceof MetaData) {
+            writeMetaData((MetaData) value);
+        } else {
+            throw new IllegalArgumentException(
+                String.format("Unsupported event parameter type [%s]", value.getClass().getName()));
+        }
+    }
+
+    private void writeMap(Map<?, ?> map)
+    {
+        if (map.isEmpty()) {
+            writeTag(EventTapeFormat.EMPTY_MAP);
+        } else {
+            writeTag(EventTapeFormat.MAP);
+            writeVarint(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+    }
+
+    private void writeResourceReference(ResourceReference reference)
+    {
+        writeTag(EventTapeFormat.RESOURCE_REFERENCE);
+        writeString(reference.getType().getScheme());
+        writeString(reference.getReference());
+        writeValue(reference.isTyped());
+        writeMap(reference.getParameters());
+
+        List<String> baseReferences = reference.getBaseReferences();
+        writeVarint(baseReferences.size());
+        for (String baseReference : baseReferences) {
+            writeString(baseReference);
+        }
+    }
+
+    private void writeSyntax(Syntax syntax)
+    {
+        SyntaxType type = syntax.getType();
+
+        writeTag(EventTapeFormat.SYNTAX);
+        writeString(type.getId());
+        writeString(type.getName());
+        writeString(syntax.getVersion());
+    }
+
+    private void writeMetaData(MetaData metaData)
+    {
+        Map<String, Object> entries = metaData.getMetaData();
+
+        writeTag(EventTapeFormat.METADATA);
+        writeVarint(entries.size());
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            writeString(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    private void writeString(String value)
+    {
+        Integer index = this.strings.get(value);
+        if (index != null) {
+            writeTag(EventTapeFormat.STRING);
+            writeVarint(index);
+        } else {
+            this.strings.put(value, this.strings.size());
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeTag(EventTapeFormat.NEW_STRING);
+            writeVarint(bytes.length);
+            ensureCapacity(bytes.length);
+            this.buffer.put(bytes);
+        }
+    }
+
+    private void writeTag(byte tag)
+    {
+        ensureCapacity(1);
+        this.buffer.put(tag);
+    }
+
+    private void writeVarint(int value)
+    {
+        ensureCapacity(VARINT_MAX_SIZE);
+
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            this.buffer.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        this.buffer.put((byte) remaining);
+    }
+
+    private static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private void ensureCapacity(int size)
+    {
+        if (this.buffer.remaining() < size) {
+            ByteBuffer newBuffer =
+                ByteBuffer.allocateDirect(Math.max(this.buffer.capacity() * 2, this.buffer.position() + size));
+            this.buffer.flip();
+            newBuffer.put(this.buffer);
+            this.buffer = newBuffer;
+        }
+    }
+}
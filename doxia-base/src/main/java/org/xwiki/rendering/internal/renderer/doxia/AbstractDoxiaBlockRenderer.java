@@ -0,0 +1,355 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.internal.doxia.DoxiaObjectPool;
+import org.xwiki.rendering.internal.renderer.AbstractBlockRenderer;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.renderer.printer.WriterWikiPrinter;
+
+/**
+ * Base class for the block renderers based on a Doxia Sink, adding the ability to stream the rendered content to a
+ * {@link Writer} or an {@link OutputStream} so that large documents are never rendered as one String in memory.
+ * <p>
+ * The renderers are pooled and rebound to the target of each rendering instead of being looked up (and their Doxia
+ * Sink created) for each rendering, which makes rendering many small blocks much cheaper. A pooled renderer is only
+ * used by one rendering at a time so the block renderer can be used concurrently.
+ * </p>
+ * <p>
+ * The top level blocks (e.g. sections) of large documents can also be rendered concurrently, see
+ * {@link #render(Block, WikiPrinter, Executor)}.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public abstract class AbstractDoxiaBlockRenderer extends AbstractBlockRenderer
+{
+    /**
+     * The number of chunks per available processor in which the top level blocks are grouped when rendering in
+     * parallel, so that the work is balanced between the threads without creating too many tasks.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    @Inject
+    private DoxiaConfiguration configuration;
+
+    /**
+     * Only resolved when the instrumentation is enabled.
+     */
+    @Inject
+    private Provider<DoxiaMetrics> metricsProvider;
+
+    /**
+     * Reuse the renderers which can be rebound to a new target (see {@link DoxiaWriterRenderer}), with a pool for each
+     * renderer engine (see {@link DoxiaConfiguration#getRendererEngine}) so that changing the engine takes effect for
+     * the next rendering.
+     */
+    private final ConcurrentMap<String, DoxiaObjectPool<PrintRenderer>> rendererPools = new ConcurrentHashMap<>();
+
+    /**
+     * @param engine the renderer engine to use, see {@link DoxiaConfiguration#getRendererEngine}
+     * @return a new renderer, without printer, for the passed engine
+     * @since 16.9.0
+     */
+    protected PrintRenderer createRenderer(String engine)
+    {
+        // Most syntaxes have a single renderer engine, chosen by their factory
+        return getPrintRendererFactory().createRenderer(null);
+    }
+
+    /**
+     * @return the pool of renderers used by this block renderer for the configured renderer engine, mostly useful to
+     *         access its statistics
+     */
+    public DoxiaObjectPool<PrintRenderer> getRendererPool()
+    {
+        return getRendererPool(getRendererEngine());
+    }
+
+    private DoxiaObjectPool<PrintRenderer> getRendererPool(String engine)
+    {
+        return this.rendererPools.computeIfAbsent(engine, key -> new DoxiaObjectPool<>(() -> createRenderer(key),
+            this.configuration.getRendererPoolSize(), this.configuration.getParserPoolMaxIdleTime()));
+    }
+
+    private String getRendererEngine()
+    {
+        return this.configuration.getRendererEngine(getPrintRendererFactory().getSyntax());
+    }
+
+    /**
+     * Render a block directly to a writer.
+     *
+     * @param block the block to render
+     * @param writer the writer to write to, flushed (but not closed) at the end of the rendering
+     * @throws IOException when failing to flush the writer
+     */
+    public void render(Block block, Writer writer) throws IOException
+    {
+        render(Collections.singletonList(block), writer);
+    }
+
+    /**
+     * Render blocks directly to a writer.
+     *
+     * @param blocks the blocks to render
+     * @param writer the writer to write to, flushed (but not closed) at the end of the rendering
+     * @throws IOException when failing to flush the writer
+     */
+    public void render(Collection<Block> blocks, Writer writer) throws IOException
+    {
+        if (isParallel(blocks)) {
+            render(blocks.iterator().next(), new WriterWikiPrinter(writer), ForkJoinPool.commonPool());
+            writer.flush();
+
+            return;
+        }
+
+        DoxiaObjectPool<PrintRenderer> pool = borrowPool();
+        PrintRenderer renderer = pool.borrow();
+        if (renderer instanceof DoxiaWriterRenderer) {
+            // Skip the WikiPrinter and let the Doxia Sink write directly to the writer
+            ((DoxiaWriterRenderer) renderer).setWriter(writer);
+        } else {
+            renderer.setPrinter(new WriterWikiPrinter(writer));
+        }
+
+        render(blocks, renderer, pool);
+
+        writer.flush();
+    }
+
+    @Override
+    public void render(Collection<Block> blocks, WikiPrinter printer)
+    {
+        if (isParallel(blocks)) {
+            render(blocks.iterator().next(), printer, ForkJoinPool.commonPool());
+
+            return;
+        }
+
+        DoxiaObjectPool<PrintRenderer> pool = borrowPool();
+        PrintRenderer renderer = pool.borrow();
+        renderer.setPrinter(printer);
+
+        render(blocks, renderer, pool);
+    }
+
+    /**
+     * Render a (large) document using several threads: the top level blocks of the document (e.g. its sections) are
+     * grouped in chunks which are rendered concurrently in separate buffers on the passed executor, and the buffers are
+     * printed in order between the beginning and the end of the document. The output is the same as when rendering
+     * the whole document on a single thread. Blocks which are not documents are rendered on the calling thread.
+     *
+     * @param block the block to render
+     * @param printer the printer to print to
+     * @param executor the executor on which the chunks are rendered
+     */
+    public void render(Block block, WikiPrinter printer, Executor executor)
+    {
+        DoxiaObjectPool<PrintRenderer> pool = borrowPool();
+        PrintRenderer renderer = pool.borrow();
+        renderer.setPrinter(printer);
+
+        // Only the children of a document are rendered separately since the children of the other blocks (e.g. table
+        // rows or list items) depend on the events of their parent
+        if (renderer instanceof DoxiaWriterRenderer && block instanceof XDOM && block.getChildren().size() > 1) {
+            renderParallel((XDOM) block, (DoxiaWriterRenderer) renderer, pool, executor);
+        } else {
+            render(Collections.singletonList(block), renderer, pool);
+        }
+    }
+
+    private boolean isParallel(Collection<Block> blocks)
+    {
+        int threshold = this.configuration.getParallelRenderingThreshold();
+
+        if (threshold > 0 && blocks.size() == 1) {
+            Block block = blocks.iterator().next();
+
+            return block instanceof XDOM && block.getChildren().size() >= threshold;
+        }
+
+        return false;
+    }
+
+    private void renderParallel(XDOM block, DoxiaWriterRenderer renderer, DoxiaObjectPool<PrintRenderer> pool,
+        Executor executor)
+    {
+        List<Block> children = block.getChildren();
+        int chunkSize =
+            (children.size() - 1) / (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR) + 1;
+
+        // The only state of the renderer crossing the children is the level of the last header, which the Doxia Sink
+        // listener uses to close the sections: each chunk starts with the level of the last header before it
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        HeaderLevel headerLevel = null;
+        for (int start = 0; start < children.size(); start += chunkSize) {
+            List<Block> chunk = children.subList(start, Math.min(start + chunkSize, children.size()));
+            HeaderLevel chunkHeaderLevel = headerLevel;
+            futures.add(CompletableFuture.supplyAsync(() -> renderChunk(chunk, chunkHeaderLevel, pool), executor));
+            headerLevel = getLastHeaderLevel(chunk, headerLevel);
+        }
+
+        block.before(renderer);
+
+        // Print the rendered chunks after what the renderer printed so far (getPrinter() flushes the renderer)
+        WikiPrinter printer = renderer.getPrinter();
+        for (CompletableFuture<String> future : futures) {
+            try {
+                printer.print(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        renderer.setHeaderLevel(headerLevel);
+        block.after(renderer);
+
+        release(renderer, pool);
+    }
+
+    private String renderChunk(List<Block> chunk, HeaderLevel headerLevel, DoxiaObjectPool<PrintRenderer> pool)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+
+        // The chunks use the pool of the whole rendering, whose renderers are all created for the same engine
+        DoxiaWriterRenderer renderer = (DoxiaWriterRenderer) pool.borrow();
+        renderer.setPrinter(printer);
+        renderer.setHeaderLevel(headerLevel);
+
+        render(chunk, renderer, pool);
+
+        return printer.toString();
+    }
+
+    private HeaderLevel getLastHeaderLevel(List<Block> blocks, HeaderLevel previousLevel)
+    {
+        HeaderLevel level = previousLevel;
+        for (Block block : blocks) {
+            List<HeaderBlock> headers =
+                block.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT_OR_SELF);
+            if (!headers.isEmpty()) {
+                level = headers.get(headers.size() - 1).getLevel();
+            }
+        }
+
+        return level;
+    }
+
+    private void render(Collection<Block> blocks, PrintRenderer renderer, DoxiaObjectPool<PrintRenderer> pool)
+    {
+        // If the rendering fails the renderer is not given back to the pool since we don't know in which state the
+        // failure left it
+        for (Block block : blocks) {
+            block.traverse(renderer);
+        }
+
+        release(renderer, pool);
+    }
+
+    /**
+     * @return the pool of the renderer engine to use for a new rendering
+     */
+    private DoxiaObjectPool<PrintRenderer> borrowPool()
+    {
+        String engine = getRendererEngine();
+        DoxiaObjectPool<PrintRenderer> pool = getRendererPool(engine);
+
+        if (this.configuration.isInstrumentationEnabled()) {
+            this.metricsProvider.get().registerPool(
+                String.format("renderer(%s, %s)", getPrintRendererFactory().getSyntax().toIdString(), engine), pool);
+        }
+
+        return pool;
+    }
+
+    private void release(PrintRenderer renderer, DoxiaObjectPool<PrintRenderer> pool)
+    {
+        if (renderer instanceof DoxiaWriterRenderer) {
+            // The rendered blocks might end with text which is not yet sent to the Doxia Sink
+            ((DoxiaWriterRenderer) renderer).flush();
+
+            // Don't keep a reference to the target while idle
+            renderer.setPrinter(null);
+            pool.release(renderer);
+        }
+    }
+
+    /**
+     * Render a block directly to a stream.
+     *
+     * @param block the block to render
+     * @param stream the stream to write to, flushed (but not closed) at the end of the rendering
+     * @param charset the encoding of the rendered content
+     * @throws IOException when failing to write to the stream
+     */
+    public void render(Block block, OutputStream stream, Charset charset) throws IOException
+    {
+        render(Collections.singletonList(block), stream, charset);
+    }
+
+    /**
+     * Render blocks directly to a stream.
+     *
+     * @param blocks the blocks to render
+     * @param stream the stream to write to, flushed (but not closed) at the end of the rendering
+     * @param charset the encoding of the rendered content
+     * @throws IOException when failing to write to the stream
+     */
+    public void render(Collection<Block> blocks, OutputStream stream, Charset charset) throws IOException
+    {
+        // Don't close the writer since it would close the stream
+        render(blocks, new BufferedWriter(new OutputStreamWriter(stream, charset)));
+    }
+}
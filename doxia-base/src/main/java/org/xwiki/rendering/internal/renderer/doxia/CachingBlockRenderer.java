@@ -0,0 +1,391 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.internal.doxia.DoxiaLRUCache;
+import org.xwiki.rendering.internal.parser.doxia.tape.EventTape;
+import org.xwiki.rendering.internal.parser.doxia.tape.EventTapeRecorder;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * A {@link BlockRenderer} decorator caching the rendered output (typically of the APT and DocBook block renderers, for
+ * which rendering is expensive), so that rendering again unchanged content doesn't go through the renderer at all.
+ * <p>
+ * The rendered blocks are identified either by a structural fingerprint (a SHA-256 hash of the events produced by
+ * the blocks, computed for each rendering) or by a key supplied by the caller (e.g. the reference and version of the
+ * document containing the blocks), which is much cheaper. The outputs are kept in memory in a LRU cache bounded by
+ * their total length and, optionally, the outputs evicted from memory (or too large to be kept in memory) are written
+ * to a directory, which is itself bounded by the total size of the files it contains.
+ * </p>
+ * <p>
+ * The decorator is thread safe as long as the decorated renderer is. Each decorator needs its own overflow directory,
+ * whose existing cache files are deleted when the decorator is created.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class CachingBlockRenderer implements BlockRenderer
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Prefix of the caller supplied keys, so that they never match a fingerprint.
+     */
+    private static final String KEY_PREFIX = "key:";
+
+    private static final String OVERFLOW_FILE_SUFFIX = ".rendered";
+
+    private static final String OVERFLOW_TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The decorated renderer.
+     */
+    private final BlockRenderer renderer;
+
+    /**
+     * The maximum total length of the outputs kept in memory.
+     */
+    private final long maxSize;
+
+    /**
+     * The outputs kept in memory.
+     */
+    private final DoxiaLRUCache<CacheKey, String> cache;
+
+    /**
+     * The directory containing the outputs evicted from memory, null when the overflow is disabled.
+     */
+    private final Path overflowDirectory;
+
+    /**
+     * The size in bytes of the files of the overflow directory, null when the overflow is disabled.
+     */
+    private final DoxiaLRUCache<CacheKey, Long> overflowCache;
+
+    /**
+     * @see #getHitCount()
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * @see #getMissCount()
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Identify a rendered output.
+     */
+    private static final class CacheKey
+    {
+        /**
+         * The hash of the rendered blocks or of the caller supplied key.
+         */
+        private final byte[] digest;
+
+        /**
+         * The precomputed hash code of the key.
+         */
+        private final int hashCode;
+
+        CacheKey(byte[] digest)
+        {
+            this.digest = digest;
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        String toHex()
+        {
+            char[] hex = new char[this.digest.length * 2];
+            for (int i = 0; i < this.digest.length; ++i) {
+                hex[i * 2] = HEX_DIGITS[(this.digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX_DIGITS[this.digest[i] & 0xF];
+            }
+
+            return new String(hex);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof CacheKey)) {
+                return false;
+            }
+
+            return Arrays.equals(this.digest, ((CacheKey) object).digest);
+        }
+    }
+
+    /**
+     * Cache the outputs in memory only.
+     *
+     * @param renderer the renderer to decorate
+     * @param maxSize the maximum total length (in characters) of the outputs kept in memory
+     */
+    public CachingBlockRenderer(BlockRenderer renderer, long maxSize)
+    {
+        this.renderer = renderer;
+        this.maxSize = maxSize;
+        this.cache = new DoxiaLRUCache<>(maxSize, String::length);
+        this.overflowDirectory = null;
+        this.overflowCache = null;
+    }
+
+    /**
+     * Cache the outputs in memory and write the outputs evicted from memory to a directory.
+     *
+     * @param renderer the renderer to decorate
+     * @param maxSize the maximum total length (in characters) of the outputs kept in memory
+     * @param overflowDirectory the directory in which to write the outputs evicted from memory, created if needed
+     * @param maxOverflowSize the maximum total size (in bytes) of the files written in the overflow directory
+     * @throws IOException when failing to create or clean the overflow directory
+     */
+    public CachingBlockRenderer(BlockRenderer renderer, long maxSize, Path overflowDirectory, long maxOverflowSize)
+        throws IOException
+    {
+        this.renderer = renderer;
+        this.maxSize = maxSize;
+        this.cache = new DoxiaLRUCache<>(maxSize, String::length, this::overflow);
+        this.overflowDirectory = Files.createDirectories(overflowDirectory);
+        this.overflowCache = new DoxiaLRUCache<>(maxOverflowSize, Long::longValue, (key, size) -> deleteOverflow(key));
+
+        // The files left by a previous instance are not indexed
+        String pattern = "*" + OVERFLOW_FILE_SUFFIX;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.overflowDirectory, pattern)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public void render(Block block, WikiPrinter printer)
+    {
+        render(Collections.singletonList(block), printer);
+    }
+
+    @Override
+    public void render(Collection<Block> blocks, WikiPrinter printer)
+    {
+        render(blocks, fingerprint(blocks), printer);
+    }
+
+    /**
+     * Render blocks identified by a key supplied by the caller instead of their fingerprint, which is cheaper to
+     * compute. The caller is responsible for never using the same key for blocks producing different outputs.
+     *
+     * @param blocks the blocks to render
+     * @param key the key identifying the blocks (e.g. the reference and version of the document containing them)
+     * @param printer the printer to print to
+     */
+    public void render(Collection<Block> blocks, String key, WikiPrinter printer)
+    {
+        render(blocks, new CacheKey(digest(KEY_PREFIX + key)), printer);
+    }
+
+    /**
+     * @return the number of renderings which reused a cached output (from memory or from the overflow directory)
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of renderings which went through the decorated renderer
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the cache of the outputs kept in memory, mostly useful to access its statistics
+     */
+    public DoxiaLRUCache<?, ?> getCache()
+    {
+        return this.cache;
+    }
+
+    /**
+     * @return the index of the outputs written in the overflow directory, mostly useful to access its statistics, or
+     *         null if the overflow is disabled
+     */
+    public DoxiaLRUCache<?, ?> getOverflowCache()
+    {
+        return this.overflowCache;
+    }
+
+    private void render(Collection<Block> blocks, CacheKey key, WikiPrinter printer)
+    {
+        String output = key != null ? get(key) : null;
+        if (output != null) {
+            this.hitCount.incrementAndGet();
+        } else {
+            this.missCount.incrementAndGet();
+
+            DefaultWikiPrinter buffer = new DefaultWikiPrinter();
+            this.renderer.render(blocks, buffer);
+            output = buffer.toString();
+
+            if (key != null) {
+                this.cache.put(key, output);
+            }
+        }
+
+        printer.print(output);
+    }
+
+    private String get(CacheKey key)
+    {
+        String output = this.cache.get(key);
+        if (output == null && this.overflowCache != null && this.overflowCache.get(key) != null) {
+            output = readOverflow(key);
+            if (output != null && output.length() <= this.maxSize) {
+                // Move back the output in memory since it's used again
+                this.cache.put(key, output);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * @return the fingerprint of the blocks, or null if they can't be fingerprinted
+     */
+    private CacheKey fingerprint(Collection<Block> blocks)
+    {
+        EventTapeRecorder recorder = new EventTapeRecorder();
+        int headerSize = recorder.getTape().getSize();
+        try {
+            for (Block block : blocks) {
+                block.traverse(recorder);
+            }
+        } catch (IllegalArgumentException e) {
+            // Some event parameter (e.g. a custom metadata value) can't be recorded, so don't cache these blocks
+            return null;
+        }
+
+        EventTape tape = recorder.getTape();
+        if (tape.getSize() <= headerSize) {
+            // No event was recorded so the fingerprint wouldn't identify the blocks
+            return null;
+        }
+
+        MessageDigest digest = createDigest();
+        digest.update(tape.getContent());
+
+        return new CacheKey(digest.digest());
+    }
+
+    private byte[] digest(String value)
+    {
+        return createDigest().digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Cannot happen since SHA-256 is required to be supported by all Java platforms
+            throw new IllegalStateException("Failed to create the rendering cache digest", e);
+        }
+    }
+
+    private Path getOverflowFile(CacheKey key)
+    {
+        return this.overflowDirectory.resolve(key.toHex() + OVERFLOW_FILE_SUFFIX);
+    }
+
+    private void overflow(CacheKey key, String output)
+    {
+        // The overflow is only an optimization so failing to write it is ignored
+        Path temporaryFile = null;
+        try {
+            // Write a temporary file first so that the file is never read while incomplete
+            temporaryFile = Files.createTempFile(this.overflowDirectory, null, OVERFLOW_TEMPORARY_FILE_SUFFIX);
+            Files.writeString(temporaryFile, output, StandardCharsets.UTF_8);
+            long size = Files.size(temporaryFile);
+            Files.move(temporaryFile, getOverflowFile(key), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            temporaryFile = null;
+
+            this.overflowCache.put(key, size);
+        } catch (IOException e) {
+            // Not written
+        } finally {
+            if (temporaryFile != null) {
+                deleteFile(temporaryFile);
+            }
+        }
+    }
+
+    private String readOverflow(CacheKey key)
+    {
+        try {
+            return Files.readString(getOverflowFile(key), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // The file might have been deleted in the meantime
+            return null;
+        }
+    }
+
+    private void deleteOverflow(CacheKey key)
+    {
+        deleteFile(getOverflowFile(key));
+    }
+
+    private void deleteFile(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Overwritten if the same output is written again
+        }
+    }
+}
@@ -20,10 +20,12 @@
 package org.xwiki.rendering.internal.renderer.doxia;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Map;
 
 import org.apache.maven.doxia.sink.Sink;
+import org.xwiki.rendering.listener.HeaderLevel;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.QueueListener;
 import org.xwiki.rendering.listener.WrappingListener;
@@ -32,8 +34,10 @@ import org.xwiki.rendering.listener.WrappingListener;
  * Bridge XWiki Rendering Events to Doxia Events. This allows rendering an XDOM using a Doxia Sink.
  * <p>
  * Note that the implementation is broken into this class and {@link DoxiaSinkListener} since we need to handle
- * the special case of Tables: Doxia requires an extra event to be sent (tableRows()) which requires us to count
- * the number of rows since we need to pass it as the number of justification elements.
+ * the special case of Tables: Doxia requires an extra event to be sent (tableRows()) which requires us to know the
+ * number of columns since we need to pass it as the number of justification elements. Only the events of the first
+ * row of each table are buffered to count its cells, the following rows are streamed to the sink, so the memory used
+ * doesn't depend on the number of rows of the table.
  * </p>
  *
  * @version $Id$
@@ -42,60 +46,75 @@ import org.xwiki.rendering.listener.WrappingListener;
 public class DoxiaListener extends WrappingListener
 {
     /**
-     * The stack of Listener which allow to push some queue listener when we find some tables in order to count rows
-     * and send the tableRows event to the Doxia Sink.
+     * The stack of Listener which allow to push some queue listener when we find some tables in order to count the
+     * cells of their first row and send the tableRows event to the Doxia Sink.
      */
     private Deque<Listener> listenerStack = new ArrayDeque<Listener>();
 
     /**
-     * Count the number of rows. Note that we use a stack since we can have nested tables.
+     * The events of the first row of the table being buffered, {@code null} if no table is being buffered.
      */
-    private Deque<Integer> rowCountStack = new ArrayDeque<Integer>();
+    private QueueListener firstRow;
 
     /**
-     * Number of tables being handled.
+     * The parameters of the table being buffered.
      */
-    private int tableCount;
+    private Map<String, String> firstRowTableParameters;
 
     /**
-     * If true then this listener is in unstacking mode and the stacked events are being unstacked.
+     * The number of cells of the first row of the table being buffered.
      */
-    private boolean unstacking;
+    private int firstRowCellCount;
+
+    /**
+     * The number of tables started (and not ended) in the first row of the table being buffered.
+     */
+    private int firstRowNestedTableCount;
 
     /**
      * @see #DoxiaListener(org.apache.maven.doxia.sink.Sink)
      */
     private Sink sink;
 
+    /**
+     * The listener sending the events to the sink.
+     */
+    private DoxiaSinkListener sinkListener;
+
     /**
      * @param sink the underlying Doxia sink into which we emit the Table Rows events.
      */
     public DoxiaListener(Sink sink)
     {
         this.sink = sink;
-        pushListener(new DoxiaSinkListener(sink));
+        this.sinkListener = new DoxiaSinkListener(sink);
+        pushListener(this.sinkListener);
+    }
+
+    /**
+     * Send the pending text to the sink, see {@link DoxiaSinkListener#flushText()}. Needs to be called at the end of
+     * the rendering when it stops inside a block.
+     *
+     * @since 16.9.0
+     */
+    public void flush()
+    {
+        this.sinkListener.flushText();
     }
 
     @Override
     public void beginTable(Map<String, String> parameters)
     {
-        if (this.unstacking) {
-            // We need to send a begin table rows event to the Doxia Sink since it requires such an Event before the
-            // Row events.
-            int rowCount = this.rowCountStack.peek();
-            int[] justifications = new int[rowCount];
-            for (int i = 0; i < rowCount; i++) {
-                justifications[i] = Sink.JUSTIFY_CENTER;
-            }
-            super.beginTable(parameters);
-            this.sink.tableRows(justifications, true);
+        if (this.firstRow == null) {
+            // Start buffering the first row since we need to count its cells before sending the table events
+            this.firstRow = new QueueListener();
+            this.firstRowTableParameters = parameters;
+            this.firstRowCellCount = 0;
+            this.firstRowNestedTableCount = 0;
+            pushListener(this.firstRow);
         } else {
-            // Start stacking Events since we need to count the number of table rows
-            if (this.tableCount == 0) {
-                pushListener(new QueueListener());
-                this.rowCountStack.push(0);
-            }
-            this.tableCount++;
+            // Nested table in the buffered first row, it will be handled when the first row is replayed
+            this.firstRowNestedTableCount++;
             super.beginTable(parameters);
         }
     }
@@ -103,41 +122,105 @@ public class DoxiaListener extends WrappingListener
     @Override
     public void endTable(Map<String, String> parameters)
     {
-        if (!this.unstacking) {
-            super.endTable(parameters);
-
-            this.tableCount--;
+        if (this.firstRow != null) {
+            if (this.firstRowNestedTableCount > 0) {
+                this.firstRowNestedTableCount--;
+                super.endTable(parameters);
 
-            // Unstack if we're on the end table event of the first table
-            if (this.tableCount == 0) {
-                // Stop stacking Events
-                QueueListener queueListener = (QueueListener) popListener();
-
-                // Send all stacked Events to the current listener so that we can handle nested tables.
-                this.unstacking = true;
-                queueListener.consumeEvents(this);
-                this.unstacking = false;
+                return;
             }
-        } else {
-            this.sink.tableRows_();
-            this.rowCountStack.pop();
-            super.endTable(parameters);
+
+            // The table ends before its first row (empty table)
+            flushFirstRow();
         }
+
+        flush();
+        this.sink.tableRows_();
+        super.endTable(parameters);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        countFirstRowCell();
+
+        super.beginTableCell(parameters);
     }
 
     @Override
-    public void beginTableRow(Map<String, String> parameters)
+    public void beginTableHeadCell(Map<String, String> parameters)
     {
-        super.beginTableRow(parameters);
+        countFirstRowCell();
 
-        // Increase row count
-        if (!this.unstacking) {
-            int rowCount = this.rowCountStack.pop();
-            rowCount++;
-            this.rowCountStack.push(rowCount);
+        super.beginTableHeadCell(parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        super.endTableRow(parameters);
+
+        if (this.firstRow != null && this.firstRowNestedTableCount == 0) {
+            flushFirstRow();
         }
     }
 
+    private void countFirstRowCell()
+    {
+        if (this.firstRow != null && this.firstRowNestedTableCount == 0) {
+            this.firstRowCellCount++;
+        }
+    }
+
+    /**
+     * Send the table start events to the sink, now that we know the number of columns, followed by the buffered
+     * events of the first row.
+     */
+    private void flushFirstRow()
+    {
+        QueueListener queueListener = (QueueListener) popListener();
+        this.firstRow = null;
+
+        super.beginTable(this.firstRowTableParameters);
+
+        // We need to send a begin table rows event to the Doxia Sink since it requires such an Event before the
+        // Row events.
+        int[] justifications = new int[this.firstRowCellCount];
+        Arrays.fill(justifications, Sink.JUSTIFY_CENTER);
+        flush();
+        this.sink.tableRows(justifications, true);
+
+        // Send the buffered events to this listener so that we handle the nested tables.
+        queueListener.consumeEvents(this);
+    }
+
+    /**
+     * @param headerLevel the level of the last header rendered before the next events
+     * @see DoxiaSinkListener#setHeaderLevel(HeaderLevel)
+     * @since 16.9.0
+     */
+    public void setHeaderLevel(HeaderLevel headerLevel)
+    {
+        this.sinkListener.setHeaderLevel(headerLevel);
+    }
+
+    /**
+     * Forget the state of the previous rendering (including the buffered table events), to reuse this listener for a
+     * new rendering. Note that the sink needs to be reset separately.
+     *
+     * @since 16.9.0
+     */
+    public void reset()
+    {
+        this.firstRow = null;
+        this.firstRowTableParameters = null;
+        this.firstRowCellCount = 0;
+        this.firstRowNestedTableCount = 0;
+        this.listenerStack.clear();
+        this.sinkListener.reset();
+        pushListener(this.sinkListener);
+    }
+
     /**
      * Push a new Listener.
      *
@@ -162,6 +245,4 @@ public class DoxiaListener extends WrappingListener
         }
         return listener;
     }
-
-
 }
@@ -22,11 +22,19 @@ package org.xwiki.rendering.internal.renderer.doxia;
 import java.io.IOException;
 import java.io.Writer;
 
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 
 /**
  * Bridge between {@link Writer} and {@link WikiPrinter}. This is needed since Doxia Sinks need to be passed a
  * {@link Writer}.
+ * <p>
+ * The Doxia sinks perform many small writes (escaped characters, markup) so this adapter avoids creating a String for
+ * each of them when possible: the characters are appended directly to the buffer of a {@link DefaultWikiPrinter} or
+ * to the target {@link Writer}, and single ASCII characters are printed using shared strings when printing to another
+ * kind of {@link WikiPrinter}. Nothing is buffered by the adapter itself, so the output is visible in the printer as
+ * soon as the sink writes it (the renderers have no way to know when the rendering ends).
+ * </p>
  *
  * @version $Id$
  * @since 3.2RC1
@@ -34,35 +42,106 @@ import org.xwiki.rendering.renderer.printer.WikiPrinter;
 public class DoxiaPrinterAdapter extends Writer
 {
     /**
-     * The wiki printer to print to.
+     * The shared strings used to print single ASCII characters.
+     */
+    private static final String[] ASCII_STRINGS = new String[128];
+
+    static {
+        for (int i = 0; i < ASCII_STRINGS.length; i++) {
+            ASCII_STRINGS[i] = String.valueOf((char) i);
+        }
+    }
+
+    /**
+     * The wiki printer to print to, {@code null} when writing directly to {@link #buffer} or {@link #writer}.
      */
     private WikiPrinter printer;
 
+    /**
+     * The buffer of the {@link DefaultWikiPrinter} to print to.
+     */
+    private StringBuffer buffer;
+
+    /**
+     * The writer to write to.
+     */
+    private Writer writer;
+
     /**
      * @param printer the wiki printer to print to
      */
     public DoxiaPrinterAdapter(WikiPrinter printer)
     {
-        this.printer = printer;
+        setPrinter(printer);
+    }
+
+    /**
+     * @param writer the writer to write to
+     * @since 16.9.0
+     */
+    public DoxiaPrinterAdapter(Writer writer)
+    {
+        setWriter(writer);
+    }
+
+    /**
+     * Print the next writes to the passed printer instead of the current target.
+     *
+     * @param printer the wiki printer to print to
+     * @since 16.9.0
+     */
+    public void setPrinter(WikiPrinter printer)
+    {
+        this.writer = null;
+
+        // Subclasses of DefaultWikiPrinter might do more than appending to the buffer when printing
+        if (printer != null && printer.getClass() == DefaultWikiPrinter.class) {
+            this.buffer = ((DefaultWikiPrinter) printer).getBuffer();
+            this.printer = null;
+        } else {
+            this.buffer = null;
+            this.printer = printer;
+        }
+    }
+
+    /**
+     * Write the next writes to the passed writer instead of the current target.
+     *
+     * @param writer the writer to write to
+     * @since 16.9.0
+     */
+    public void setWriter(Writer writer)
+    {
+        this.printer = null;
+        this.buffer = null;
+        this.writer = writer;
     }
 
     @Override
     public Writer append(char c) throws IOException
     {
-        this.printer.print(String.valueOf(c));
+        write(c);
         return this;
     }
 
     @Override
     public Writer append(CharSequence charSequence, int i, int i1) throws IOException
     {
-        return append(charSequence.subSequence(i, i1));
+        CharSequence sequence = charSequence != null ? charSequence : "null";
+        if (this.buffer != null) {
+            this.buffer.append(sequence, i, i1);
+        } else if (this.writer != null) {
+            this.writer.append(sequence, i, i1);
+        } else {
+            this.printer.print(sequence.subSequence(i, i1).toString());
+        }
+        return this;
     }
 
     @Override
     public Writer append(CharSequence charSequence) throws IOException
     {
-        this.printer.print(charSequence.toString());
+        write(String.valueOf(charSequence));
         return this;
     }
 
@@ -75,36 +154,67 @@ public class DoxiaPrinterAdapter extends Writer
     @Override
     public void flush() throws IOException
     {
-        // Do nothing
+        if (this.writer != null) {
+            this.writer.flush();
+        }
     }
 
     @Override
     public void write(char[] chars) throws IOException
     {
-        this.printer.print(new String(chars));
+        write(chars, 0, chars.length);
     }
 
     @Override
     public void write(char[] chars, int i, int i1) throws IOException
     {
-        this.printer.print(new String(chars, i, i1));
+        if (this.buffer != null) {
+            this.buffer.append(chars, i, i1);
+        } else if (this.writer != null) {
+            this.writer.write(chars, i, i1);
+        } else if (i1 == 1 && chars[i] < ASCII_STRINGS.length) {
+            this.printer.print(ASCII_STRINGS[chars[i]]);
+        } else {
+            this.printer.print(new String(chars, i, i1));
+        }
     }
 
     @Override
     public void write(int i) throws IOException
     {
-        this.printer.print(String.valueOf(i));
+        char c = (char) i;
+        if (this.buffer != null) {
+            this.buffer.append(c);
+        } else if (this.writer != null) {
+            this.writer.write(c);
+        } else if (c < ASCII_STRINGS.length) {
+            this.printer.print(ASCII_STRINGS[c]);
+        } else {
+            this.printer.print(String.valueOf(c));
+        }
     }
 
     @Override
     public void write(String s) throws IOException
     {
-        this.printer.print(s);
+        if (this.buffer != null) {
+            this.buffer.append(s);
+        } else if (this.writer != null) {
+            this.writer.write(s);
+        } else {
+            this.printer.print(s);
+        }
     }
 
     @Override
     public void write(String s, int i, int i1) throws IOException
     {
-        this.printer.print(s.substring(i, i1));
+        if (this.buffer != null) {
+            this.buffer.append(s, i, i + i1);
+        } else if (this.writer != null) {
+            this.writer.write(s, i, i1);
+        } else {
+            this.printer.print(s.substring(i, i + i1));
+        }
     }
 }
@@ -32,6 +32,11 @@ import org.xwiki.rendering.syntax.Syntax;
 
 /**
  * Send Listener events to the Sink (except for Table Rows events which are sent in {@link DoxiaListener}.
+ * <p>
+ * Consecutive text events inside a block (paragraph, list item, table cell, format, link, etc.) are merged into a
+ * single Sink text event, sent at the latest when the block ends. Text events received outside of any block are sent
+ * right away, so that rendering a list of inline blocks doesn't need a call to {@link #flushText()}.
+ * </p>
  *
  * @version $Id$
  * @since 4.3M1
@@ -50,6 +55,18 @@ public class DoxiaSinkListener implements Listener
      */
     private HeaderLevel headerLevel;
 
+    /**
+     * The text of the consecutive text events (words, spaces, special symbols and new lines) not yet sent to the
+     * Sink: they are sent with a single text event (which is much cheaper for the Sinks since they escape and write
+     * each text event separately) before the next event sent to the Sink.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * The number of blocks started and not yet ended, which send the accumulated text to the Sink when they end.
+     */
+    private int openBlocks;
+
     /**
      * @param sink the Doxia Renderer to which to emit events to
      */
@@ -61,6 +78,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginDocument(MetaData metadata)
     {
+        beginBlock();
+
         this.sink.head();
         this.sink.head_();
         this.sink.body();
@@ -69,6 +88,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endDocument(MetaData metadata)
     {
+        endBlock();
+
         this.sink.body_();
     }
 
@@ -87,6 +108,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
     {
+        flushText();
+
         // TODO: Handle parameters
         this.sink.verbatim(null);
         this.sink.text(content);
@@ -96,6 +119,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginFormat(Format format, Map<String, String> parameters)
     {
+        beginBlock();
+
         // TODO: Handle parameters
         switch (format) {
             case BOLD:
@@ -120,6 +145,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endFormat(Format format, Map<String, String> parameters)
     {
+        endBlock();
+
         // TODO: Handle parameters
         switch (format) {
             case BOLD:
@@ -144,6 +171,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginList(ListType type, Map<String, String> parameters)
     {
+        beginBlock();
+
         if (type == ListType.BULLETED) {
             this.sink.list();
         } else {
@@ -155,6 +184,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginListItem()
     {
+        beginBlock();
+
         this.sink.listItem();
     }
 
@@ -174,6 +205,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginParagraph(Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.paragraph();
     }
 
@@ -186,6 +219,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
+        beginBlock();
+
         // Doxia has only 5 section levels!
         int levelAsInt = (level.getAsInt() < 6) ? level.getAsInt() : 5;
         this.sink.section(levelAsInt, null);
@@ -198,6 +233,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endList(ListType type, Map<String, String> parameters)
     {
+        endBlock();
+
         if (type == ListType.BULLETED) {
             this.sink.list_();
         } else {
@@ -208,12 +245,16 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endListItem()
     {
+        endBlock();
+
         this.sink.listItem_();
     }
 
     @Override
     public void endListItem(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.listItem_();
     }
 
@@ -227,12 +268,16 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endParagraph(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.paragraph_();
     }
 
     @Override
     public void endSection(Map<String, String> parameters)
     {
+        flushText();
+
         // Doxia has only 5 section levels!
         int levelAsInt = (this.headerLevel.getAsInt() < 6) ? this.headerLevel.getAsInt() : 5;
         this.sink.section_(levelAsInt);
@@ -241,6 +286,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
+        endBlock();
+
         // Doxia has only 5 section levels!
         int levelAsInt = (level.getAsInt() < 6) ? level.getAsInt() : 5;
         this.sink.sectionTitle_(levelAsInt);
@@ -259,27 +306,27 @@ public class DoxiaSinkListener implements Listener
         // TODO: Decide when to generate a line break and when to generate a new line
 
         // Since there's no On NewLine event in Doxia we simply generate text
-        this.sink.text("\n");
+        onText("\n");
     }
 
     @Override
     public void onSpace()
     {
         // Since there's no On Space event in Doxia we simply generate text
-        this.sink.text(" ");
+        onText(" ");
     }
 
     @Override
     public void onSpecialSymbol(char symbol)
     {
         // Since there's no On Special Symbol event in Doxia we simply generate text
-        this.sink.text(String.valueOf(symbol));
+        onText(String.valueOf(symbol));
     }
 
     @Override
     public void onWord(String word)
     {
-        this.sink.text(word);
+        onText(word);
     }
 
     @Override
@@ -291,6 +338,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void onRawText(String text, Syntax syntax)
     {
+        flushText();
+
         // TODO: Ensure this is correct. The problem is that Doxia doesn't seem to have a syntax
         // associated with the raw text so I'm not sure how the renderers (sink in Doxia language)
         // can decide whether to print it or not.
@@ -300,6 +349,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void onHorizontalLine(Map<String, String> parameters)
     {
+        flushText();
+
         // TODO: Handle parameters
         this.sink.horizontalRule();
     }
@@ -313,6 +364,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginDefinitionList(Map<String, String> parameters)
     {
+        beginBlock();
+
         // TODO: Handle parameters
         this.sink.definitionList();
     }
@@ -320,6 +373,8 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void endDefinitionList(Map<String, String> parameters)
     {
+        endBlock();
+
         // TODO: Handle parameters
         this.sink.definitionList_();
     }
@@ -327,24 +382,32 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginDefinitionTerm()
     {
+        beginBlock();
+
         this.sink.definedTerm();
     }
 
     @Override
     public void beginDefinitionDescription()
     {
+        beginBlock();
+
         this.sink.definition();
     }
 
     @Override
     public void endDefinitionTerm()
     {
+        endBlock();
+
         this.sink.definedTerm_();
     }
 
     @Override
     public void endDefinitionDescription()
     {
+        endBlock();
+
         this.sink.definition_();
     }
 
@@ -375,66 +438,88 @@ public class DoxiaSinkListener implements Listener
     @Override
     public void beginTable(Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.table();
     }
 
     @Override
     public void beginTableCell(Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.tableCell();
     }
 
     @Override
     public void beginTableHeadCell(Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.tableHeaderCell();
     }
 
     @Override
     public void beginTableRow(Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.tableRow();
     }
 
     @Override
     public void endTable(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.table_();
     }
 
     @Override
     public void endTableCell(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.tableCell_();
     }
 
     @Override
     public void endTableHeadCell(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.tableHeaderCell_();
     }
 
     @Override
     public void endTableRow(Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.tableRow_();
     }
 
     @Override
     public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
+        beginBlock();
+
         this.sink.link(reference.getReference());
     }
 
     @Override
     public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
+        endBlock();
+
         this.sink.link_();
     }
 
     @Override
     public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
+        flushText();
+
         this.sink.figure();
         // TODO: handle special XWiki format for image locations. How do we pass image bits to Doxia?
         // TODO: Handle parameters
@@ -454,4 +539,68 @@ public class DoxiaSinkListener implements Listener
     {
         // Doxia doesn't support the notion of metadata
     }
+
+    /**
+     * Set the level of the last header sent to the Sink, which is used to close the sections. This is needed to render
+     * separately a part of a document which contains the end of a section started before it.
+     *
+     * @param headerLevel the level of the last header rendered before the next events
+     * @since 16.9.0
+     */
+    public void setHeaderLevel(HeaderLevel headerLevel)
+    {
+        this.headerLevel = headerLevel;
+    }
+
+    /**
+     * Forget the state of the previous rendering (including the text not yet sent to the Sink), to reuse this
+     * listener for a new rendering.
+     *
+     * @since 16.9.0
+     */
+    public void reset()
+    {
+        this.headerLevel = null;
+        this.text.setLength(0);
+        this.openBlocks = 0;
+    }
+
+    /**
+     * Send the text accumulated from the last text events to the Sink.
+     *
+     * @since 16.9.0
+     */
+    public void flushText()
+    {
+        if (this.text.length() > 0) {
+            this.sink.text(this.text.toString());
+            this.text.setLength(0);
+        }
+    }
+
+    private void beginBlock()
+    {
+        flushText();
+
+        ++this.openBlocks;
+    }
+
+    private void endBlock()
+    {
+        flushText();
+
+        // A part of a document can end blocks started before it
+        if (this.openBlocks > 0) {
+            --this.openBlocks;
+        }
+    }
+
+    private void onText(String value)
+    {
+        if (this.openBlocks > 0) {
+            this.text.append(value);
+        } else {
+            this.sink.text(value);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import java.io.Writer;
+
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.renderer.PrintRenderer;
+
+/**
+ * A {@link PrintRenderer} based on a Doxia Sink which is able to write the rendered content directly to a
+ * {@link Writer} instead of a {@link org.xwiki.rendering.renderer.printer.WikiPrinter}. The pending content is
+ * automatically sent to the printer when calling {@link #getPrinter()}.
+ * <p>
+ * Setting a new printer or writer resets the state of the renderer, discarding the pending content of the previous
+ * rendering, so that the same renderer can be reused sequentially for several renderings.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public interface DoxiaWriterRenderer extends PrintRenderer
+{
+    /**
+     * Write the rendered content directly to the passed writer, replacing the current printer. The writer is not
+     * closed by the renderer.
+     *
+     * @param writer the writer to write to
+     */
+    void setWriter(Writer writer);
+
+    /**
+     * Send the pending content to the printer or writer. Consecutive text events inside a block are merged before being
+     * sent to the Doxia Sink when the block ends, so this needs to be called only when the rendering stops inside a
+     * block (e.g. when rendering a part of a document).
+     */
+    void flush();
+
+    /**
+     * Set the level of the last header rendered before the next events, which the Doxia Sink needs to close the
+     * sections. This is used to render separately a part of a document with the same result as when rendering the
+     * whole document. Needs to be called after setting the printer or writer, which resets the renderer.
+     *
+     * @param headerLevel the level of the last header rendered before the next events, {@code null} if none
+     */
+    void setHeaderLevel(HeaderLevel headerLevel);
+}
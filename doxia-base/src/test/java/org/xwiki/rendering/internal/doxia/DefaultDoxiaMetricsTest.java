@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link DefaultDoxiaMetrics}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+class DefaultDoxiaMetricsTest
+{
+    @InjectMockComponents
+    private DefaultDoxiaMetrics metrics;
+
+    @Test
+    void collectMetrics() throws Exception
+    {
+        this.metrics.incrementEventCount("sink.text");
+        this.metrics.incrementEventCount("sink.text");
+        this.metrics.incrementEventCount("sink.link");
+        this.metrics.addDuration(DoxiaMetrics.HEADER_ID, TimeUnit.MILLISECONDS.toNanos(3));
+        this.metrics.addDuration(DoxiaMetrics.HEADER_ID, TimeUnit.MILLISECONDS.toNanos(2));
+
+        assertEquals(Map.of("sink.link", 1L, "sink.text", 2L), this.metrics.getEventCounts());
+        assertEquals(Map.of(DoxiaMetrics.HEADER_ID, 2L), this.metrics.getOperationCounts());
+        assertEquals(Map.of(DoxiaMetrics.HEADER_ID, 5L), this.metrics.getOperationTimes());
+
+        assertEquals(0, this.metrics.getLinkReferenceCacheHitRatio());
+        this.metrics.incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_HIT);
+        this.metrics.incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_HIT);
+        this.metrics.incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_HIT);
+        this.metrics.incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_MISS);
+        assertEquals(0.75, this.metrics.getLinkReferenceCacheHitRatio());
+
+        assertTrue(
+            ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(DefaultDoxiaMetrics.OBJECT_NAME)));
+
+        this.metrics.reset();
+
+        assertTrue(this.metrics.getEventCounts().isEmpty());
+    }
+
+    @Test
+    void publishPoolStatistics()
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 1, 0);
+        this.metrics.registerPool("parser(test/1.0)", pool);
+        this.metrics.registerPool("parser(test/1.0)", pool);
+
+        Object first = pool.borrow();
+        Object second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+
+        Map<String, Long> counts = this.metrics.getPoolCounts();
+        assertEquals(6, counts.size());
+        assertEquals(1L, counts.get("parser(test/1.0).idle"));
+        assertEquals(2L, counts.get("parser(test/1.0).created"));
+        assertEquals(2L, counts.get("parser(test/1.0).borrowed"));
+        assertEquals(2L, counts.get("parser(test/1.0).released"));
+        assertEquals(1L, counts.get("parser(test/1.0).dropped"));
+        assertEquals(0L, counts.get("parser(test/1.0).expired"));
+
+        // The pools keep their own statistics
+        this.metrics.reset();
+        assertEquals(counts, this.metrics.getPoolCounts());
+    }
+}
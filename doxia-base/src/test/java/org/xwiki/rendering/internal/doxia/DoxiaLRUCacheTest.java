@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link DoxiaLRUCache}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaLRUCacheTest
+{
+    @Test
+    void evictLeastRecentlyUsed()
+    {
+        DoxiaLRUCache<String, String> cache = new DoxiaLRUCache<>(2);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        // Access "a" so that "b" becomes the least recently used entry
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void boundedByWeight()
+    {
+        DoxiaLRUCache<String, String> cache = new DoxiaLRUCache<>(5, String::length);
+
+        cache.put("a", "123");
+        cache.put("b", "45");
+        cache.put("c", "6");
+        cache.put("d", "too long");
+
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getWeight());
+        assertNull(cache.get("a"));
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    void notifyEvictions()
+    {
+        Map<String, String> evicted = new LinkedHashMap<>();
+        DoxiaLRUCache<String, String> cache = new DoxiaLRUCache<>(5, String::length, evicted::put);
+
+        cache.put("a", "123");
+        cache.put("b", "456");
+        cache.put("c", "too long");
+
+        assertEquals(Map.of("a", "123", "c", "too long"), evicted);
+        assertEquals("456", cache.get("b"));
+    }
+}
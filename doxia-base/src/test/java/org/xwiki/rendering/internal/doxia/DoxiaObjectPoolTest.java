@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for {@link DoxiaObjectPool}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaObjectPoolTest
+{
+    @Test
+    void borrowReusesReleasedObject()
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 2, 0);
+
+        Object first = pool.borrow();
+        pool.release(first);
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowedCount());
+    }
+
+    @Test
+    void releaseWhenFull()
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 1, 0);
+
+        Object first = pool.borrow();
+        Object second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getDroppedCount());
+        assertEquals(0, pool.getExpiredCount());
+    }
+
+    @Test
+    void disabledPool()
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 0, 0);
+
+        Object first = pool.borrow();
+        pool.release(first);
+
+        assertNotSame(first, pool.borrow());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void evictIdleObjects() throws Exception
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 2, 1);
+
+        Object first = pool.borrow();
+        pool.release(first);
+        Thread.sleep(10);
+
+        assertNotSame(first, pool.borrow());
+        assertEquals(1, pool.getExpiredCount());
+        assertEquals(0, pool.getDroppedCount());
+    }
+
+    @Test
+    void clear()
+    {
+        DoxiaObjectPool<Object> pool = new DoxiaObjectPool<>(Object::new, 2, 0);
+
+        Object first = pool.borrow();
+        pool.release(first);
+        pool.clear();
+
+        assertEquals(0, pool.getIdleCount());
+        assertNotSame(first, pool.borrow());
+        assertEquals(0, pool.getDroppedCount());
+        assertEquals(0, pool.getExpiredCount());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaMetrics;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DoxiaLinkReferenceCache}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+class DoxiaLinkReferenceCacheTest
+{
+    @MockComponent
+    @Named("default/link")
+    private ResourceReferenceParser linkReferenceParser;
+
+    @MockComponent
+    private DoxiaConfiguration configuration;
+
+    @MockComponent
+    private DoxiaMetrics metrics;
+
+    @InjectMockComponents
+    private DoxiaLinkReferenceCache cache;
+
+    @BeforeComponent
+    void configure()
+    {
+        when(this.configuration.getLinkReferenceCacheSize()).thenReturn(2);
+        when(this.configuration.isInstrumentationEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void parse()
+    {
+        when(this.linkReferenceParser.parse(anyString()))
+            .thenAnswer(invocation -> new ResourceReference(invocation.getArgument(0), ResourceType.URL));
+
+        ResourceReference first = this.cache.parse("http://xwiki.org");
+        ResourceReference second = this.cache.parse("http://xwiki.org");
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        verify(this.linkReferenceParser, times(1)).parse("http://xwiki.org");
+
+        // Modifying a returned reference doesn't modify the cached one
+        second.setParameter("anchor", "section");
+        assertEquals(first, this.cache.parse("http://xwiki.org"));
+
+        // The least recently used reference is evicted
+        this.cache.parse("http://a.org");
+        this.cache.parse("http://b.org");
+        this.cache.parse("http://xwiki.org");
+        verify(this.linkReferenceParser, times(2)).parse("http://xwiki.org");
+
+        verify(this.metrics, times(2)).incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_HIT);
+        verify(this.metrics, times(4)).incrementEventCount(DoxiaMetrics.LINK_REFERENCE_CACHE_MISS);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DoxiaXDOMCache}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+class DoxiaXDOMCacheTest
+{
+    private static final Syntax SYNTAX = Syntax.XWIKI_2_1;
+
+    @MockComponent
+    private DoxiaConfiguration configuration;
+
+    @InjectMockComponents
+    private DoxiaXDOMCache cache;
+
+    @BeforeComponent
+    void configure()
+    {
+        when(this.configuration.getXDOMCacheSize()).thenReturn(100L);
+    }
+
+    @Test
+    void getAndPut()
+    {
+        assertTrue(this.cache.isEnabled());
+
+        DoxiaXDOMCache.CacheKey key = this.cache.getKey(SYNTAX, DoxiaConfiguration.DOXIA_ENGINE, "source");
+        assertNull(this.cache.get(key, new IdGenerator()));
+
+        XDOM xdom = new XDOM(List.of(new ParagraphBlock(List.of(new WordBlock("source")))));
+        this.cache.put(key, xdom, List.of());
+
+        XDOM cached = this.cache.get(this.cache.getKey(SYNTAX, DoxiaConfiguration.DOXIA_ENGINE, "source"),
+            new IdGenerator());
+        assertNotSame(xdom, cached);
+        assertEquals("source", ((WordBlock) cached.getChildren().get(0).getChildren().get(0)).getWord());
+        assertEquals(6, this.cache.getCache().getWeight());
+    }
+
+    @Test
+    void getWithOtherParserEngine()
+    {
+        XDOM xdom = new XDOM(List.of(new ParagraphBlock(List.of(new WordBlock("source")))));
+        this.cache.put(this.cache.getKey(SYNTAX, DoxiaConfiguration.DOXIA_ENGINE, "source"), xdom, List.of());
+
+        // The engines may produce different XDOMs for the same source
+        assertNull(this.cache.get(this.cache.getKey(SYNTAX, DoxiaConfiguration.NATIVE_ENGINE, "source"),
+            new IdGenerator()));
+        assertNull(this.cache.get(this.cache.getKey(Syntax.PLAIN_1_0, DoxiaConfiguration.DOXIA_ENGINE, "source"),
+            new IdGenerator()));
+        assertEquals(2, this.cache.getCache().getMissCount());
+    }
+}
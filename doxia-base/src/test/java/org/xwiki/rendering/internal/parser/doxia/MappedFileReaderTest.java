@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link MappedFileReader}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class MappedFileReaderTest
+{
+    @TempDir
+    private Path tmpDir;
+
+    private String read(Path path, Charset charset, int windowSize, int bufferSize) throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        try (Reader reader = new MappedFileReader(path, charset, windowSize, bufferSize)) {
+            char[] buffer = new char[7];
+            for (int count = reader.read(buffer); count != -1; count = reader.read(buffer)) {
+                content.append(buffer, 0, count);
+            }
+        }
+
+        return content.toString();
+    }
+
+    @Test
+    void readEmptyFile() throws IOException
+    {
+        Path path = Files.write(this.tmpDir.resolve("empty.txt"), new byte[0]);
+
+        assertEquals("", read(path, StandardCharsets.UTF_8, 4, 4));
+    }
+
+    @Test
+    void readCharactersSplitBetweenWindows() throws IOException
+    {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            expected.append("a\u00e9\u20ac\ud83d\ude00 ");
+        }
+        Path path = Files.write(this.tmpDir.resolve("utf8.txt"), expected.toString().getBytes(StandardCharsets.UTF_8));
+
+        // Odd window and buffer sizes to split multi-byte characters and surrogate pairs
+        assertEquals(expected.toString(), read(path, StandardCharsets.UTF_8, 67, 3));
+        assertEquals(expected.toString(), read(path, StandardCharsets.UTF_8, 101, 11));
+        assertEquals(expected.toString(), read(path, StandardCharsets.UTF_8, MappedFileReader.DEFAULT_WINDOW_SIZE,
+            MappedFileReader.DEFAULT_BUFFER_SIZE));
+    }
+
+    @Test
+    void readWithTinyWindow() throws IOException
+    {
+        // A supplementary character takes 4 bytes in UTF-8, more than the requested window
+        String expected = "\ud83d\ude00\ud83d\ude01";
+        Path path = Files.write(this.tmpDir.resolve("emoji.txt"), expected.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(expected, read(path, StandardCharsets.UTF_8, 1, 1));
+        assertEquals(expected, read(path, StandardCharsets.UTF_8, 3, 2));
+    }
+
+    @Test
+    void readAfterClose() throws IOException
+    {
+        Path path = Files.write(this.tmpDir.resolve("closed.txt"), new byte[] { 'a' });
+
+        Reader reader = new MappedFileReader(path, StandardCharsets.ISO_8859_1);
+        reader.close();
+
+        assertThrows(IOException.class, reader::read);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xwiki.rendering.listener.InlineFilterListener;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link PlainTextTokenizer}, verifying it produces the same events as the {@code plain/1.0} parser.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class PlainTextTokenizerTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "word", "Hello world", "  leading and trailing  ", "a,b;c!", "line1\nline2",
+        "line1\r\nline2\r", "wo\rrd", "tab\tseparated", "{{macro}} [[link]] **bold**", "élève ~ 42%", "\n\n" })
+    void tokenize(String text) throws Exception
+    {
+        QueueListener expected = new QueueListener();
+        InlineFilterListener inlineFilterListener = new InlineFilterListener();
+        inlineFilterListener.setWrappedListener(expected);
+        this.componentManager.<StreamParser>getInstance(StreamParser.class, "plain/1.0")
+            .parse(new StringReader(text), inlineFilterListener);
+
+        QueueListener actual = new QueueListener();
+        new PlainTextTokenizer().tokenize(text, actual);
+
+        assertEquals(toList(expected), toList(actual));
+    }
+
+    private List<String> toList(QueueListener queue)
+    {
+        List<String> events = new ArrayList<>();
+        for (QueueListener.Event event : queue) {
+            events.add(event.eventType + Arrays.toString(event.eventParameters));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.util.IdGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for {@link RecordingIdGenerator}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class RecordingIdGeneratorTest
+{
+    @Test
+    void replayUpdatesConflictingIds()
+    {
+        RecordingIdGenerator recorder = new RecordingIdGenerator();
+        String recordedId = recorder.generateUniqueId("H", "title");
+
+        HeaderBlock header = new HeaderBlock(List.<Block>of(new WordBlock("title")), HeaderLevel.LEVEL1,
+            Collections.emptyMap(), recordedId);
+        XDOM xdom = new XDOM(List.<Block>of(new SectionBlock(List.<Block>of(header))));
+
+        // The target generator already generated an id for the same title
+        IdGenerator idGenerator = new IdGenerator();
+        idGenerator.generateUniqueId("H", "title");
+
+        RecordingIdGenerator.replay(recorder.getRequests(), idGenerator, xdom.getChildren());
+
+        IdGenerator expectedGenerator = new IdGenerator();
+        expectedGenerator.generateUniqueId("H", "title");
+        String expectedId = expectedGenerator.generateUniqueId("H", "title");
+
+        HeaderBlock updatedHeader = (HeaderBlock) xdom.getChildren().get(0).getChildren().get(0);
+        assertEquals(expectedId, updatedHeader.getId());
+        assertEquals("title", ((WordBlock) updatedHeader.getChildren().get(0)).getWord());
+    }
+
+    @Test
+    void replayKeepsIdenticalIds()
+    {
+        RecordingIdGenerator recorder = new RecordingIdGenerator();
+        String recordedId = recorder.generateUniqueId("H", "title");
+
+        HeaderBlock header =
+            new HeaderBlock(Collections.emptyList(), HeaderLevel.LEVEL1, Collections.emptyMap(), recordedId);
+        XDOM xdom = new XDOM(List.<Block>of(new SectionBlock(List.<Block>of(header))));
+
+        RecordingIdGenerator.replay(recorder.getRequests(), new IdGenerator(), xdom.getChildren());
+
+        assertSame(header, xdom.getChildren().get(0).getChildren().get(0));
+    }
+}
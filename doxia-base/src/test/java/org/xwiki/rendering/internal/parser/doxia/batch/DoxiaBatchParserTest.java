@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.batch;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DoxiaBatchParser}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaBatchParserTest
+{
+    @Test
+    void parse() throws Exception
+    {
+        Parser parser = mock(Parser.class);
+        when(parser.parse(any())).then(invocation -> {
+            String content = new BufferedReader(invocation.getArgument(0)).readLine();
+            if (content.equals("fail")) {
+                throw new ParseException("failed");
+            }
+            return new XDOM(Collections.<Block>singletonList(new WordBlock(content)));
+        });
+
+        List<BatchSource> sources = Arrays.asList(BatchSource.fromString("1", "one"),
+            BatchSource.fromString("2", "fail"), BatchSource.fromString("3", "three"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        BatchParseResult result;
+        try {
+            result = new DoxiaBatchParser(parser, executor).parse(sources);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(3, result.getResults().size());
+        assertEquals("one", ((WordBlock) result.getResults().get(0).getXDOM().getChildren().get(0)).getWord());
+        assertFalse(result.getResults().get(1).isSuccess());
+        assertTrue(result.getResults().get(1).getError() instanceof ParseException);
+        assertEquals("3", result.getResults().get(2).getSource().getId());
+        assertEquals(3, result.getStatistics().getDocumentCount());
+        assertEquals(1, result.getStatistics().getFailureCount());
+    }
+
+    @Test
+    void parseWithBoundedParallelism() throws Exception
+    {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        Parser parser = mock(Parser.class);
+        when(parser.parse(any())).then(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            return new XDOM(Collections.<Block>emptyList());
+        });
+
+        List<BatchSource> sources = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            sources.add(BatchSource.fromString(String.valueOf(i), "content"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        BatchParseStatistics statistics;
+        try {
+            statistics = new DoxiaBatchParser(parser, executor, 2).parse(sources, result -> inFlight.decrementAndGet());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(20, statistics.getDocumentCount());
+        assertEquals(0, inFlight.get());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    void parseWithFailingConsumer() throws Exception
+    {
+        Parser parser = mock(Parser.class);
+        when(parser.parse(any())).then(invocation -> new XDOM(Collections.<Block>emptyList()));
+
+        List<BatchSource> sources = Arrays.asList(BatchSource.fromString("1", "one"),
+            BatchSource.fromString("2", "two"), BatchSource.fromString("3", "three"));
+
+        RuntimeException error = new IllegalStateException("failed");
+        List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+        BatchParseStatistics statistics = new DoxiaBatchParser(parser, Runnable::run, 1).parse(sources, result -> {
+            if (result.getSource().getId().equals("2")) {
+                throw error;
+            }
+            consumed.add(result.getSource().getId());
+        });
+
+        assertEquals(Arrays.asList("1", "3"), consumed);
+        assertEquals(3, statistics.getDocumentCount());
+        assertEquals(0, statistics.getFailureCount());
+        assertEquals(1, statistics.getConsumerErrors().size());
+        assertSame(error, statistics.getConsumerErrors().get(0));
+    }
+
+    @Test
+    void invalidParallelism()
+    {
+        Parser parser = mock(Parser.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new DoxiaBatchParser(parser, Runnable::run, 0));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.pipeline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.syntax.Syntax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link DoxiaPipelineConverter}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaPipelineConverterTest
+{
+    /**
+     * Emit a paragraph for each line of the source (the actual APT to DocBook conversion is tested in the DocBook
+     * module).
+     */
+    private static final StreamParser PARSER = new StreamParser()
+    {
+        @Override
+        public Syntax getSyntax()
+        {
+            return Syntax.PLAIN_1_0;
+        }
+
+        @Override
+        public void parse(Reader source, Listener listener) throws ParseException
+        {
+            try {
+                BufferedReader reader = new BufferedReader(source);
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+                    String[] words = line.split(" ");
+                    for (int i = 0; i < words.length; ++i) {
+                        if (i > 0) {
+                            listener.onSpace();
+                        }
+                        listener.onWord(words[i]);
+                    }
+                    listener.endParagraph(Listener.EMPTY_PARAMETERS);
+                }
+            } catch (IOException e) {
+                throw new ParseException("Failed to read the source", e);
+            }
+        }
+    };
+
+    @Test
+    void convertWithFailingRenderer() throws Exception
+    {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            source.append("Paragraph\n");
+        }
+
+        PrintRenderer renderer = mock(PrintRenderer.class);
+        doThrow(new IllegalStateException("Failed to render")).when(renderer).onWord(anyString());
+
+        DoxiaPipelineConverter converter = new DoxiaPipelineConverter(PARSER);
+        ParseException exception = assertThrows(ParseException.class,
+            () -> converter.convert(new StringReader(source.toString()), renderer));
+
+        assertEquals("Failed to render", exception.getCause().getMessage());
+    }
+
+    @Test
+    void capacity()
+    {
+        assertEquals(1, new EventRingBuffer(1).getCapacity());
+        assertEquals(4, new EventRingBuffer(3).getCapacity());
+        assertEquals(1024, new EventRingBuffer(1024).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer(0));
+    }
+}
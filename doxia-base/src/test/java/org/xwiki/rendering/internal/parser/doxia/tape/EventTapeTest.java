@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia.tape;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link EventTapeRecorder} and {@link EventTapePlayer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class EventTapeTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @TempDir
+    private Path tmpDir;
+
+    @Test
+    void recordAndPlay() throws Exception
+    {
+        EventTapeRecorder recorder = new EventTapeRecorder(16);
+        int headerSize = recorder.getTape().getSize();
+        fireEvents(recorder);
+        EventTape tape = recorder.getTape();
+
+        assertTrue(tape.getSize() > headerSize);
+
+        assertEquals(render(this::fireEvents), render(listener -> new EventTapePlayer().play(tape, listener)));
+
+        Path file = this.tmpDir.resolve("events.tape");
+        tape.save(file);
+        EventTape loadedTape = EventTape.load(file);
+
+        assertEquals(tape.getSize(), loadedTape.getSize());
+        assertEquals(render(this::fireEvents), render(listener -> new EventTapePlayer().play(loadedTape, listener)));
+    }
+
+    private void fireEvents(Listener listener)
+    {
+        MetaData metaData = new MetaData();
+        metaData.addMetaData(MetaData.SYNTAX, Syntax.XWIKI_2_1);
+
+        ResourceReference reference = new ResourceReference("Space.Page", ResourceType.DOCUMENT);
+        reference.setParameter("anchor", "section");
+
+        listener.beginDocument(metaData);
+        listener.beginSection(Listener.EMPTY_PARAMETERS);
+        listener.beginHeader(HeaderLevel.LEVEL2, "Htitle", Listener.EMPTY_PARAMETERS);
+        listener.onWord("title");
+        listener.endHeader(HeaderLevel.LEVEL2, "Htitle", Listener.EMPTY_PARAMETERS);
+        listener.beginList(ListType.NUMBERED, Collections.singletonMap("class", "list"));
+        listener.beginListItem();
+        listener.beginFormat(Format.BOLD, Listener.EMPTY_PARAMETERS);
+        listener.onWord("title");
+        listener.endFormat(Format.BOLD, Listener.EMPTY_PARAMETERS);
+        listener.onSpace();
+        listener.onSpecialSymbol('\u00e9');
+        listener.beginLink(reference, false, Listener.EMPTY_PARAMETERS);
+        listener.endLink(reference, false, Listener.EMPTY_PARAMETERS);
+        listener.endListItem();
+        listener.endList(ListType.NUMBERED, Collections.singletonMap("class", "list"));
+        listener.onEmptyLines(3);
+        listener.onRawText("<b>raw</b>", Syntax.HTML_5_0);
+        listener.onVerbatim("verbatim", false, Listener.EMPTY_PARAMETERS);
+        listener.endSection(Listener.EMPTY_PARAMETERS);
+        listener.endDocument(metaData);
+    }
+
+    private String render(Consumer<Listener> events) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        events.accept(this.componentManager.<PrintRendererFactory>getInstance(PrintRendererFactory.class, "event/1.0")
+            .createRenderer(printer));
+
+        return printer.toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link CachingBlockRenderer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class CachingBlockRendererTest
+{
+    private BlockRenderer renderer;
+
+    @BeforeEach
+    void setUp()
+    {
+        // Print the words of the rendered blocks
+        this.renderer = mock(BlockRenderer.class);
+        doAnswer(invocation -> {
+            Collection<Block> blocks = invocation.getArgument(0);
+            WikiPrinter printer = invocation.getArgument(1);
+            for (Block block : blocks) {
+                for (WordBlock word : block.<WordBlock>getBlocks(new ClassBlockMatcher(WordBlock.class),
+                    Block.Axes.DESCENDANT_OR_SELF)) {
+                    printer.print(word.getWord());
+                }
+            }
+            return null;
+        }).when(this.renderer).render(any(Collection.class), any(WikiPrinter.class));
+    }
+
+    private XDOM document(String word)
+    {
+        return new XDOM(List.of(new ParagraphBlock(List.of(new WordBlock(word)))));
+    }
+
+    private String render(BlockRenderer blockRenderer, Block block)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        blockRenderer.render(block, printer);
+
+        return printer.toString();
+    }
+
+    @Test
+    void cacheByFingerprint()
+    {
+        CachingBlockRenderer cachingRenderer = new CachingBlockRenderer(this.renderer, 100);
+
+        assertEquals("first", render(cachingRenderer, document("first")));
+        // An identical but distinct XDOM has the same fingerprint
+        assertEquals("first", render(cachingRenderer, document("first")));
+        assertEquals("second", render(cachingRenderer, document("second")));
+
+        verify(this.renderer, times(2)).render(any(Collection.class), any(WikiPrinter.class));
+        assertEquals(1, cachingRenderer.getHitCount());
+        assertEquals(2, cachingRenderer.getMissCount());
+    }
+
+    @Test
+    void cacheByKey()
+    {
+        CachingBlockRenderer cachingRenderer = new CachingBlockRenderer(this.renderer, 100);
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        cachingRenderer.render(List.of(document("first")), "page:1", printer);
+        // The key is trusted, not the content
+        cachingRenderer.render(List.of(document("second")), "page:1", printer);
+
+        assertEquals("firstfirst", printer.toString());
+        assertEquals(1, cachingRenderer.getHitCount());
+        assertEquals(1, cachingRenderer.getMissCount());
+    }
+
+    @Test
+    void overflowToDisk(@TempDir Path directory) throws Exception
+    {
+        // Only one output fits in memory
+        CachingBlockRenderer cachingRenderer = new CachingBlockRenderer(this.renderer, 6, directory, 1000);
+
+        assertEquals("first", render(cachingRenderer, document("first")));
+        assertEquals("second", render(cachingRenderer, document("second")));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+
+        // Read back from the disk
+        assertEquals("first", render(cachingRenderer, document("first")));
+        // Too large to be kept in memory
+        assertEquals("too large", render(cachingRenderer, document("too large")));
+        assertEquals("too large", render(cachingRenderer, document("too large")));
+
+        verify(this.renderer, times(3)).render(any(Collection.class), any(WikiPrinter.class));
+        assertEquals(2, cachingRenderer.getHitCount());
+        assertEquals(3, cachingRenderer.getMissCount());
+    }
+}
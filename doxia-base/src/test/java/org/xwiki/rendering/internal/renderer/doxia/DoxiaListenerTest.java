@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import org.apache.maven.doxia.sink.Sink;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.Listener;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link DoxiaListener}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaListenerTest
+{
+    private final Sink sink = mock(Sink.class);
+
+    private final DoxiaListener listener = new DoxiaListener(this.sink);
+
+    @Test
+    void streamTableRows()
+    {
+        this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+        row("col1", "col2", "col3");
+
+        // The first row is sent as soon as it ends
+        InOrder inOrder = inOrder(this.sink);
+        inOrder.verify(this.sink).table();
+        inOrder.verify(this.sink).tableRows(new int[] { Sink.JUSTIFY_CENTER, Sink.JUSTIFY_CENTER,
+            Sink.JUSTIFY_CENTER }, true);
+        inOrder.verify(this.sink).tableRow();
+        inOrder.verify(this.sink, times(3)).tableCell();
+        inOrder.verify(this.sink).tableRow_();
+
+        // The following rows are not buffered
+        row("a", "b", "c");
+        verify(this.sink, times(2)).tableRow_();
+        verify(this.sink, never()).table_();
+
+        this.listener.endTable(Listener.EMPTY_PARAMETERS);
+        inOrder.verify(this.sink).tableRow();
+        inOrder.verify(this.sink).tableRows_();
+        inOrder.verify(this.sink).table_();
+    }
+
+    @Test
+    void nestedTableInFirstRow()
+    {
+        this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+        this.listener.beginTableRow(Listener.EMPTY_PARAMETERS);
+        this.listener.beginTableCell(Listener.EMPTY_PARAMETERS);
+        this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+        row("nested1", "nested2");
+        this.listener.endTable(Listener.EMPTY_PARAMETERS);
+        this.listener.endTableCell(Listener.EMPTY_PARAMETERS);
+        this.listener.endTableRow(Listener.EMPTY_PARAMETERS);
+        this.listener.endTable(Listener.EMPTY_PARAMETERS);
+
+        InOrder inOrder = inOrder(this.sink);
+        inOrder.verify(this.sink).table();
+        inOrder.verify(this.sink).tableRows(new int[] { Sink.JUSTIFY_CENTER }, true);
+        inOrder.verify(this.sink).tableRow();
+        inOrder.verify(this.sink).tableCell();
+        inOrder.verify(this.sink).table();
+        inOrder.verify(this.sink).tableRows(new int[] { Sink.JUSTIFY_CENTER, Sink.JUSTIFY_CENTER }, true);
+        inOrder.verify(this.sink).tableRows_();
+        inOrder.verify(this.sink).table_();
+        inOrder.verify(this.sink).tableCell_();
+        inOrder.verify(this.sink).tableRow_();
+        inOrder.verify(this.sink).tableRows_();
+        inOrder.verify(this.sink).table_();
+    }
+
+    @Test
+    void emptyTable()
+    {
+        this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+        this.listener.endTable(Listener.EMPTY_PARAMETERS);
+
+        InOrder inOrder = inOrder(this.sink);
+        inOrder.verify(this.sink).table();
+        inOrder.verify(this.sink).tableRows(new int[0], true);
+        inOrder.verify(this.sink).tableRows_();
+        inOrder.verify(this.sink).table_();
+        verify(this.sink, never()).tableRow();
+        verify(this.sink, times(1)).tableRows(any(), anyBoolean());
+    }
+
+    @Test
+    void coalesceText()
+    {
+        this.listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+        this.listener.onWord("Hello");
+        this.listener.onSpace();
+        this.listener.onWord("world");
+        this.listener.onSpecialSymbol('!');
+        this.listener.onNewLine();
+        this.listener.beginFormat(Format.BOLD, Listener.EMPTY_PARAMETERS);
+        this.listener.onWord("bold");
+        this.listener.endFormat(Format.BOLD, Listener.EMPTY_PARAMETERS);
+        this.listener.endParagraph(Listener.EMPTY_PARAMETERS);
+        this.listener.onWord("last");
+        this.listener.onSpace();
+
+        InOrder inOrder = inOrder(this.sink);
+        inOrder.verify(this.sink).paragraph();
+        inOrder.verify(this.sink).text("Hello world!\n");
+        inOrder.verify(this.sink).bold();
+        inOrder.verify(this.sink).text("bold");
+        inOrder.verify(this.sink).bold_();
+        inOrder.verify(this.sink).paragraph_();
+        // Outside of any block the text is sent right away
+        inOrder.verify(this.sink).text("last");
+        inOrder.verify(this.sink).text(" ");
+
+        // The text of a block which isn't ended yet is sent when flushing
+        this.listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+        this.listener.onWord("pending");
+        verify(this.sink, never()).text("pending");
+
+        this.listener.flush();
+        inOrder.verify(this.sink).text("pending");
+    }
+
+    private void row(String... cells)
+    {
+        this.listener.beginTableRow(Listener.EMPTY_PARAMETERS);
+        for (String cell : cells) {
+            this.listener.beginTableCell(Listener.EMPTY_PARAMETERS);
+            this.listener.onWord(cell);
+            this.listener.endTableCell(Listener.EMPTY_PARAMETERS);
+        }
+        this.listener.endTableRow(Listener.EMPTY_PARAMETERS);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.doxia;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link DoxiaPrinterAdapter}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DoxiaPrinterAdapterTest
+{
+    private static final String EXPECTED = "a<b>\u00e9&cdefgh";
+
+    @Test
+    void writeToDefaultWikiPrinter() throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        write(new DoxiaPrinterAdapter(printer));
+
+        assertEquals(EXPECTED, printer.toString());
+    }
+
+    @Test
+    void writeToOtherWikiPrinter() throws Exception
+    {
+        StringBuilder printed = new StringBuilder();
+        DefaultWikiPrinter printer = new DefaultWikiPrinter()
+        {
+            @Override
+            public void print(String text)
+            {
+                printed.append('[').append(text).append(']');
+            }
+        };
+        write(new DoxiaPrinterAdapter(printer));
+
+        assertEquals("[a][<b>][\u00e9][&][cd][ef][gh]", printed.toString());
+    }
+
+    @Test
+    void writeToWriter() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        write(new DoxiaPrinterAdapter(writer));
+
+        assertEquals(EXPECTED, writer.toString());
+    }
+
+    private void write(Writer adapter) throws IOException
+    {
+        adapter.write('a');
+        adapter.write("<b>");
+        adapter.append('\u00e9');
+        adapter.write(new char[] { '&' });
+        adapter.write("xcdx", 1, 2);
+        adapter.write(new char[] { 'x', 'e', 'f', 'x' }, 1, 2);
+        adapter.append("xghx", 1, 3);
+        adapter.flush();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+/**
+ * Generate benchmark documents of a given size in the syntaxes supported by the Doxia modules. The documents mix
+ * sections, paragraphs with inline formatting and links, lists, tables and verbatim blocks so that all the main code
+ * paths of the parsers are exercised.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public final class BenchmarkDocuments
+{
+    /**
+     * A section of the generated APT documents.
+     */
+    private static final String APT_SECTION = "Section %1$d\n\n"
+        + " This is the <<first>> paragraph of section %1$d with some <italic> and <<<monospace>>> text,\n"
+        + " a {{{http://www.xwiki.org}link}} and some special symbols: (a, b; c!) 50%% = x.\n\n"
+        + "* Sub section %1$d\n\n"
+        + " * First item\n\n"
+        + " * Second item with <<bold>> text\n\n"
+        + " [[1]] Numbered item\n\n"
+        + "*--------*--------*\n"
+        + "|| col1  || col2  |\n"
+        + "*--------*--------*\n"
+        + "| cell%1$d1 | cell%1$d2 |\n"
+        + "*--------*--------*\n\n"
+        + "+------+\n"
+        + "verbatim content %1$d\n"
+        + "+------+\n\n";
+
+    /**
+     * A section of the generated TWiki documents.
+     */
+    private static final String TWIKI_SECTION = "---+ Section %1$d\n\n"
+        + "This is the *first* paragraph of section %1$d with some _italic_ and =monospace= text,\n"
+        + "a [[http://www.xwiki.org][link]] and some special symbols: (a, b; c!) 50%% [x].\n\n"
+        + "---++ Sub section %1$d\n\n"
+        + "   * First item\n"
+        + "   * Second item with *bold* text\n"
+        + "   1. Numbered item\n\n"
+        + "| *col1* | *col2* |\n"
+        + "| cell%1$d1 | cell%1$d2 |\n\n"
+        + "<verbatim>\n"
+        + "verbatim content %1$d\n"
+        + "</verbatim>\n\n";
+
+    /**
+     * A section of the generated DocBook documents.
+     */
+    private static final String DOCBOOK_SECTION = "<section><title>Section %1$d</title>"
+        + "<para>This is the <emphasis role=\"bold\">first</emphasis> paragraph of section %1$d with some "
+        + "<emphasis>italic</emphasis> text, a <ulink url=\"http://www.xwiki.org\">link</ulink> and some special "
+        + "symbols: (a, b; c!) 50%% [x].</para>"
+        + "<section><title>Sub section %1$d</title>"
+        + "<itemizedlist><listitem><para>First item</para></listitem>"
+        + "<listitem><para>Second item with <emphasis role=\"bold\">bold</emphasis> text</para></listitem>"
+        + "</itemizedlist>"
+        + "<table><thead><row><entry>col1</entry><entry>col2</entry></row></thead>"
+        + "<tbody><row><entry>cell%1$d1</entry><entry>cell%1$d2</entry></row></tbody></table>"
+        + "<programlisting>verbatim content %1$d</programlisting>"
+        + "</section></section>\n";
+
+    /**
+     * The inputs of the {@code apt10} compatibility tests.
+     */
+    private static final String[] APT_CORPUS = { " This is <<bold>>", " This is << bold >>",
+        "This is <<bold and <italic>>>", " This is <italic>",
+        " * Item 1\n\n  * Item 2\n\n   * Item 3\n\n    * Item 4\n\n     * Item 5\n\n    * Item 6\n\n"
+            + "   * Item 7\n\n  * Item 8\n\n * Item 9",
+        " This is <<<monospace>>>", " paragraph1\n\n paragraph2\n\n paragraph3",
+        "Title level 1\n\n* Title level 2\n\n** Title level 3\n\n*** Title level 4\n\n**** Title level 5",
+        "*--------*--------*\n|| col1  || col2  |\n*--------*--------*\n| cell11 | cell12 |\n"
+            + "*--------*--------*\n| cell21 | cell22 |\n*--------*--------*",
+        "--------\nverbatim\n--------" };
+
+    /**
+     * The inputs of the {@code twiki10} compatibility tests.
+     */
+    private static final String[] TWIKI_CORPUS = { "This is *bold*", "This is * bold *", "This is *bold and _italic_*",
+        "This is _italic_",
+        "   * Item 1\n      * Item 2\n         * Item 3\n            * Item 4\n               * Item 5\n"
+            + "            * Item 6\n         * Item 7\n      * Item 8\n   * Item 9",
+        "This is =monospace=", "paragraph1\n\nparagraph2\n\nparagraph3",
+        "---+ Title level 1\n---++ Title level 2\n---+++ Title level 3\n---++++ Title level 4\n"
+            + "---+++++ Title level 5\n---++++++ Title level 6",
+        "<verbatim>verbatim</verbatim>" };
+
+    /**
+     * A row of the long tables generated in APT.
+     */
+    private static final String APT_TABLE_ROW =
+        "| cell %1$d | <<bold %1$d>> | <italic> text | {{{http://www.xwiki.org}link}} | 50%% = x |\n"
+            + "*------*------*------*------*------*\n";
+
+    /**
+     * A row of the long tables generated in TWiki.
+     */
+    private static final String TWIKI_TABLE_ROW =
+        "| cell %1$d | *bold %1$d* | _italic_ text | [[http://www.xwiki.org][link]] | 50%% [x] |\n";
+
+    private BenchmarkDocuments()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param syntax the syntax of the document to generate ({@code apt/1.0}, {@code twiki/1.0} or
+     *            {@code docbook/4.4})
+     * @param size the size of the document to generate
+     * @return the generated document
+     */
+    public static String generate(String syntax, InputSize size)
+    {
+        switch (syntax) {
+            case "apt/1.0":
+                return repeat(APT_SECTION, "", "", size);
+            case "twiki/1.0":
+                return repeat(TWIKI_SECTION, "", "", size);
+            case "docbook/4.4":
+                return repeat(DOCBOOK_SECTION, "<article>\n", "</article>\n", size);
+            default:
+                throw new IllegalArgumentException("Unsupported syntax [" + syntax + "]");
+        }
+    }
+
+    private static String repeat(String section, String prefix, String suffix, InputSize size)
+    {
+        StringBuilder builder = new StringBuilder(size.getLength() + section.length() * 2);
+        builder.append(prefix);
+        for (int i = 1; builder.length() < size.getLength(); ++i) {
+            builder.append(String.format(section, i));
+        }
+        builder.append(suffix);
+
+        return builder.toString();
+    }
+
+    /**
+     * @param syntax the syntax of the corpus ({@code apt/1.0} or {@code twiki/1.0})
+     * @return the inputs of the compatibility tests of the syntax, separated by blank lines
+     */
+    public static String corpus(String syntax)
+    {
+        switch (syntax) {
+            case "apt/1.0":
+                return String.join("\n\n", APT_CORPUS) + '\n';
+            case "twiki/1.0":
+                return String.join("\n\n", TWIKI_CORPUS) + '\n';
+            default:
+                throw new IllegalArgumentException("Unsupported syntax [" + syntax + "]");
+        }
+    }
+
+    /**
+     * @param syntax the syntax of the document to generate ({@code apt/1.0} or {@code twiki/1.0})
+     * @param size the size of the document to generate
+     * @return a document made of a single table with as many rows as needed to reach the passed size
+     */
+    public static String generateTable(String syntax, InputSize size)
+    {
+        switch (syntax) {
+            case "apt/1.0":
+                return repeat(APT_TABLE_ROW, "*------*------*------*------*------*\n", "", size);
+            case "twiki/1.0":
+                return repeat(TWIKI_TABLE_ROW, "| *col1* | *col2* | *col3* | *col4* | *col5* |\n", "", size);
+            default:
+                throw new IllegalArgumentException("Unsupported syntax [" + syntax + "]");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentLookupException;
+
+/**
+ * Shared JMH state holding a component manager initialized with all the components found in the classpath.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@State(Scope.Benchmark)
+public class ComponentManagerState
+{
+    /**
+     * The component manager holding the parsers and renderers.
+     */
+    private EmbeddableComponentManager componentManager;
+
+    /**
+     * Initialize the component manager.
+     */
+    @Setup
+    public void setUp()
+    {
+        this.componentManager = new EmbeddableComponentManager();
+        this.componentManager.initialize(getClass().getClassLoader());
+    }
+
+    /**
+     * Dispose the component manager.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @param <T> the component role type
+     * @param role the component role
+     * @param hint the component hint
+     * @return the component instance
+     * @throws ComponentLookupException when the component cannot be found
+     */
+    public <T> T getInstance(Class<T> role, String hint) throws ComponentLookupException
+    {
+        return this.componentManager.getInstance(role, hint);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+/**
+ * The sizes of the generated benchmark documents.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public enum InputSize
+{
+    /**
+     * A small page of about 2KB.
+     */
+    SMALL(2 * 1024),
+
+    /**
+     * A medium page of about 256KB.
+     */
+    MEDIUM(256 * 1024),
+
+    /**
+     * A large document of about 4MB.
+     */
+    LARGE(4 * 1024 * 1024);
+
+    /**
+     * @see #getLength()
+     */
+    private final int length;
+
+    InputSize(int length)
+    {
+        this.length = length;
+    }
+
+    /**
+     * @return the minimum number of characters of the generated document
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+}
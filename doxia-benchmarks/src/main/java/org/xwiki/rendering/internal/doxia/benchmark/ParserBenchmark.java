@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.VoidListener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+
+/**
+ * Measure the throughput of the Doxia based parsers, both when building a full XDOM and when streaming the events to
+ * a listener doing nothing (which isolates the cost of the Doxia parser and of the Sink to Listener bridge).
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark
+{
+    /**
+     * The syntax of the parser to benchmark.
+     */
+    @Param({ "apt/1.0", "twiki/1.0", "docbook/4.4" })
+    public String syntax;
+
+    /**
+     * The size of the parsed document.
+     */
+    @Param({ "SMALL", "MEDIUM", "LARGE" })
+    public InputSize size;
+
+    /**
+     * The parser building an XDOM.
+     */
+    private Parser parser;
+
+    /**
+     * The parser streaming events.
+     */
+    private StreamParser streamParser;
+
+    /**
+     * The document to parse.
+     */
+    private String input;
+
+    /**
+     * Lookup the parsers and generate the input.
+     *
+     * @param components the component manager
+     * @throws Exception when failing to lookup the parsers
+     */
+    @Setup
+    public void setUp(ComponentManagerState components) throws Exception
+    {
+        this.parser = components.getInstance(Parser.class, this.syntax);
+        this.streamParser = components.getInstance(StreamParser.class, this.syntax);
+        this.input = BenchmarkDocuments.generate(this.syntax, this.size);
+    }
+
+    /**
+     * @return the parsed XDOM
+     * @throws ParseException when failing to parse
+     */
+    @Benchmark
+    public XDOM parseToXDOM() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.input));
+    }
+
+    /**
+     * @throws ParseException when failing to parse
+     */
+    @Benchmark
+    public void parseToVoidListener() throws ParseException
+    {
+        this.streamParser.parse(new StringReader(this.input), new VoidListener());
+    }
+}
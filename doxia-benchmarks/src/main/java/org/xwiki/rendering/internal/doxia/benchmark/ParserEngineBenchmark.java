@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.listener.VoidListener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.StreamParser;
+
+/**
+ * Compare the throughput of the Doxia and native parser engines of the syntaxes which have a native parser, on the
+ * inputs of the compatibility tests of the syntax, on generated documents and on generated documents made of a single
+ * long table.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserEngineBenchmark
+{
+    private static final String TABLE_PREFIX = "TABLE_";
+
+    /**
+     * The syntax of the parser to benchmark.
+     */
+    @Param({ "apt/1.0", "twiki/1.0" })
+    public String syntax;
+
+    /**
+     * The parser engine to benchmark, see {@link DoxiaConfiguration#getParserEngine}.
+     */
+    @Param({ DoxiaConfiguration.DOXIA_ENGINE, DoxiaConfiguration.NATIVE_ENGINE })
+    public String engine;
+
+    /**
+     * The parsed document: {@code CORPUS} for the inputs of the compatibility tests, the name of an {@link InputSize}
+     * for a generated document or {@code TABLE_} followed by the name of an {@link InputSize} for a generated table.
+     */
+    @Param({ "CORPUS", "MEDIUM", "LARGE", "TABLE_MEDIUM", "TABLE_LARGE" })
+    public String document;
+
+    /**
+     * The parser streaming events.
+     */
+    private StreamParser streamParser;
+
+    /**
+     * The document to parse.
+     */
+    private String input;
+
+    /**
+     * Lookup the parser, select its engine and generate the input.
+     *
+     * @param components the component manager
+     * @throws Exception when failing to lookup the parser
+     */
+    @Setup
+    public void setUp(ComponentManagerState components) throws Exception
+    {
+        this.streamParser = components.getInstance(StreamParser.class, this.syntax);
+
+        DefaultDoxiaConfiguration configuration =
+            (DefaultDoxiaConfiguration) components.getInstance(DoxiaConfiguration.class, "default");
+        configuration.setParserEngine(this.streamParser.getSyntax(), this.engine);
+
+        if ("CORPUS".equals(this.document)) {
+            this.input = BenchmarkDocuments.corpus(this.syntax);
+        } else if (this.document.startsWith(TABLE_PREFIX)) {
+            this.input = BenchmarkDocuments.generateTable(this.syntax,
+                InputSize.valueOf(this.document.substring(TABLE_PREFIX.length())));
+        } else {
+            this.input = BenchmarkDocuments.generate(this.syntax, InputSize.valueOf(this.document));
+        }
+    }
+
+    /**
+     * @throws ParseException when failing to parse
+     */
+    @Benchmark
+    public void parseToVoidListener() throws ParseException
+    {
+        this.streamParser.parse(new StringReader(this.input), new VoidListener());
+    }
+}
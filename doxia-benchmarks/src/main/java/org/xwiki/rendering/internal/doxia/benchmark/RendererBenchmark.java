@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.doxia.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+
+/**
+ * Measure the throughput of the Doxia Sink based renderers. The rendered XDOM is produced once by parsing a generated
+ * APT document.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendererBenchmark
+{
+    /**
+     * The syntax of the renderer to benchmark.
+     */
+    @Param({ "apt/1.0", "docbook/4.4" })
+    public String syntax;
+
+    /**
+     * The size of the document from which the rendered XDOM is produced.
+     */
+    @Param({ "SMALL", "MEDIUM", "LARGE" })
+    public InputSize size;
+
+    /**
+     * The renderer to benchmark.
+     */
+    private BlockRenderer renderer;
+
+    /**
+     * The XDOM to render.
+     */
+    private XDOM xdom;
+
+    /**
+     * Lookup the renderer and produce the XDOM to render.
+     *
+     * @param components the component manager
+     * @throws Exception when failing to lookup the components or to parse the input
+     */
+    @Setup
+    public void setUp(ComponentManagerState components) throws Exception
+    {
+        this.renderer = components.getInstance(BlockRenderer.class, this.syntax);
+
+        Parser parser = components.getInstance(Parser.class, "apt/1.0");
+        this.xdom = parser.parse(new StringReader(BenchmarkDocuments.generate("apt/1.0", this.size)));
+    }
+
+    /**
+     * @return the rendered content
+     */
+    @Benchmark
+    public String render()
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(this.xdom, printer);
+
+        return printer.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.docbook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * The bundled catalog of the DocBook DTDs known by the DocBook parser (see {@code docbook/catalog/catalog.xml}),
+ * associating the public and system identifiers of the DTDs with the character entities they declare.
+ * <p>
+ * The catalog and the entities are loaded only once and shared by all the parses, and nothing is ever resolved from
+ * the network.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public final class DocBookCatalog
+{
+    private static final String CATALOG_DIRECTORY = "docbook/catalog/";
+
+    private static final String CATALOG = CATALOG_DIRECTORY + "catalog.xml";
+
+    private static final String CATALOG_NAMESPACE = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+    private static final String URI = "uri";
+
+    private final Map<String, Map<String, String>> publicEntities = new HashMap<>();
+
+    private final Map<String, Map<String, String>> systemEntities = new HashMap<>();
+
+    /**
+     * Lazily load the catalog the first time it's needed.
+     */
+    private static final class Holder
+    {
+        private static final DocBookCatalog INSTANCE = new DocBookCatalog();
+    }
+
+    private DocBookCatalog()
+    {
+        Document catalog = loadCatalog();
+
+        Map<String, Map<String, String>> entitiesByURI = new HashMap<>();
+        load(catalog, "public", "publicId", this.publicEntities, entitiesByURI);
+        load(catalog, "system", "systemId", this.systemEntities, entitiesByURI);
+    }
+
+    /**
+     * @return the shared catalog
+     */
+    public static DocBookCatalog getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @param publicId the public identifier of a DTD, can be {@code null}
+     * @param systemId the system identifier of a DTD, can be {@code null}
+     * @return the character entities declared by the DTD, empty if the DTD is unknown
+     */
+    public Map<String, String> getEntities(String publicId, String systemId)
+    {
+        Map<String, String> entities = publicId != null ? this.publicEntities.get(publicId) : null;
+        if (entities == null && systemId != null) {
+            entities = this.systemEntities.get(systemId);
+        }
+
+        return entities != null ? entities : Collections.emptyMap();
+    }
+
+    private Document loadCatalog()
+    {
+        try (InputStream stream = getResourceAsStream(CATALOG)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            // The bundled catalog has no DOCTYPE, so there's nothing external to block (and the JAXP 1.5 external
+            // access attributes are not supported by all the implementations, e.g. Xerces)
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+
+            return factory.newDocumentBuilder().parse(stream);
+        } catch (Exception e) {
+            throw new IllegalStateException(String.format("Failed to load the DocBook catalog [%s]", CATALOG), e);
+        }
+    }
+
+    private void load(Document catalog, String elementName, String idAttribute,
+        Map<String, Map<String, String>> entitiesById, Map<String, Map<String, String>> entitiesByURI)
+    {
+        NodeList elements = catalog.getElementsByTagNameNS(CATALOG_NAMESPACE, elementName);
+        for (int i = 0; i < elements.getLength(); ++i) {
+            Element element = (Element) elements.item(i);
+            entitiesById.put(element.getAttribute(idAttribute),
+                entitiesByURI.computeIfAbsent(element.getAttribute(URI), this::loadEntities));
+        }
+    }
+
+    private Map<String, String> loadEntities(String uri)
+    {
+        String resource = CATALOG_DIRECTORY + uri;
+
+        Properties properties = new Properties();
+        try (InputStream stream = getResourceAsStream(resource)) {
+            properties.load(stream);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to load the DocBook entities [%s]", resource), e);
+        }
+
+        Map<String, String> entities = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            entities.put(name, properties.getProperty(name));
+        }
+
+        return Collections.unmodifiableMap(entities);
+    }
+
+    private InputStream getResourceAsStream(String resource) throws IOException
+    {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IOException(String.format("Cannot find resource [%s]", resource));
+        }
+
+        return stream;
+    }
+}
@@ -48,6 +48,6 @@ public class DocBookParser extends AbstractDoxiaParser
     @Override
     public org.apache.maven.doxia.parser.Parser createDoxiaParser()
     {
-        return new org.apache.maven.doxia.module.docbook.DocBookParser();
+        return new XWikiDocBookParser();
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.docbook;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.doxia.parser.ParseException;
+import org.apache.maven.doxia.sink.Sink;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Extends the Doxia DocBook parser to never resolve the external DTD declared by the document: the external identifier
+ * is removed from the document type declaration and the character entities declared by the known DocBook DTDs are
+ * defined from the shared {@link DocBookCatalog} instead.
+ * <p>
+ * Like the other Doxia parsers, an instance must not be used concurrently.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class XWikiDocBookParser extends org.apache.maven.doxia.module.docbook.DocBookParser
+{
+    /**
+     * The maximum number of characters read to find the document type declaration.
+     */
+    private static final int MAX_PROLOG_LENGTH = 64 * 1024;
+
+    private static final String DOCTYPE = "<!DOCTYPE";
+
+    private static final String QUOTED = "(\"[^\"]*\"|'[^']*')";
+
+    private static final Pattern EXTERNAL_ID = Pattern.compile("(" + DOCTYPE + "\\s+[^\\s\\[>]+)\\s+(?:PUBLIC\\s+"
+        + QUOTED + "\\s+" + QUOTED + "|PUBLIC\\s+" + QUOTED + "|SYSTEM\\s+" + QUOTED + ")");
+
+    /**
+     * The entities to define for the document being parsed.
+     */
+    private Map<String, String> entities = Collections.emptyMap();
+
+    /**
+     * Default constructor.
+     */
+    public XWikiDocBookParser()
+    {
+        // Validating would require the DTD
+        setValidate(false);
+    }
+
+    @Override
+    public void parse(Reader source, Sink sink) throws ParseException
+    {
+        Reader reader;
+        try {
+            reader = removeExternalId(source);
+        } catch (IOException e) {
+            throw new ParseException("Failed to read the document type declaration", e);
+        }
+
+        super.parse(reader, sink);
+    }
+
+    @Override
+    protected void initXmlParser(XmlPullParser parser) throws XmlPullParserException
+    {
+        super.initXmlParser(parser);
+
+        for (Map.Entry<String, String> entity : this.entities.entrySet()) {
+            parser.defineEntityReplacementText(entity.getKey(), entity.getValue());
+        }
+    }
+
+    private Reader removeExternalId(Reader source) throws IOException
+    {
+        BufferedReader bufferedSource = new BufferedReader(source);
+
+        String prolog = readProlog(bufferedSource);
+
+        this.entities = Collections.emptyMap();
+        Matcher matcher = EXTERNAL_ID.matcher(prolog);
+        if (matcher.find()) {
+            String publicId = unquote(matcher.group(2) != null ? matcher.group(2) : matcher.group(4));
+            String systemId = unquote(matcher.group(3) != null ? matcher.group(3) : matcher.group(5));
+            this.entities = DocBookCatalog.getInstance().getEntities(publicId, systemId);
+
+            prolog = prolog.substring(0, matcher.start()) + matcher.group(1) + prolog.substring(matcher.end());
+        }
+
+        // Put back the (modified) prolog in front of the rest of the source
+        PushbackReader reader = new PushbackReader(bufferedSource, Math.max(prolog.length(), 1));
+        reader.unread(prolog.toCharArray());
+
+        return reader;
+    }
+
+    /**
+     * Read the beginning of the document, until the end of the document type declaration or the start of the root
+     * element.
+     */
+    private String readProlog(Reader reader) throws IOException
+    {
+        StringBuilder prolog = new StringBuilder();
+
+        boolean inDoctype = false;
+        int bracketDepth = 0;
+        char quote = 0;
+        while (prolog.length() < MAX_PROLOG_LENGTH) {
+            int c = reader.read();
+            if (c == -1) {
+                break;
+            }
+
+            int previous = prolog.length() > 0 ? prolog.charAt(prolog.length() - 1) : -1;
+            prolog.append((char) c);
+
+            if (!inDoctype) {
+                if (previous == '<' && Character.isLetter(c)) {
+                    // The root element starts, there's no document type declaration
+                    break;
+                }
+                inDoctype = c == 'E' && prolog.length() >= DOCTYPE.length()
+                    && prolog.indexOf(DOCTYPE, prolog.length() - DOCTYPE.length()) != -1;
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            } else if (c == '[') {
+                ++bracketDepth;
+            } else if (c == ']') {
+                --bracketDepth;
+            } else if (c == '>' && bracketDepth == 0) {
+                break;
+            }
+        }
+
+        return prolog.toString();
+    }
+
+    private String unquote(String value)
+    {
+        return value != null ? value.substring(1, value.length() - 1) : null;
+    }
+}
@@ -24,7 +24,8 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.renderer.AbstractBlockRenderer;
+import org.xwiki.rendering.internal.renderer.doxia.AbstractDoxiaBlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 
 /**
@@ -36,7 +37,7 @@ import org.xwiki.rendering.renderer.PrintRendererFactory;
 @Component
 @Named("docbook/4.4")
 @Singleton
-public class DocBookBlockRenderer extends AbstractBlockRenderer
+public class DocBookBlockRenderer extends AbstractDoxiaBlockRenderer
 {
     /**
      * Create DocBook Renderer instances.
@@ -50,4 +51,10 @@ public class DocBookBlockRenderer extends AbstractBlockRenderer
     {
         return this.docbookRendererFactory;
     }
+
+    @Override
+    protected PrintRenderer createRenderer(String engine)
+    {
+        return ((DocBookRendererFactory) this.docbookRendererFactory).createRenderer(null, engine);
+    }
 }
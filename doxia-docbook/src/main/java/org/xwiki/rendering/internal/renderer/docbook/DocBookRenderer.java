@@ -19,15 +19,19 @@
  */
 package org.xwiki.rendering.internal.renderer.docbook;
 
+import java.io.Writer;
+
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.rendering.internal.renderer.doxia.DoxiaListener;
+import org.xwiki.rendering.internal.renderer.doxia.DoxiaWriterRenderer;
+import org.xwiki.rendering.listener.HeaderLevel;
 import org.xwiki.rendering.listener.WrappingListener;
-import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.renderer.printer.WriterWikiPrinter;
 
 /**
  * Generates Doxbook syntax from a {@link org.xwiki.rendering.block.XDOM} object being traversed.
@@ -38,23 +42,76 @@ import org.xwiki.rendering.renderer.printer.WikiPrinter;
 @Component
 @Named("docbook/4.4")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class DocBookRenderer extends WrappingListener implements PrintRenderer
+public class DocBookRenderer extends WrappingListener implements DoxiaWriterRenderer
 {
     /**
      * The printer.
      */
     private WikiPrinter printer;
 
+    /**
+     * The Doxia Sink generating the output.
+     */
+    private XWikiDocBookSink sink;
+
+    /**
+     * The listener sending the events to the Doxia Sink.
+     */
+    private DoxiaListener doxiaListener;
+
     @Override
     public WikiPrinter getPrinter()
     {
+        flush();
+
         return this.printer;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The listener and Doxia Sink created for the first printer are reset and reused for the next ones.
+     * </p>
+     */
     @Override
     public void setPrinter(WikiPrinter printer)
     {
         this.printer = printer;
-        setWrappedListener(new DoxiaListener(new XWikiDocBookSink(printer)));
+        if (this.sink == null) {
+            this.sink = new XWikiDocBookSink(printer);
+            this.doxiaListener = new DoxiaListener(this.sink);
+            setWrappedListener(this.doxiaListener);
+        } else {
+            this.sink.reset(printer);
+            this.doxiaListener.reset();
+        }
+    }
+
+    @Override
+    public void setWriter(Writer writer)
+    {
+        this.printer = new WriterWikiPrinter(writer);
+        if (this.sink == null) {
+            this.sink = new XWikiDocBookSink(writer);
+            this.doxiaListener = new DoxiaListener(this.sink);
+            setWrappedListener(this.doxiaListener);
+        } else {
+            this.sink.reset(writer);
+            this.doxiaListener.reset();
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        if (this.doxiaListener != null) {
+            this.doxiaListener.flush();
+        }
+    }
+
+    @Override
+    public void setHeaderLevel(HeaderLevel headerLevel)
+    {
+        this.doxiaListener.setHeaderLevel(headerLevel);
     }
 }
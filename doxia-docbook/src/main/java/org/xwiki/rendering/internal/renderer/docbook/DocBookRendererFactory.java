@@ -19,17 +19,26 @@
  */
 package org.xwiki.rendering.internal.renderer.docbook;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
 import org.xwiki.rendering.internal.renderer.AbstractPrintRendererFactory;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 
 import static org.xwiki.rendering.internal.docbook.Docbook44SyntaxProvider.DOCBOOK_4_4;
 
 /**
  * Create DocBook Renderers.
+ * <p>
+ * The renderers go through the Doxia DocBook Sink ({@link DocBookRenderer}) unless the
+ * {@link DoxiaConfiguration#NATIVE_ENGINE native engine} is configured for this syntax, in which case the
+ * {@link StAXDocBookRenderer} is used.
+ * </p>
  *
  * @version $Id$
  * @since 3.2RC1
@@ -39,9 +48,37 @@ import static org.xwiki.rendering.internal.docbook.Docbook44SyntaxProvider.DOCBO
 @Singleton
 public class DocBookRendererFactory extends AbstractPrintRendererFactory
 {
+    @Inject
+    private DoxiaConfiguration configuration;
+
     @Override
     public Syntax getSyntax()
     {
         return DOCBOOK_4_4;
     }
+
+    @Override
+    public PrintRenderer createRenderer(WikiPrinter printer)
+    {
+        return createRenderer(printer, this.configuration.getRendererEngine(getSyntax()));
+    }
+
+    /**
+     * @param printer the object where the renderer will output to
+     * @param engine the renderer engine to use, whatever the configured one, see
+     *            {@link DoxiaConfiguration#getRendererEngine}
+     * @return the new renderer
+     * @since 16.9.0
+     */
+    public PrintRenderer createRenderer(WikiPrinter printer, String engine)
+    {
+        if (DoxiaConfiguration.NATIVE_ENGINE.equals(engine)) {
+            PrintRenderer renderer = new StAXDocBookRenderer();
+            renderer.setPrinter(printer);
+
+            return renderer;
+        }
+
+        return super.createRenderer(printer);
+    }
 }
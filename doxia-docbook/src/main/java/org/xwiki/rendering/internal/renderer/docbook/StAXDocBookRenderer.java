@@ -0,0 +1,798 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.docbook;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xwiki.rendering.internal.renderer.doxia.DoxiaPrinterAdapter;
+import org.xwiki.rendering.internal.renderer.doxia.DoxiaWriterRenderer;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.renderer.printer.WriterWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Generates DocBook 4.4 by writing the XWiki events directly to a StAX {@link XMLStreamWriter}, without going through
+ * the Doxia DocBook Sink. The escaping is done by the stream writer as the content is written, and nothing is kept in
+ * memory besides the stack of the open elements, so the memory used doesn't depend on the size of the rendered
+ * content.
+ * <p>
+ * The output is equivalent to the one of {@link DocBookRenderer} for the supported events (the DocBook compatibility
+ * tests pass with both) but not always byte-identical:
+ * </p>
+ * <ul>
+ * <li>the XML and document type declarations written by the Doxia Sink before the {@code article} element are not
+ * written;</li>
+ * <li>definition list entries are properly wrapped in {@code varlistentry} elements;</li>
+ * <li>the text is escaped by the JDK stream writer, which escapes {@code <}, {@code &} and {@code >} but writes
+ * {@code "} as is, while the Doxia Sink also escapes {@code "}.</li>
+ * </ul>
+ * <p>
+ * Like with the Doxia Sink, the non-ASCII characters are written as is, so the target must use an encoding able to
+ * represent them (e.g. UTF-8). This renderer is used when the
+ * {@link org.xwiki.rendering.internal.doxia.DoxiaConfiguration#NATIVE_ENGINE native engine} is configured for the
+ * DocBook syntax (see {@link DocBookRendererFactory}); {@link DocBookRenderer} stays the default.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class StAXDocBookRenderer implements DoxiaWriterRenderer
+{
+    /**
+     * The JDK implementation, whatever the StAX implementations on the classpath (e.g. Woodstox doesn't escape
+     * {@code >}), so that the escaping doesn't depend on the environment.
+     */
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newDefaultFactory();
+
+    private static final String WRITE_ERROR = "Failed to write the DocBook content";
+
+    private static final String ARTICLE = "article";
+
+    private static final String SECTION = "section";
+
+    private static final String TITLE = "title";
+
+    private static final String PARA = "para";
+
+    private static final String EMPHASIS = "emphasis";
+
+    private static final String ROLE = "role";
+
+    private static final String ITEMIZEDLIST = "itemizedlist";
+
+    private static final String ORDEREDLIST = "orderedlist";
+
+    private static final String LISTITEM = "listitem";
+
+    private static final String VARIABLELIST = "variablelist";
+
+    private static final String VARLISTENTRY = "varlistentry";
+
+    private static final String TERM = "term";
+
+    private static final String TABLE = "table";
+
+    private static final String THEAD = "thead";
+
+    private static final String TBODY = "tbody";
+
+    private static final String ROW = "row";
+
+    private static final String ENTRY = "entry";
+
+    private static final String LINK = "link";
+
+    private static final String ULINK = "ulink";
+
+    private static final String ANCHOR_PREFIX = "#";
+
+    /**
+     * The printer.
+     */
+    private WikiPrinter printer;
+
+    /**
+     * The writer to which the DocBook is written, null when there's no printer.
+     */
+    private Writer output;
+
+    /**
+     * The stream writer generating the DocBook, null when there's no printer.
+     */
+    private XMLStreamWriter writer;
+
+    /**
+     * The names of the open elements, innermost first.
+     */
+    private final Deque<String> elements = new ArrayDeque<>();
+
+    /**
+     * The number of {@code section} elements opened in each XWiki section, innermost first.
+     */
+    private final Deque<Integer> sections = new ArrayDeque<>();
+
+    /**
+     * The state of the open tables, innermost first.
+     */
+    private final Deque<TableState> tables = new ArrayDeque<>();
+
+    /**
+     * The number of elements open when the current implicit paragraph (wrapping the inline content of a list item)
+     * was opened, -1 if there's none.
+     */
+    private int implicitParagraph = -1;
+
+    /**
+     * True when the current header is outside of any section, in which case its section is closed with the header.
+     */
+    private boolean standaloneHeader;
+
+    /**
+     * The number of nested documents, only the outermost document generates an {@code article}.
+     */
+    private int documentDepth;
+
+    /**
+     * The state of a table.
+     */
+    private static final class TableState
+    {
+        /**
+         * True if the row has started but not the {@code row} element, which is written with the first cell since
+         * its parent depends on the type of the cell.
+         */
+        private boolean pendingRow;
+
+        /**
+         * True when the {@code thead} element is open.
+         */
+        private boolean head;
+
+        /**
+         * True when the {@code tbody} element is open.
+         */
+        private boolean body;
+    }
+
+    @Override
+    public WikiPrinter getPrinter()
+    {
+        flush();
+
+        return this.printer;
+    }
+
+    @Override
+    public void setPrinter(WikiPrinter printer)
+    {
+        this.printer = printer;
+        reset(printer != null ? new DoxiaPrinterAdapter(printer) : null);
+    }
+
+    @Override
+    public void setWriter(Writer writer)
+    {
+        this.printer = new WriterWikiPrinter(writer);
+        reset(writer);
+    }
+
+    @Override
+    public void setHeaderLevel(HeaderLevel headerLevel)
+    {
+        // Sections are closed according to the structure of the events, the level of the last header is not needed
+    }
+
+    @Override
+    public void flush()
+    {
+        if (this.writer != null) {
+            try {
+                // Close the current start tag, if any, so that the output can be continued by someone else
+                if (!this.elements.isEmpty()) {
+                    this.writer.writeCharacters("");
+                }
+                this.writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(WRITE_ERROR, e);
+            }
+        }
+    }
+
+    private void reset(Writer output)
+    {
+        this.output = output;
+        this.elements.clear();
+        this.sections.clear();
+        this.tables.clear();
+        this.implicitParagraph = -1;
+        this.standaloneHeader = false;
+        this.documentDepth = 0;
+
+        try {
+            this.writer = output != null ? OUTPUT_FACTORY.createXMLStreamWriter(output) : null;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to create the DocBook stream writer", e);
+        }
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        if (this.documentDepth++ == 0) {
+            start(ARTICLE);
+        }
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        if (--this.documentDepth == 0) {
+            end(ARTICLE);
+        }
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        // Do nothing since DocBook has no equivalent
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        // Do nothing since DocBook has no equivalent
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        if (inline) {
+            inline();
+        } else {
+            block();
+        }
+
+        start("programlisting");
+        characters(content);
+        end();
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        switch (format) {
+            case BOLD:
+                inline();
+                start(EMPHASIS, ROLE, "bold");
+                break;
+            case ITALIC:
+                inline();
+                start(EMPHASIS);
+                break;
+            default:
+                // Unhandled format (like with the Doxia Sink), don't do anything.
+        }
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        if (format == Format.BOLD || format == Format.ITALIC) {
+            end(EMPHASIS);
+        }
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        block();
+
+        if (type == ListType.BULLETED) {
+            start(ITEMIZEDLIST);
+        } else {
+            // TODO: Handle other numerotations (Roman, etc)
+            start(ORDEREDLIST, "numeration", "arabic");
+        }
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        end(type == ListType.BULLETED ? ITEMIZEDLIST : ORDEREDLIST);
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        start(LISTITEM);
+    }
+
+    @Override
+    public void beginListItem(Map<String, String> parameters)
+    {
+        beginListItem();
+    }
+
+    @Override
+    public void endListItem()
+    {
+        end(LISTITEM);
+    }
+
+    @Override
+    public void endListItem(Map<String, String> parameters)
+    {
+        endListItem();
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        // Don't do anything since macro markers have no equivalent in DocBook
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        // Don't do anything since macro markers have no equivalent in DocBook
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        // Don't do anything since macros have already been transformed so this method should not be called.
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        block();
+
+        start(PARA);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        end(PARA);
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        this.sections.push(0);
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        int count = this.sections.isEmpty() ? 0 : this.sections.pop();
+        for (int i = 0; i < count; ++i) {
+            end(SECTION);
+        }
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        block();
+
+        if (this.sections.isEmpty()) {
+            // A header outside of a section gets its own section, closed with the header
+            this.standaloneHeader = true;
+        } else {
+            this.sections.push(this.sections.pop() + 1);
+        }
+        start(SECTION);
+        start(TITLE);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        end(TITLE);
+
+        if (this.standaloneHeader) {
+            this.standaloneHeader = false;
+            end(SECTION);
+        }
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        // Like with the Doxia Sink, a new line is simply generated as text
+        inline();
+        characters("\n");
+    }
+
+    @Override
+    public void onSpace()
+    {
+        inline();
+        characters(" ");
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        inline();
+        characters(String.valueOf(symbol));
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        inline();
+        characters(word);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void onRawText(String text, Syntax syntax)
+    {
+        // Like the Doxia Sink, write the raw text whatever its syntax
+        flush();
+        try {
+            this.output.write(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        block();
+
+        try {
+            this.writer.writeComment(" HR ");
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        block();
+
+        start(VARIABLELIST);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        closeDefinitionEntry();
+
+        end(VARIABLELIST);
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        closeDefinitionEntry();
+
+        start(VARLISTENTRY);
+        start(TERM);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        end(TERM);
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        if (!VARLISTENTRY.equals(this.elements.peek())) {
+            // A description without term
+            start(VARLISTENTRY);
+            start(TERM);
+            end();
+        }
+
+        start(LISTITEM);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        end(LISTITEM);
+        end(VARLISTENTRY);
+    }
+
+    /**
+     * Close the entry of a term without description, which needs an empty description to be valid.
+     */
+    private void closeDefinitionEntry()
+    {
+        if (VARLISTENTRY.equals(this.elements.peek())) {
+            start(LISTITEM);
+            end();
+            end();
+        }
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        // Not supported by the Doxia Sink either
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        block();
+
+        start(TABLE);
+        this.tables.push(new TableState());
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        this.tables.pop();
+        end(TABLE);
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        this.tables.peek().pendingRow = true;
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        startRow(false);
+
+        end(ROW);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        startRow(false);
+
+        start(ENTRY);
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        startRow(true);
+
+        start(ENTRY);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        end(ENTRY);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        end(ENTRY);
+    }
+
+    /**
+     * Write the start of the current row if not already done: the rows starting with a header cell before the first
+     * row starting with a normal cell are in the {@code thead} element, the other rows in the {@code tbody} element.
+     */
+    private void startRow(boolean headCell)
+    {
+        TableState table = this.tables.peek();
+        if (table.pendingRow) {
+            table.pendingRow = false;
+
+            if (headCell && !table.body) {
+                if (!table.head) {
+                    start(THEAD);
+                    table.head = true;
+                }
+            } else if (!table.body) {
+                if (table.head) {
+                    end(THEAD);
+                    table.head = false;
+                }
+                start(TBODY);
+                table.body = true;
+            }
+
+            start(ROW);
+        }
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        inline();
+
+        String target = reference.getReference();
+        if (target.startsWith(ANCHOR_PREFIX)) {
+            start(LINK, "linkend", target.substring(ANCHOR_PREFIX.length()));
+        } else {
+            start(ULINK, "url", target);
+        }
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        end(reference.getReference().startsWith(ANCHOR_PREFIX) ? LINK : ULINK);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        start("mediaobject");
+        start("imageobject");
+        try {
+            this.writer.writeEmptyElement("imagedata");
+            this.writer.writeAttribute("fileref", reference.getReference());
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+        end();
+        end();
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        // DocBook doesn't support the notion of metadata
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        // DocBook doesn't support the notion of metadata
+    }
+
+    /**
+     * Called before inline content: DocBook doesn't allow inline content directly in list items so it's wrapped in a
+     * paragraph, like the Doxia Sink does.
+     */
+    private void inline()
+    {
+        if (this.implicitParagraph < 0 && LISTITEM.equals(this.elements.peek())) {
+            start(PARA);
+            this.implicitParagraph = this.elements.size();
+        }
+    }
+
+    /**
+     * Called before block content: close the implicit paragraph wrapping the previous inline content, if any.
+     */
+    private void block()
+    {
+        if (this.implicitParagraph == this.elements.size()) {
+            end();
+        }
+    }
+
+    private void start(String name)
+    {
+        try {
+            this.writer.writeStartElement(name);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+
+        this.elements.push(name);
+    }
+
+    private void start(String name, String attributeName, String attributeValue)
+    {
+        start(name);
+
+        try {
+            this.writer.writeAttribute(attributeName, attributeValue);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+    }
+
+    private void characters(String text)
+    {
+        try {
+            this.writer.writeCharacters(text);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+    }
+
+    /**
+     * Close the innermost open element.
+     */
+    private void end()
+    {
+        if (this.implicitParagraph == this.elements.size()) {
+            this.implicitParagraph = -1;
+        }
+
+        this.elements.pop();
+        try {
+            this.writer.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(WRITE_ERROR, e);
+        }
+    }
+
+    /**
+     * Close the open elements until the innermost element with the passed name, included, to always produce a well
+     * formed output even when the events are not properly balanced.
+     */
+    private void end(String name)
+    {
+        if (this.elements.contains(name)) {
+            while (!name.equals(this.elements.peek())) {
+                end();
+            }
+            end();
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.xwiki.rendering.internal.docbook;
 
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
@@ -58,4 +59,21 @@ public class DocBookParserTest extends AbstractComponentTestCase
 
         Assert.assertEquals(expected, printer.toString());
     }
+
+    @Test
+    public void parseWithDocBookDoctypeAndEntities() throws Exception
+    {
+        Parser parser = getComponentManager().getInstance(Parser.class, "docbook/4.4");
+        XDOM xdom = parser.parse(new StringReader("<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE article PUBLIC \"-//OASIS//DTD DocBook XML V4.4//EN\" "
+            + "\"http://www.oasis-open.org/docbook/xml/4.4/docbookx.dtd\">\n"
+            + "<article><para>one&mdash;two&nbsp;&copy;</para></article>"));
+
+        BlockRenderer renderer = getComponentManager().getInstance(BlockRenderer.class, "plain/1.0");
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        // Doxia sends &nbsp; as a non breaking space event, which is a simple space in XWiki
+        Assert.assertEquals("one\u2014two \u00A9", printer.toString());
+    }
 }
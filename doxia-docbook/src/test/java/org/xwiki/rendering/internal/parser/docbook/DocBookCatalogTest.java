@@ -0,0 +1,70 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.docbook;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link DocBookCatalog}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+class DocBookCatalogTest
+{
+    private static final String PUBLIC_ID = "-//OASIS//DTD DocBook XML V4.4//EN";
+
+    private static final String SYSTEM_ID = "http://www.oasis-open.org/docbook/xml/4.4/docbookx.dtd";
+
+    @Test
+    void getEntitiesByPublicId()
+    {
+        Map<String, String> entities = DocBookCatalog.getInstance().getEntities(PUBLIC_ID, null);
+
+        assertEquals("\u2014", entities.get("mdash"));
+        assertEquals("\u00A9", entities.get("copy"));
+    }
+
+    @Test
+    void getEntitiesBySystemId()
+    {
+        DocBookCatalog catalog = DocBookCatalog.getInstance();
+
+        // The DTDs share the same entities, which are loaded only once
+        assertSame(catalog.getEntities(PUBLIC_ID, null), catalog.getEntities(null, SYSTEM_ID));
+        assertSame(catalog.getEntities(PUBLIC_ID, null), catalog.getEntities("-//Unknown//EN", SYSTEM_ID));
+    }
+
+    @Test
+    void getEntitiesOfUnknownDTD()
+    {
+        DocBookCatalog catalog = DocBookCatalog.getInstance();
+
+        assertTrue(catalog.getEntities("-//Unknown//EN", "http://www.example.com/unknown.dtd").isEmpty());
+        assertTrue(catalog.getEntities("-//Unknown//EN", null).isEmpty());
+        assertTrue(catalog.getEntities(null, null).isEmpty());
+    }
+}
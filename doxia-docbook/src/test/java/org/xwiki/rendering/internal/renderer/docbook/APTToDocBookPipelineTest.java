@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.docbook;
+
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.doxia.pipeline.DoxiaPipelineConverter;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Convert APT to DocBook with {@link DoxiaPipelineConverter} and compare the result with the rendering of the parsed
+ * XDOM.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class APTToDocBookPipelineTest
+{
+    private static final String APT = "apt/1.0";
+
+    private static final String DOCBOOK = "docbook/4.4";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @Test
+    void convert() throws Exception
+    {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            source.append("Section ").append(i).append("\n\n Paragraph with <<bold>> and <italic> text.\n\n");
+            source.append("* Subsection ").append(i).append("\n\n  * item one\n\n  * item two\n\n");
+            source.append("*--------*--------*\n| cell").append(i).append(" | cell |\n*--------*--------*\n\n");
+        }
+
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, APT)
+            .parse(new StringReader(source.toString()));
+        DefaultWikiPrinter expected = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, DOCBOOK).render(xdom, expected);
+
+        StreamParser parser = this.componentManager.getInstance(StreamParser.class, APT);
+        PrintRenderer renderer = this.componentManager
+            .<PrintRendererFactory>getInstance(PrintRendererFactory.class, DOCBOOK)
+            .createRenderer(new DefaultWikiPrinter());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Use a very small buffer to have the parser wait for the renderer
+            new DoxiaPipelineConverter(parser, executor, 3).convert(new StringReader(source.toString()), renderer);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(expected.toString().contains("<section><title>Subsection 99</title>"));
+        assertEquals(expected.toString(), renderer.getPrinter().toString());
+    }
+}
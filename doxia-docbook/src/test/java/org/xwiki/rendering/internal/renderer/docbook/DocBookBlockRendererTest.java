@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.docbook;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.xwiki.rendering.internal.docbook.Docbook44SyntaxProvider.DOCBOOK_4_4;
+
+/**
+ * Unit tests for {@link DocBookBlockRenderer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class DocBookBlockRendererTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @ParameterizedTest
+    @ValueSource(strings = { DoxiaConfiguration.DOXIA_ENGINE, DoxiaConfiguration.NATIVE_ENGINE })
+    void renderToWriter(String engine) throws Exception
+    {
+        this.componentManager.<DefaultDoxiaConfiguration>getInstance(DoxiaConfiguration.class)
+            .setRendererEngine(DOCBOOK_4_4, engine);
+
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0")
+            .parse(new StringReader("Title\n\n Paragraph with <<bold>> text.\n"));
+        DocBookBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "docbook/4.4");
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        // The second rendering reuses the renderer of the first one
+        StringWriter writer = new StringWriter();
+        renderer.render(xdom, writer);
+        StringWriter otherWriter = new StringWriter();
+        renderer.render(xdom, otherWriter);
+
+        assertTrue(printer.toString().contains("<emphasis role=\"bold\">bold</emphasis>"));
+        assertEquals(printer.toString(), writer.toString());
+        assertEquals(printer.toString(), otherWriter.toString());
+        assertEquals(1, renderer.getRendererPool().getCreatedCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { DoxiaConfiguration.DOXIA_ENGINE, DoxiaConfiguration.NATIVE_ENGINE })
+    void renderInParallel(String engine) throws Exception
+    {
+        this.componentManager.<DefaultDoxiaConfiguration>getInstance(DoxiaConfiguration.class)
+            .setRendererEngine(DOCBOOK_4_4, engine);
+
+        // Many top level sections, so that the document is split in several chunks whatever the number of processors,
+        // holding sections nested at various depths, so that the chunks start after sections of different levels
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            source.append("Section ").append(i).append("\n\n Paragraph with <<bold>> text.\n\n");
+            for (int depth = 1; depth <= i % 4; ++depth) {
+                source.append("*".repeat(depth)).append(" Subsection ").append(i).append('.').append(depth)
+                    .append("\n\n  * item ").append(depth).append("\n\n");
+            }
+        }
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "apt/1.0")
+            .parse(new StringReader(source.toString()));
+        DocBookBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "docbook/4.4");
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        DefaultWikiPrinter parallelPrinter = new DefaultWikiPrinter();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            renderer.render(xdom, parallelPrinter, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(printer.toString().contains("<title>Subsection 199.3</title>"));
+        assertEquals(printer.toString(), parallelPrinter.toString());
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.docbook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaObjectPool;
+import org.xwiki.rendering.internal.renderer.doxia.AbstractDoxiaBlockRenderer;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.xwiki.rendering.internal.docbook.Docbook44SyntaxProvider.DOCBOOK_4_4;
+
+/**
+ * Unit tests for {@link StAXDocBookRenderer}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class StAXDocBookRendererTest
+{
+    private static final Map<String, String> NO_PARAMETERS = Collections.emptyMap();
+
+    /**
+     * Written by the Doxia Sink before the article, but not by the StAX renderer.
+     */
+    private static final String DOXIA_PROLOG = "<?xml version=\"1.0\"?><!DOCTYPE article PUBLIC "
+        + "\"-//OASIS//DTD Simplified DocBook XML V1.1//EN\" "
+        + "\"http://www.oasis-open.org/docbook/xml/simple/1.1/sdocbook.dtd\">";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.componentManager.<DefaultDoxiaConfiguration>getInstance(DoxiaConfiguration.class)
+            .setRendererEngine(DOCBOOK_4_4, DoxiaConfiguration.NATIVE_ENGINE);
+    }
+
+    private String render(String source) throws Exception
+    {
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "docbook/4.4")
+            .parse(new StringReader(source));
+
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, "docbook/4.4").render(xdom, printer);
+
+        return printer.toString();
+    }
+
+    private String renderEvents(Consumer<StAXDocBookRenderer> events)
+    {
+        StAXDocBookRenderer renderer = new StAXDocBookRenderer();
+        renderer.setPrinter(new DefaultWikiPrinter());
+
+        renderer.beginDocument(MetaData.EMPTY);
+        events.accept(renderer);
+        renderer.endDocument(MetaData.EMPTY);
+
+        return renderer.getPrinter().toString();
+    }
+
+    private String read(String resource) throws Exception
+    {
+        try (InputStream stream = getClass().getResourceAsStream("/docbook44/simple/" + resource + ".inout.txt")) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void createRenderer() throws Exception
+    {
+        PrintRendererFactory factory = this.componentManager.getInstance(PrintRendererFactory.class, "docbook/4.4");
+
+        assertTrue(factory.createRenderer(new DefaultWikiPrinter()) instanceof StAXDocBookRenderer);
+    }
+
+    /**
+     * bold3 is not tested since the Doxia DocBook parser swaps the nested bold and italic formats, so it can't be
+     * rendered back to its source by any engine.
+     */
+    @Test
+    void renderLikeTheDoxiaSink() throws Exception
+    {
+        for (String test : new String[] { "paragraph/paragraph1", "italic/italic1", "bold/bold1", "bold/bold2",
+            "list/list1", "section/section1", "table/table1", "verbatim/verbatim1" }) {
+            String content = read(test);
+
+            assertEquals(content, render(content), test);
+        }
+    }
+
+    @Test
+    void escapeAndStream() throws Exception
+    {
+        XDOM xdom = this.componentManager.<Parser>getInstance(Parser.class, "docbook/4.4")
+            .parse(new StringReader("<article><para>a &lt; b &amp;&amp; c &gt; \"d\" caf\u00e9</para></article>"));
+        AbstractDoxiaBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "docbook/4.4");
+
+        StringWriter writer = new StringWriter();
+        renderer.render(xdom, writer);
+
+        // The JDK stream writer escapes > but neither " nor the non-ASCII characters
+        assertEquals("<article><para>a &lt; b &amp;&amp; c &gt; \"d\" caf\u00e9</para></article>",
+            writer.toString());
+    }
+
+    @Test
+    void switchEngine() throws Exception
+    {
+        DefaultDoxiaConfiguration configuration = this.componentManager.getInstance(DoxiaConfiguration.class);
+        AbstractDoxiaBlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, "docbook/4.4");
+        String content = read("bold/bold1");
+
+        assertEquals(content, render(content));
+        DoxiaObjectPool<PrintRenderer> nativePool = renderer.getRendererPool();
+        assertEquals(1, nativePool.getCreatedCount());
+
+        // The renderers of the previous engine must not be reused
+        configuration.setRendererEngine(DOCBOOK_4_4, DoxiaConfiguration.DOXIA_ENGINE);
+        assertEquals(DOXIA_PROLOG + content, render(content));
+        DoxiaObjectPool<PrintRenderer> doxiaPool = renderer.getRendererPool();
+        assertNotSame(nativePool, doxiaPool);
+        assertEquals(1, doxiaPool.getCreatedCount());
+        PrintRenderer doxiaRenderer = doxiaPool.borrow();
+        assertTrue(doxiaRenderer instanceof DocBookRenderer);
+        doxiaPool.release(doxiaRenderer);
+
+        configuration.setRendererEngine(DOCBOOK_4_4, DoxiaConfiguration.NATIVE_ENGINE);
+        assertEquals(content, render(content));
+        assertSame(nativePool, renderer.getRendererPool());
+        assertEquals(1, nativePool.getCreatedCount());
+        assertEquals(2, nativePool.getBorrowedCount());
+        PrintRenderer nativeRenderer = nativePool.borrow();
+        assertTrue(nativeRenderer instanceof StAXDocBookRenderer);
+        nativePool.release(nativeRenderer);
+    }
+
+    @Test
+    void renderDefinitionList()
+    {
+        assertEquals("<article><variablelist>"
+            + "<varlistentry><term>term</term><listitem><para>description</para></listitem></varlistentry>"
+            + "<varlistentry><term></term><listitem><para>alone</para></listitem></varlistentry>"
+            + "<varlistentry><term>first</term><listitem></listitem></varlistentry>"
+            + "<varlistentry><term>last</term><listitem></listitem></varlistentry>"
+            + "</variablelist></article>", renderEvents(renderer -> {
+            renderer.beginDefinitionList(NO_PARAMETERS);
+            renderer.beginDefinitionTerm();
+            renderer.onWord("term");
+            renderer.endDefinitionTerm();
+            renderer.beginDefinitionDescription();
+            renderer.onWord("description");
+            renderer.endDefinitionDescription();
+            // A description without term
+            renderer.beginDefinitionDescription();
+            renderer.onWord("alone");
+            renderer.endDefinitionDescription();
+            // Terms without description
+            renderer.beginDefinitionTerm();
+            renderer.onWord("first");
+            renderer.endDefinitionTerm();
+            renderer.beginDefinitionTerm();
+            renderer.onWord("last");
+            renderer.endDefinitionTerm();
+            renderer.endDefinitionList(NO_PARAMETERS);
+        }));
+    }
+
+    @Test
+    void renderLists()
+    {
+        assertEquals("<article><orderedlist numeration=\"arabic\"><listitem><para>one\n!</para>"
+            + "<itemizedlist><listitem><para><emphasis>nested</emphasis></para></listitem></itemizedlist>"
+            + "<programlisting>code</programlisting></listitem></orderedlist></article>", renderEvents(renderer -> {
+            renderer.beginList(ListType.NUMBERED, NO_PARAMETERS);
+            renderer.beginListItem(NO_PARAMETERS);
+            renderer.onWord("one");
+            renderer.onNewLine();
+            renderer.onSpecialSymbol('!');
+            renderer.beginList(ListType.BULLETED, NO_PARAMETERS);
+            renderer.beginListItem();
+            renderer.beginFormat(Format.ITALIC, NO_PARAMETERS);
+            renderer.onWord("nested");
+            renderer.endFormat(Format.ITALIC, NO_PARAMETERS);
+            renderer.endListItem();
+            renderer.endList(ListType.BULLETED, NO_PARAMETERS);
+            renderer.onVerbatim("code", false, NO_PARAMETERS);
+            renderer.endListItem(NO_PARAMETERS);
+            renderer.endList(ListType.NUMBERED, NO_PARAMETERS);
+        }));
+    }
+
+    @Test
+    void renderTableWithHeadRows()
+    {
+        assertEquals("<article><table>"
+            + "<thead><row><entry>a</entry></row><row><entry>b</entry></row></thead>"
+            + "<tbody><row><entry>c</entry></row><row><entry>d</entry></row><row></row></tbody>"
+            + "</table></article>", renderEvents(renderer -> {
+            renderer.beginTable(NO_PARAMETERS);
+            renderer.beginTableRow(NO_PARAMETERS);
+            renderer.beginTableHeadCell(NO_PARAMETERS);
+            renderer.onWord("a");
+            renderer.endTableHeadCell(NO_PARAMETERS);
+            renderer.endTableRow(NO_PARAMETERS);
+            renderer.beginTableRow(NO_PARAMETERS);
+            renderer.beginTableHeadCell(NO_PARAMETERS);
+            renderer.onWord("b");
+            renderer.endTableHeadCell(NO_PARAMETERS);
+            renderer.endTableRow(NO_PARAMETERS);
+            renderer.beginTableRow(NO_PARAMETERS);
+            renderer.beginTableCell(NO_PARAMETERS);
+            renderer.onWord("c");
+            renderer.endTableCell(NO_PARAMETERS);
+            renderer.endTableRow(NO_PARAMETERS);
+            // A header cell after the first body row stays in the body
+            renderer.beginTableRow(NO_PARAMETERS);
+            renderer.beginTableHeadCell(NO_PARAMETERS);
+            renderer.onWord("d");
+            renderer.endTableHeadCell(NO_PARAMETERS);
+            renderer.endTableRow(NO_PARAMETERS);
+            // An empty row
+            renderer.beginTableRow(NO_PARAMETERS);
+            renderer.endTableRow(NO_PARAMETERS);
+            renderer.endTable(NO_PARAMETERS);
+        }));
+    }
+
+    @Test
+    void renderLinksAndImages()
+    {
+        assertEquals("<article><para>"
+            + "<ulink url=\"http://www.xwiki.org?a=1&amp;b=&quot;2&quot;\">site</ulink>"
+            + "<link linkend=\"target\">anchor</link>"
+            + "<mediaobject><imageobject><imagedata fileref=\"image.png\"/></imageobject></mediaobject>"
+            + "</para></article>", renderEvents(renderer -> {
+            renderer.beginParagraph(NO_PARAMETERS);
+            ResourceReference url = new ResourceReference("http://www.xwiki.org?a=1&b=\"2\"", ResourceType.URL);
+            renderer.beginLink(url, false, NO_PARAMETERS);
+            renderer.onWord("site");
+            renderer.endLink(url, false, NO_PARAMETERS);
+            ResourceReference anchor = new ResourceReference("#target", ResourceType.URL);
+            renderer.beginLink(anchor, false, NO_PARAMETERS);
+            renderer.onWord("anchor");
+            renderer.endLink(anchor, false, NO_PARAMETERS);
+            renderer.onImage(new ResourceReference("image.png", ResourceType.URL), false, NO_PARAMETERS);
+            renderer.endParagraph(NO_PARAMETERS);
+        }));
+    }
+
+    @Test
+    void renderUnsupportedEvents()
+    {
+        assertEquals("<article><para>quotecode</para></article>", renderEvents(renderer -> {
+            renderer.beginMetaData(MetaData.EMPTY);
+            renderer.beginGroup(NO_PARAMETERS);
+            renderer.beginQuotation(NO_PARAMETERS);
+            renderer.beginQuotationLine();
+            renderer.beginParagraph(NO_PARAMETERS);
+            renderer.onWord("quote");
+            renderer.onId("id");
+            renderer.beginFormat(Format.MONOSPACE, NO_PARAMETERS);
+            renderer.onWord("code");
+            renderer.endFormat(Format.MONOSPACE, NO_PARAMETERS);
+            renderer.beginMacroMarker("macro", NO_PARAMETERS, null, true);
+            renderer.onMacro("macro", NO_PARAMETERS, null, true);
+            renderer.endMacroMarker("macro", NO_PARAMETERS, null, true);
+            renderer.endParagraph(NO_PARAMETERS);
+            renderer.endQuotationLine();
+            renderer.endQuotation(NO_PARAMETERS);
+            renderer.onEmptyLines(2);
+            renderer.endGroup(NO_PARAMETERS);
+            renderer.endMetaData(MetaData.EMPTY);
+        }));
+    }
+
+    @Test
+    void renderSectionsAndRawContent()
+    {
+        assertEquals("<article><section><title>alone</title></section>"
+            + "<section><title>title</title><!-- HR --><para>raw</para><programlisting>inline</programlisting>"
+            + "</section></article>", renderEvents(renderer -> {
+            // A header outside of a section
+            renderer.beginHeader(HeaderLevel.LEVEL1, "id", NO_PARAMETERS);
+            renderer.onWord("alone");
+            renderer.endHeader(HeaderLevel.LEVEL1, "id", NO_PARAMETERS);
+            renderer.beginSection(NO_PARAMETERS);
+            renderer.beginHeader(HeaderLevel.LEVEL1, "id", NO_PARAMETERS);
+            renderer.onWord("title");
+            renderer.endHeader(HeaderLevel.LEVEL1, "id", NO_PARAMETERS);
+            renderer.onHorizontalLine(NO_PARAMETERS);
+            renderer.onRawText("<para>raw</para>", Syntax.XHTML_1_0);
+            // Nested documents (e.g. included content) don't generate articles
+            renderer.beginDocument(MetaData.EMPTY);
+            renderer.onVerbatim("inline", true, NO_PARAMETERS);
+            renderer.endDocument(MetaData.EMPTY);
+            renderer.endSection(NO_PARAMETERS);
+            // Unbalanced events
+            renderer.endSection(NO_PARAMETERS);
+            renderer.endParagraph(NO_PARAMETERS);
+        }));
+    }
+
+    @Test
+    void reuseRenderer()
+    {
+        StAXDocBookRenderer renderer = new StAXDocBookRenderer();
+        renderer.setWriter(new StringWriter());
+        renderer.beginDocument(MetaData.EMPTY);
+        renderer.beginParagraph(NO_PARAMETERS);
+
+        // The content of the unfinished rendering is dropped
+        StringWriter writer = new StringWriter();
+        renderer.setWriter(writer);
+        renderer.setHeaderLevel(HeaderLevel.LEVEL2);
+        renderer.beginDocument(MetaData.EMPTY);
+        renderer.onWord("content");
+        renderer.endDocument(MetaData.EMPTY);
+        renderer.flush();
+        assertEquals("<article>content</article>", writer.toString());
+
+        renderer.setPrinter(null);
+        assertNull(renderer.getPrinter());
+    }
+
+    @Test
+    void failToWrite()
+    {
+        StAXDocBookRenderer renderer = new StAXDocBookRenderer();
+        renderer.setWriter(new Writer()
+        {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException
+            {
+                throw new IOException("Failed to write");
+            }
+
+            @Override
+            public void flush()
+            {
+                // Nothing is ever written
+            }
+
+            @Override
+            public void close()
+            {
+                // Nothing is ever written
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> renderer.onRawText("raw", Syntax.XHTML_1_0));
+    }
+}
@@ -0,0 +1,750 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.twiki;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+import org.xwiki.rendering.internal.parser.doxia.HeaderTextListener;
+import org.xwiki.rendering.internal.parser.doxia.PlainTextTokenizer;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * A TWiki parser producing the XWiki events directly from the source in a single linear pass, without the regular
+ * expressions and intermediate blocks of the Doxia TWiki module nor the
+ * {@link org.xwiki.rendering.internal.parser.doxia.XWikiGeneratorSink}.
+ * <p>
+ * The supported constructs are sections, paragraphs, bulleted and numbered lists, tables, horizontal rules, verbatim
+ * blocks, formatting ({@code *bold*}, {@code _italic_}, {@code __bold italic__}, {@code =fixed=} and
+ * {@code ==bold fixed==}), explicit links, URLs and WikiWords, see {@link #supports(String)}. A new instance must be
+ * used for each parse.
+ * </p>
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+public class NativeTWikiParser
+{
+    private static final int MAX_SECTION_LEVEL = 6;
+
+    private static final String SECTION = "---+";
+
+    private static final String VERBATIM_START = "<verbatim>";
+
+    private static final String VERBATIM_END = "</verbatim>";
+
+    private static final String LINK_START = "[[";
+
+    private static final String LINK_END = "]]";
+
+    private static final String LINK_SEPARATOR = "][";
+
+    private static final String[] URL_PREFIXES = { "http://", "https://", "ftp://", "mailto:" };
+
+    private static final String[] IMAGE_EXTENSIONS = { ".png", ".gif", ".jpg", ".jpeg", ".bmp" };
+
+    /**
+     * The characters which can follow the end of a formatted text.
+     */
+    private static final String FORMAT_END_FOLLOWERS = ",.;:!?)'\"";
+
+    private final Listener listener;
+
+    private final IdGenerator idGenerator;
+
+    private final ResourceReferenceParser linkReferenceParser;
+
+    private final PrintRendererFactory plainRendererFactory;
+
+    private final MetaData documentMetaData;
+
+    private final PlainTextTokenizer textTokenizer = new PlainTextTokenizer();
+
+    /**
+     * The levels of the open sections, the deepest first.
+     */
+    private final Deque<Integer> sections = new ArrayDeque<>();
+
+    /**
+     * The open lists, the deepest first.
+     */
+    private final Deque<OpenList> lists = new ArrayDeque<>();
+
+    private String source;
+
+    /**
+     * The offset of the current line in the source.
+     */
+    private int lineStart;
+
+    /**
+     * The offset of the end of the current line (excluding the line separator) in the source.
+     */
+    private int lineEnd;
+
+    /**
+     * The offset of the line following the current line in the source.
+     */
+    private int nextLineStart;
+
+    /**
+     * True if the current paragraph is open.
+     */
+    private boolean inParagraph;
+
+    /**
+     * True if a table is open.
+     */
+    private boolean inTable;
+
+    /**
+     * A list which has been started but not ended yet.
+     */
+    private static final class OpenList
+    {
+        private final ListType type;
+
+        private final int indent;
+
+        OpenList(ListType type, int indent)
+        {
+            this.type = type;
+            this.indent = indent;
+        }
+    }
+
+    /**
+     * @param listener the listener receiving the generated events
+     * @param idGenerator the generator used to generate unique ids for the header blocks
+     * @param linkReferenceParser the parser used for link references
+     * @param plainRendererFactory used to generate the header ids
+     * @param syntax the syntax of the parsed content
+     */
+    public NativeTWikiParser(Listener listener, IdGenerator idGenerator, ResourceReferenceParser linkReferenceParser,
+        PrintRendererFactory plainRendererFactory, Syntax syntax)
+    {
+        this.listener = listener;
+        this.idGenerator = idGenerator;
+        this.linkReferenceParser = linkReferenceParser;
+        this.plainRendererFactory = plainRendererFactory;
+        this.documentMetaData = new MetaData();
+        this.documentMetaData.addMetaData(MetaData.SYNTAX, syntax);
+    }
+
+    /**
+     * @param source the TWiki source to check
+     * @return {@code false} if the source contains constructs not supported by this parser (HTML markup, inline
+     *         verbatim, definition lists and images), in which case the Doxia parser must be used
+     */
+    public static boolean supports(String source)
+    {
+        int length = source.length();
+        for (int i = source.indexOf('<'); i != -1; i = source.indexOf('<', i + 1)) {
+            boolean tag = i + 1 < length && (Character.isLetter(source.charAt(i + 1)) || source.charAt(i + 1) == '/');
+            // Only the verbatim blocks starting at the beginning of a line are supported
+            if (tag && !(source.startsWith(VERBATIM_START, i) && isLineStart(source, i))
+                && !(source.startsWith(VERBATIM_END, i) && isVerbatimEnd(source, i))) {
+                return false;
+            }
+        }
+
+        for (int i = source.indexOf('$'); i != -1; i = source.indexOf('$', i + 1)) {
+            if (isLineStart(source, i) && i > 0 && source.charAt(i - 1) == ' ') {
+                return false;
+            }
+        }
+
+        String lowerCaseSource = source.toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (lowerCaseSource.contains(extension)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isLineStart(String source, int offset)
+    {
+        for (int i = offset - 1; i >= 0; --i) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return true;
+            } else if (c != ' ' && c != '\t') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isVerbatimEnd(String source, int offset)
+    {
+        // A verbatim end is supported if its block started at the beginning of a line
+        int start = source.lastIndexOf(VERBATIM_START, offset);
+        return start != -1 && isLineStart(source, start);
+    }
+
+    /**
+     * @param source the TWiki source to parse
+     */
+    public void parse(String source)
+    {
+        this.source = source;
+        this.nextLineStart = 0;
+
+        this.listener.beginDocument(this.documentMetaData);
+
+        while (nextLine()) {
+            int start = skipSpaces(this.lineStart);
+            if (start == this.lineEnd) {
+                // Blank line
+                closeBlocks();
+            } else if (this.source.startsWith(SECTION, start) && start == this.lineStart) {
+                closeBlocks();
+                parseSectionTitle(start);
+            } else if (isHorizontalRule(start)) {
+                closeBlocks();
+                this.listener.onHorizontalLine(Listener.EMPTY_PARAMETERS);
+            } else if (this.source.startsWith(VERBATIM_START, start)) {
+                closeBlocks();
+                parseVerbatim(start + VERBATIM_START.length());
+            } else if (this.source.charAt(start) == '|') {
+                parseTableRow(start);
+            } else if (!parseListItem(start)) {
+                parseParagraphLine(start);
+            }
+        }
+
+        closeBlocks();
+        while (!this.sections.isEmpty()) {
+            this.sections.pop();
+            this.listener.endSection(Listener.EMPTY_PARAMETERS);
+        }
+
+        this.listener.endDocument(this.documentMetaData);
+    }
+
+    /**
+     * Move to the next line of the source.
+     *
+     * @return {@code false} if there's no more lines
+     */
+    private boolean nextLine()
+    {
+        if (this.nextLineStart > this.source.length()) {
+            return false;
+        }
+
+        this.lineStart = this.nextLineStart;
+        int end = this.lineStart;
+        while (end < this.source.length() && this.source.charAt(end) != '\n' && this.source.charAt(end) != '\r') {
+            ++end;
+        }
+        setLineEnd(end);
+
+        return true;
+    }
+
+    private void setLineEnd(int end)
+    {
+        this.lineEnd = end;
+
+        this.nextLineStart = end + 1;
+        if (end < this.source.length() && this.source.charAt(end) == '\r' && this.nextLineStart < this.source.length()
+            && this.source.charAt(this.nextLineStart) == '\n') {
+            ++this.nextLineStart;
+        }
+    }
+
+    private void closeBlocks()
+    {
+        closeParagraph();
+        closeTable();
+        closeLists(0);
+    }
+
+    private void closeParagraph()
+    {
+        if (this.inParagraph) {
+            this.listener.endParagraph(Listener.EMPTY_PARAMETERS);
+            this.inParagraph = false;
+        }
+    }
+
+    private void closeTable()
+    {
+        if (this.inTable) {
+            this.listener.endTable(Listener.EMPTY_PARAMETERS);
+            this.inTable = false;
+        }
+    }
+
+    private void parseSectionTitle(int start)
+    {
+        int i = start + SECTION.length() - 1;
+        int level = 0;
+        while (i < this.lineEnd && this.source.charAt(i) == '+') {
+            level = Math.min(level + 1, MAX_SECTION_LEVEL);
+            ++i;
+        }
+        // "!!" excludes the section from the table of contents, which doesn't matter here
+        if (this.source.startsWith("!!", i)) {
+            i += 2;
+        }
+        String text = this.source.substring(i, this.lineEnd).trim();
+
+        while (!this.sections.isEmpty() && this.sections.peek() >= level) {
+            this.sections.pop();
+            this.listener.endSection(Listener.EMPTY_PARAMETERS);
+        }
+        this.sections.push(level);
+        this.listener.beginSection(Listener.EMPTY_PARAMETERS);
+
+        // Buffer the title events until we know the header id, accumulating its plain text at the same time
+        HeaderTextListener title = new HeaderTextListener();
+        parseInline(text, title);
+
+        HeaderLevel headerLevel = HeaderLevel.parseInt(level);
+        String id = this.idGenerator.generateUniqueId("H", title.toPlainText(this.plainRendererFactory));
+
+        this.listener.beginHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
+        title.consumeEvents(this.listener);
+        this.listener.endHeader(headerLevel, id, Listener.EMPTY_PARAMETERS);
+    }
+
+    private boolean isHorizontalRule(int start)
+    {
+        if (start != this.lineStart || this.lineEnd - start < 3) {
+            return false;
+        }
+        for (int i = start; i < this.lineEnd; ++i) {
+            if (this.source.charAt(i) != '-') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void parseVerbatim(int contentStart)
+    {
+        // The content ends with the first verbatim end, possibly on the same line
+        int verbatimEnd = this.source.indexOf(VERBATIM_END, contentStart);
+        int contentEnd = verbatimEnd != -1 ? verbatimEnd : this.source.length();
+
+        String content = this.source.substring(contentStart, contentEnd);
+        // Ignore the line separators following the start and preceding the end of the verbatim block
+        content = content.replaceFirst("^\\r?\\n", "").replaceFirst("\\r?\\n$", "");
+
+        this.listener.onVerbatim(content, false, Listener.EMPTY_PARAMETERS);
+
+        // Continue after the line holding the verbatim end
+        int end = contentEnd;
+        while (end < this.source.length() && this.source.charAt(end) != '\n' && this.source.charAt(end) != '\r') {
+            ++end;
+        }
+        setLineEnd(end);
+    }
+
+    private void parseTableRow(int start)
+    {
+        closeParagraph();
+        closeLists(0);
+
+        if (!this.inTable) {
+            this.listener.beginTable(Listener.EMPTY_PARAMETERS);
+            this.inTable = true;
+        }
+
+        this.listener.beginTableRow(Listener.EMPTY_PARAMETERS);
+
+        int cellStart = start + 1;
+        for (int cellEnd = this.source.indexOf('|', cellStart); cellEnd != -1 && cellEnd < this.lineEnd;
+            cellEnd = this.source.indexOf('|', cellStart)) {
+            parseTableCell(this.source.substring(cellStart, cellEnd).trim());
+            cellStart = cellEnd + 1;
+        }
+
+        // Content after the last cell separator (if any) is a last cell without end
+        String rest = this.source.substring(cellStart, this.lineEnd).trim();
+        if (!rest.isEmpty()) {
+            parseTableCell(rest);
+        }
+
+        this.listener.endTableRow(Listener.EMPTY_PARAMETERS);
+    }
+
+    private void parseTableCell(String text)
+    {
+        if (text.length() > 2 && text.charAt(0) == '*' && text.charAt(text.length() - 1) == '*') {
+            this.listener.beginTableHeadCell(Listener.EMPTY_PARAMETERS);
+            parseInline(text.substring(1, text.length() - 1).trim(), this.listener);
+            this.listener.endTableHeadCell(Listener.EMPTY_PARAMETERS);
+        } else {
+            this.listener.beginTableCell(Listener.EMPTY_PARAMETERS);
+            parseInline(text, this.listener);
+            this.listener.endTableCell(Listener.EMPTY_PARAMETERS);
+        }
+    }
+
+    /**
+     * Parse the current line as a list item ({@code * item}, {@code 1. item}, {@code a. item}, etc. indented by
+     * multiples of 3 spaces) if it is one.
+     */
+    private boolean parseListItem(int start)
+    {
+        if (start == this.lineStart) {
+            return false;
+        }
+
+        ListType type;
+        int textStart;
+        char c = this.source.charAt(start);
+        if (c == '*' && isItemTextStart(start + 1)) {
+            type = ListType.BULLETED;
+            textStart = Math.min(start + 2, this.lineEnd);
+        } else if ((Character.isDigit(c) || "aAiI".indexOf(c) != -1) && start + 1 < this.lineEnd
+            && this.source.charAt(start + 1) == '.' && isItemTextStart(start + 2)) {
+            type = ListType.NUMBERED;
+            textStart = Math.min(start + 3, this.lineEnd);
+        } else {
+            return false;
+        }
+
+        closeParagraph();
+        closeTable();
+
+        int indent = start - this.lineStart;
+
+        // Close the lists deeper than the new item, and the list at the same level if it's of a different type
+        while (!this.lists.isEmpty() && this.lists.peek().indent > indent) {
+            closeList();
+        }
+        OpenList list = this.lists.peek();
+        if (list != null && list.indent == indent && list.type != type) {
+            closeList();
+            list = this.lists.peek();
+        }
+
+        if (list == null || list.indent < indent) {
+            // New list, nested in the current item of the parent list if any
+            this.lists.push(new OpenList(type, indent));
+            this.listener.beginList(type, Listener.EMPTY_PARAMETERS);
+        } else {
+            this.listener.endListItem();
+        }
+
+        this.listener.beginListItem();
+        parseInline(this.source.substring(textStart, this.lineEnd).trim(), this.listener);
+
+        return true;
+    }
+
+    private void closeList()
+    {
+        OpenList list = this.lists.pop();
+        this.listener.endListItem();
+        this.listener.endList(list.type, Listener.EMPTY_PARAMETERS);
+    }
+
+    private void closeLists(int indent)
+    {
+        while (!this.lists.isEmpty() && this.lists.peek().indent >= indent) {
+            closeList();
+        }
+    }
+
+    private void parseParagraphLine(int start)
+    {
+        closeTable();
+        closeLists(0);
+
+        if (this.inParagraph) {
+            this.listener.onNewLine();
+        } else {
+            this.listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+            this.inParagraph = true;
+        }
+
+        parseInline(this.source.substring(start, this.lineEnd).trim(), this.listener);
+    }
+
+    /**
+     * Parse the inline markup of some text (formatting, links, URLs and WikiWords).
+     */
+    private void parseInline(String text, Listener target)
+    {
+        StringBuilder buffer = new StringBuilder();
+
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int next = -1;
+            if (c == '*' || c == '_' || c == '=') {
+                next = parseFormat(text, i, buffer, target);
+            } else if (c == '[') {
+                next = parseLink(text, i, buffer, target);
+            } else if (c == '!' && isWordStart(text, i) && getWikiWordEnd(text, i + 1) != -1) {
+                // Escaped WikiWord
+                int end = getWikiWordEnd(text, i + 1);
+                buffer.append(text, i + 1, end);
+                next = end;
+            } else if (isWordStart(text, i)) {
+                next = parseURLOrWikiWord(text, i, buffer, target);
+            }
+
+            if (next == -1) {
+                buffer.append(c);
+                ++i;
+            } else {
+                i = next;
+            }
+        }
+
+        flushText(buffer, target);
+    }
+
+    private int parseFormat(String text, int start, StringBuilder buffer, Listener target)
+    {
+        char c = text.charAt(start);
+        boolean doubled = c != '*' && start + 1 < text.length() && text.charAt(start + 1) == c;
+        int markupLength = doubled ? 2 : 1;
+
+        int contentStart = start + markupLength;
+        if (!isWordStart(text, start) || contentStart >= text.length()
+            || Character.isWhitespace(text.charAt(contentStart))) {
+            return -1;
+        }
+
+        int end = findFormatEnd(text, c, markupLength, contentStart);
+        if (end == -1) {
+            return -1;
+        }
+
+        flushText(buffer, target);
+
+        Format[] formats = getFormats(c, doubled);
+        for (Format format : formats) {
+            target.beginFormat(format, Listener.EMPTY_PARAMETERS);
+        }
+        parseInline(text.substring(contentStart, end), target);
+        for (int i = formats.length - 1; i >= 0; --i) {
+            target.endFormat(formats[i], Listener.EMPTY_PARAMETERS);
+        }
+
+        return end + markupLength;
+    }
+
+    private int findFormatEnd(String text, char c, int markupLength, int contentStart)
+    {
+        for (int i = text.indexOf(c, contentStart + 1); i != -1; i = text.indexOf(c, i + 1)) {
+            int after = i + markupLength;
+            if (countRepeated(text, i, c) == markupLength && !Character.isWhitespace(text.charAt(i - 1))
+                && (after == text.length() || Character.isWhitespace(text.charAt(after))
+                    || FORMAT_END_FOLLOWERS.indexOf(text.charAt(after)) != -1)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private Format[] getFormats(char c, boolean doubled)
+    {
+        if (c == '*') {
+            return new Format[] { Format.BOLD };
+        } else if (c == '_') {
+            return doubled ? new Format[] { Format.BOLD, Format.ITALIC } : new Format[] { Format.ITALIC };
+        } else {
+            return doubled ? new Format[] { Format.BOLD, Format.MONOSPACE } : new Format[] { Format.MONOSPACE };
+        }
+    }
+
+    /**
+     * Parse {@code [[target][label]]} and {@code [[target]]} links.
+     */
+    private int parseLink(String text, int start, StringBuilder buffer, Listener target)
+    {
+        if (!text.startsWith(LINK_START, start)) {
+            return -1;
+        }
+        int end = text.indexOf(LINK_END, start + LINK_START.length());
+        if (end == -1) {
+            return -1;
+        }
+
+        String link = text.substring(start + LINK_START.length(), end);
+        String label = link;
+        int separator = link.indexOf(LINK_SEPARATOR);
+        if (separator != -1) {
+            label = link.substring(separator + LINK_SEPARATOR.length());
+            link = link.substring(0, separator);
+        }
+
+        flushText(buffer, target);
+        emitLink(getWikiWordEnd(link, 0) == link.length() ? resolveWikiWord(link) : link, label, target);
+
+        return end + LINK_END.length();
+    }
+
+    private int parseURLOrWikiWord(String text, int start, StringBuilder buffer, Listener target)
+    {
+        for (String prefix : URL_PREFIXES) {
+            if (text.startsWith(prefix, start)) {
+                int end = start + prefix.length();
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    ++end;
+                }
+
+                flushText(buffer, target);
+                String url = text.substring(start, end);
+                emitLink(url, url, target);
+
+                return end;
+            }
+        }
+
+        int end = getWikiWordEnd(text, start);
+        if (end != -1) {
+            flushText(buffer, target);
+            String wikiWord = text.substring(start, end);
+            emitLink(resolveWikiWord(wikiWord), wikiWord, target);
+        }
+
+        return end;
+    }
+
+    private void emitLink(String link, String label, Listener target)
+    {
+        ResourceReference reference = this.linkReferenceParser.parse(link);
+        target.beginLink(reference, false, Listener.EMPTY_PARAMETERS);
+        this.textTokenizer.tokenize(label, target);
+        target.endLink(reference, false, Listener.EMPTY_PARAMETERS);
+    }
+
+    /**
+     * @return the link to a WikiWord, like the Doxia TWiki module resolves it
+     */
+    private String resolveWikiWord(String wikiWord)
+    {
+        return "./" + wikiWord + ".html";
+    }
+
+    /**
+     * @return the end of the WikiWord ({@code [A-Z]+[a-z0-9]+[A-Z][A-Za-z0-9]*}) starting at the passed offset, or -1
+     *         if there's none
+     */
+    private static int getWikiWordEnd(String text, int start)
+    {
+        int i = start;
+        int length = text.length();
+
+        int upperCaseStart = i;
+        while (i < length && isUpperCase(text.charAt(i))) {
+            ++i;
+        }
+        int lowerCaseStart = i;
+        while (i < length && (isLowerCase(text.charAt(i)) || isDigit(text.charAt(i)))) {
+            ++i;
+        }
+        if (lowerCaseStart == upperCaseStart || i == lowerCaseStart || i == length || !isUpperCase(text.charAt(i))) {
+            return -1;
+        }
+        while (i < length && (isUpperCase(text.charAt(i)) || isLowerCase(text.charAt(i)) || isDigit(text.charAt(i)))) {
+            ++i;
+        }
+
+        // The WikiWord must end at a word boundary
+        return i == length || !Character.isLetterOrDigit(text.charAt(i)) ? i : -1;
+    }
+
+    private static boolean isUpperCase(char c)
+    {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLowerCase(char c)
+    {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordStart(String text, int offset)
+    {
+        if (offset == 0) {
+            return true;
+        }
+
+        char previous = text.charAt(offset - 1);
+        return Character.isWhitespace(previous) || previous == '(';
+    }
+
+    private static int countRepeated(String text, int start, char c)
+    {
+        int end = start;
+        while (end < text.length() && text.charAt(end) == c) {
+            ++end;
+        }
+
+        return end - start;
+    }
+
+    private void flushText(StringBuilder buffer, Listener target)
+    {
+        if (buffer.length() > 0) {
+            this.textTokenizer.tokenize(buffer, target);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * @return true if a list item marker can end at the passed offset: it's followed by a space or, like in Doxia, by
+     *         the end of the line (for an empty item)
+     */
+    private boolean isItemTextStart(int offset)
+    {
+        return offset == this.lineEnd || this.source.charAt(offset) == ' ';
+    }
+
+    private int skipSpaces(int start)
+    {
+        int i = start;
+        while (i < this.lineEnd && (this.source.charAt(i) == ' ' || this.source.charAt(i) == '\t')) {
+            ++i;
+        }
+
+        return i;
+    }
+}
@@ -23,13 +23,21 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
 import org.xwiki.rendering.internal.parser.doxia.AbstractDoxiaParser;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
 
 import static org.xwiki.rendering.internal.twiki.TWiki10SyntaxProvider.TWIKI_1_0;
 
 /**
  * TWiki Parser.
+ * <p>
+ * The content is parsed with the Doxia TWiki module unless the {@link DoxiaConfiguration#NATIVE_ENGINE native
+ * engine} is configured for this syntax, in which case the {@link NativeTWikiParser} is used for the content it
+ * supports.
+ * </p>
  *
  * @version $Id$
  * @since 4.1M1
@@ -50,4 +58,17 @@ public class TWikiParser extends AbstractDoxiaParser
     {
         return new org.apache.maven.doxia.module.twiki.TWikiParser();
     }
+
+    @Override
+    protected boolean parseNative(String source, Listener listener, IdGenerator idGenerator)
+    {
+        if (!NativeTWikiParser.supports(source)) {
+            return false;
+        }
+
+        new NativeTWikiParser(listener, idGenerator, getLinkReferenceParser(), this.plainRendererFactory, getSyntax())
+            .parse(source);
+
+        return true;
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.twiki;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BulletedListBlock;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.HorizontalLineBlock;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.ListItemBlock;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.NumberedListBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.SpecialSymbolBlock;
+import org.xwiki.rendering.block.TableBlock;
+import org.xwiki.rendering.block.TableCellBlock;
+import org.xwiki.rendering.block.TableHeadCellBlock;
+import org.xwiki.rendering.block.VerbatimBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.doxia.DefaultDoxiaConfiguration;
+import org.xwiki.rendering.internal.doxia.DoxiaConfiguration;
+import org.xwiki.rendering.internal.twiki.TWiki10SyntaxProvider;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link TWikiParser}.
+ *
+ * @version $Id$
+ * @since 16.9.0
+ */
+@ComponentTest
+@AllComponents
+class TWikiParserTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private Parser parser;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.parser = this.componentManager.getInstance(Parser.class, "twiki/1.0");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "This is *bold*",
+        "This is _italic_",
+        "This is =monospace=",
+        "paragraph1\n\nparagraph2\n\nparagraph3",
+        // Not supported by the native engine
+        "Some <b>HTML</b>"
+    })
+    void parseWithNativeEngine(String source) throws Exception
+    {
+        String expected = render(this.parser.parse(new StringReader(source)));
+
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        assertEquals(expected, render(this.parser.parse(new StringReader(source))));
+    }
+
+    @Test
+    void parseBlocksWithNativeEngine() throws Exception
+    {
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        XDOM xdom = this.parser.parse(new StringReader("---+ Title\n\n   * Item 1\n      * Item 2\n   * Item 3\n\n"
+            + "---++ Sub title\n\n| *col1* | *col2* |\n| cell11 | cell12 |\n\n<verbatim>\n*not bold*\n</verbatim>"));
+
+        List<HeaderBlock> headers = xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        assertEquals(2, headers.size());
+        assertEquals(HeaderLevel.LEVEL1, headers.get(0).getLevel());
+        assertEquals("HTitle", headers.get(0).getId());
+        assertEquals(HeaderLevel.LEVEL2, headers.get(1).getLevel());
+        assertEquals("HSubtitle", headers.get(1).getId());
+
+        assertEquals(3, xdom.getBlocks(new ClassBlockMatcher(ListItemBlock.class), Block.Axes.DESCENDANT).size());
+        assertEquals(2, xdom.getBlocks(new ClassBlockMatcher(TableHeadCellBlock.class), Block.Axes.DESCENDANT).size());
+
+        VerbatimBlock verbatim =
+            xdom.getFirstBlock(new ClassBlockMatcher(VerbatimBlock.class), Block.Axes.DESCENDANT);
+        assertEquals("*not bold*", verbatim.getProtectedString());
+        assertFalse(verbatim.isInline());
+    }
+
+    @Test
+    void parseCompatibilityTestInputsWithNativeEngine() throws Exception
+    {
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        // twiki10/simple/list/list1
+        XDOM xdom = this.parser.parse(new StringReader("   * Item 1\n      * Item 2\n         * Item 3\n"
+            + "            * Item 4\n               * Item 5\n            * Item 6\n         * Item 7\n"
+            + "      * Item 8\n   * Item 9"));
+        assertEquals(9, getBlocks(xdom, ListItemBlock.class).size());
+        List<BulletedListBlock> lists = getBlocks(xdom, BulletedListBlock.class);
+        assertEquals(5, lists.size());
+        // Items 1 and 9 in the first list, items 4 and 6 in the fourth one
+        assertEquals(2, lists.get(0).getChildren().size());
+        assertEquals(2, lists.get(3).getChildren().size());
+        assertEquals(1, lists.get(4).getChildren().size());
+
+        // twiki10/simple/section/section1
+        xdom = this.parser.parse(new StringReader("---+ Title level 1\n---++ Title level 2\n---+++ Title level 3\n"
+            + "---++++ Title level 4\n---+++++ Title level 5\n---++++++ Title level 6"));
+        List<HeaderBlock> headers = getBlocks(xdom, HeaderBlock.class);
+        assertEquals(6, headers.size());
+        for (int i = 0; i < headers.size(); ++i) {
+            assertEquals(HeaderLevel.parseInt(i + 1), headers.get(i).getLevel());
+            assertEquals("HTitlelevel" + (i + 1), headers.get(i).getId());
+        }
+        // Each section is nested in the previous one
+        assertEquals(1, xdom.getChildren().size());
+        assertEquals(6, getBlocks(xdom, SectionBlock.class).size());
+
+        // twiki10/simple/bold/bold2
+        xdom = this.parser.parse(new StringReader("This is * bold *"));
+        assertTrue(getBlocks(xdom, FormatBlock.class).isEmpty());
+
+        // twiki10/simple/bold/bold3
+        xdom = this.parser.parse(new StringReader("This is *bold and _italic_*"));
+        List<FormatBlock> formats = getBlocks(xdom, FormatBlock.class);
+        assertEquals(2, formats.size());
+        assertEquals(Format.BOLD, formats.get(0).getFormat());
+        assertEquals(Format.ITALIC, formats.get(1).getFormat());
+        assertEquals(formats.get(0), formats.get(1).getParent());
+
+        // twiki10/simple/verbatim/verbatim2
+        xdom = this.parser.parse(new StringReader("<verbatim>verbatim</verbatim>"));
+        VerbatimBlock verbatim = xdom.getFirstBlock(new ClassBlockMatcher(VerbatimBlock.class), Block.Axes.DESCENDANT);
+        assertEquals("verbatim", verbatim.getProtectedString());
+        assertFalse(verbatim.isInline());
+    }
+
+    @Test
+    void parseMixedBlocksWithNativeEngine() throws Exception
+    {
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        XDOM xdom = this.parser.parse(new StringReader("---+!! Title\r\nLine 1\r\nLine 2\r\n| a | b\r\n"
+            + "   1. One\r\n   * Bullet\r\n| c |\r\nText\r\n   * Item\r\n   Indented text\r\n---\r\n"
+            + "---+ Other\r\n<verbatim>\r\nunterminated"));
+
+        List<SectionBlock> sections = getBlocks(xdom, SectionBlock.class);
+        assertEquals(2, sections.size());
+        assertEquals(xdom, sections.get(1).getParent());
+        assertEquals("HTitle", getBlocks(xdom, HeaderBlock.class).get(0).getId());
+
+        assertEquals(1, getBlocks(xdom, NewLineBlock.class).size());
+        assertEquals(2, getBlocks(xdom, TableBlock.class).size());
+        // The content after the last cell separator is a cell
+        assertEquals(3, getBlocks(xdom, TableCellBlock.class).size());
+        assertEquals(1, getBlocks(xdom, NumberedListBlock.class).size());
+        assertEquals(2, getBlocks(xdom, BulletedListBlock.class).size());
+        assertEquals(1, getBlocks(xdom, HorizontalLineBlock.class).size());
+
+        VerbatimBlock verbatim = xdom.getFirstBlock(new ClassBlockMatcher(VerbatimBlock.class), Block.Axes.DESCENDANT);
+        assertEquals("unterminated", verbatim.getProtectedString());
+    }
+
+    @Test
+    void parseEmptyListItemsWithNativeEngine() throws Exception
+    {
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        XDOM xdom = this.parser.parse(new StringReader("   * Item\n   *\n   1.\n   1. Item\n   1.5 is not an item"));
+
+        assertEquals(1, getBlocks(xdom, BulletedListBlock.class).size());
+        assertEquals(1, getBlocks(xdom, NumberedListBlock.class).size());
+        List<ListItemBlock> items = getBlocks(xdom, ListItemBlock.class);
+        assertEquals(4, items.size());
+        assertTrue(items.get(1).getChildren().isEmpty());
+        assertTrue(items.get(2).getChildren().isEmpty());
+        assertEquals(1, getBlocks(xdom, SpecialSymbolBlock.class).size());
+    }
+
+    @Test
+    void parseInlineWithNativeEngine() throws Exception
+    {
+        setParserEngine(DoxiaConfiguration.NATIVE_ENGINE);
+
+        XDOM xdom = this.parser.parse(new StringReader("__bold italic__ ==bold fixed== *bold*, _snake_case_ word_ "
+            + "[[WebHome]] [[http://xwiki.org][XWiki]] http://xwiki.org (WikiWord) !NotLinked NotAWikiWord\u00e9 "
+            + "Word ABC [x] *open _open =open [[open"));
+
+        List<FormatBlock> formats = getBlocks(xdom, FormatBlock.class);
+        assertEquals(6, formats.size());
+        assertEquals(Format.BOLD, formats.get(0).getFormat());
+        assertEquals(Format.ITALIC, formats.get(1).getFormat());
+        assertEquals(Format.BOLD, formats.get(2).getFormat());
+        assertEquals(Format.MONOSPACE, formats.get(3).getFormat());
+        assertEquals(Format.BOLD, formats.get(4).getFormat());
+        assertEquals(Format.ITALIC, formats.get(5).getFormat());
+        assertEquals(3, formats.get(5).getChildren().size());
+
+        List<LinkBlock> links = getBlocks(xdom, LinkBlock.class);
+        assertEquals(4, links.size());
+        assertEquals("WebHome", ((WordBlock) links.get(0).getChildren().get(0)).getWord());
+        assertEquals("XWiki", ((WordBlock) links.get(1).getChildren().get(0)).getWord());
+        assertEquals("WikiWord", ((WordBlock) links.get(3).getChildren().get(0)).getWord());
+
+        List<WordBlock> words = getBlocks(xdom, WordBlock.class);
+        assertTrue(words.stream().anyMatch(word -> word.getWord().equals("NotLinked")));
+        assertTrue(words.stream().anyMatch(word -> word.getWord().equals("NotAWikiWord\u00e9")));
+    }
+
+    @Test
+    void supportedByNativeEngine()
+    {
+        assertTrue(
+            NativeTWikiParser.supports("Some *bold* and a [[http://xwiki.org][link]].\n<verbatim>\nx\n</verbatim>"));
+        assertTrue(NativeTWikiParser.supports("$5 is 5$ or $5, and 1 < 2 <"));
+        assertFalse(NativeTWikiParser.supports("Some <b>HTML</b>"));
+        assertFalse(NativeTWikiParser.supports("This is <verbatim>inline</verbatim>"));
+        assertFalse(NativeTWikiParser.supports("Not a verbatim block</verbatim>"));
+        assertFalse(NativeTWikiParser.supports("   $ term: definition"));
+        assertFalse(NativeTWikiParser.supports("An image http://xwiki.org/logo.png"));
+    }
+
+    private void setParserEngine(String engine) throws Exception
+    {
+        DefaultDoxiaConfiguration configuration = this.componentManager.getInstance(DoxiaConfiguration.class);
+        configuration.setParserEngine(TWiki10SyntaxProvider.TWIKI_1_0, engine);
+    }
+
+    private <T extends Block> List<T> getBlocks(XDOM xdom, Class<T> blockClass)
+    {
+        return xdom.getBlocks(new ClassBlockMatcher(blockClass), Block.Axes.DESCENDANT);
+    }
+
+    private String render(XDOM xdom) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, "event/1.0").render(xdom, printer);
+
+        return printer.toString();
+    }
+}